@@ -0,0 +1,114 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registering and retrieving builders, spread across 100 players.
+ *
+ * @author Grégory Van den Borre
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuilderManagerBenchmark {
+
+    private static final int PLAYERS = 100;
+
+    @Param({"1000", "10000", "200000"})
+    public int builders;
+
+    private SyntheticBuilder[] builderList;
+
+    private PlayerId[] players;
+
+    private BuilderManager<SyntheticBuilder> manager;
+
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        this.players = new PlayerId[PLAYERS];
+        for (int i = 0; i < PLAYERS; i++) {
+            this.players[i] = PlayerId.valueOf(i + 1);
+        }
+        this.builderList = new SyntheticBuilder[this.builders];
+        this.manager = new BuilderManager<>();
+        for (int i = 0; i < this.builders; i++) {
+            this.builderList[i] = new SyntheticBuilder(EntityId.valueOf(i + 1L), this.players[i % PLAYERS], 10);
+            this.manager.addBuilder(this.builderList[i]);
+        }
+    }
+
+    /**
+     * Register all the builders in a new manager.
+     *
+     * @return The filled manager.
+     */
+    @Benchmark
+    public BuilderManager<SyntheticBuilder> addBuilder() {
+        BuilderManager<SyntheticBuilder> result = new BuilderManager<>();
+        for (SyntheticBuilder builder : this.builderList) {
+            result.addBuilder(builder);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Optional<SyntheticBuilder> getBuilderById() {
+        return this.manager.getBuilderById(this.builderList[this.next(this.builders)].getBuilderId());
+    }
+
+    @Benchmark
+    public List<SyntheticBuilder> getBuilderByPlayer() {
+        return this.manager.getBuilderByPlayer(this.players[this.next(PLAYERS)]);
+    }
+
+    private int next(final int bound) {
+        int i = this.cursor;
+        this.cursor = i + 1 >= bound ? 0 : i + 1;
+        return i;
+    }
+}
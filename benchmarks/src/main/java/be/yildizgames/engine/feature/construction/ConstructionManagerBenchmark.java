@@ -0,0 +1,124 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.Entity;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a frame with a constant number of entities waiting to be built, about 1% of them completing every frame.
+ * Every completed entity is immediately scheduled again.
+ *
+ * @author Grégory Van den Borre
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionManagerBenchmark {
+
+    /**
+     * Duration of a frame, in milliseconds.
+     */
+    private static final long FRAME = 16;
+
+    private static final int PLAYERS = 100;
+
+    @Param({"1000", "10000", "100000"})
+    public int waitingEntities;
+
+    @Param({"linear", "deadline"})
+    public String scheduler;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    /**
+     * Waiting entities by the entity they build, to schedule them again once completed.
+     */
+    private final Map<EntityInConstruction, WaitingEntity<EntityInConstruction>> waitingByEntity = new IdentityHashMap<>();
+
+    private ConstructionManager<Entity, EntityInConstruction, Object> manager;
+
+    @Setup
+    public void setup() {
+        ConstructionScheduler<EntityInConstruction> constructionScheduler = "linear".equals(this.scheduler)
+                ? new LinearConstructionScheduler<>()
+                : new DeadlineConstructionScheduler<>(this.waitingEntities);
+        this.manager = new ConstructionManager<>(this::restart, SyntheticEntities.CREATOR, constructionScheduler);
+        for (int i = 0; i < this.waitingEntities; i++) {
+            EntityInConstruction entity = SyntheticEntities.entity(i + 1, PlayerId.valueOf(i % PLAYERS + 1));
+            this.schedule(SyntheticEntities.waiting(entity, i, this.duration(), EntityId.valueOf(this.waitingEntities + i + 1L)));
+        }
+    }
+
+    @Benchmark
+    public boolean frameEnded() {
+        return this.manager.frameEnded(FRAME);
+    }
+
+    /**
+     * Used as entity factory, schedule the completed entity again.
+     *
+     * @param entity Completed entity.
+     * @return null, nothing is materialized.
+     */
+    private Entity restart(final EntityInConstruction entity) {
+        WaitingEntity<EntityInConstruction> completed = this.waitingByEntity.get(entity);
+        this.schedule(SyntheticEntities.waiting(entity, completed.representation.index, this.duration(), completed.builderId));
+        return null;
+    }
+
+    private void schedule(final WaitingEntity<EntityInConstruction> waitingEntity) {
+        this.waitingByEntity.put(waitingEntity.entity, waitingEntity);
+        this.manager.addEntityToBuild(waitingEntity);
+    }
+
+    /**
+     * @return A duration between 1 and 200 frames, 100 in average.
+     */
+    private long duration() {
+        return FRAME * this.random.nextInt(1, 201);
+    }
+}
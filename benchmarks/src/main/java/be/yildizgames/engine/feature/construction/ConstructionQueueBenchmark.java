@@ -0,0 +1,98 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Removing requests and counting entities in a full queue.
+ *
+ * @author Grégory Van den Borre
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionQueueBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int queueSize;
+
+    private ConstructionQueue<EntityConstructionStatus> queue;
+
+    private EntityConstructionStatus[] requests;
+
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        this.queue = new ConstructionQueue<>(EntityId.valueOf(1), this.queueSize);
+        this.requests = new EntityConstructionStatus[this.queueSize];
+        for (int i = 0; i < this.queueSize; i++) {
+            this.requests[i] = SyntheticEntities.status(i, 1000);
+            this.queue.add(this.requests[i]);
+        }
+    }
+
+    /**
+     * Remove a request spread in the queue and add it back at the end.
+     *
+     * @return The remove result.
+     */
+    @Benchmark
+    public boolean removeThenAdd() {
+        EntityConstructionStatus request = this.requests[this.next() * 7919 % this.queueSize];
+        boolean removed = this.queue.remove(request.index);
+        this.queue.add(request);
+        return removed;
+    }
+
+    @Benchmark
+    public int getNumberOfEntities() {
+        return this.queue.getNumberOfEntities(SyntheticEntities.type(this.next()));
+    }
+
+    private int next() {
+        int i = this.cursor;
+        this.cursor = i + 1 == this.queueSize ? 0 : i + 1;
+        return i;
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue manager operations for a player owning many builders, each operation uses the next builder.
+ *
+ * @author Grégory Van den Borre
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionQueueManagerBenchmark {
+
+    private static final PlayerId PLAYER = PlayerId.valueOf(1);
+
+    private static final int QUEUE_SIZE = 10;
+
+    @Param({"10", "100", "1000"})
+    public int buildersPerPlayer;
+
+    private ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> queueManager;
+
+    private EntityId[] builderIds;
+
+    /**
+     * One request per builder, with a unique index.
+     */
+    private EntityConstructionStatus[] requests;
+
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        BuilderManager<QueueBuilder<EntityConstructionStatus>> builderManager = new BuilderManager<>();
+        this.builderIds = new EntityId[this.buildersPerPlayer];
+        this.requests = new EntityConstructionStatus[this.buildersPerPlayer];
+        for (int i = 0; i < this.buildersPerPlayer; i++) {
+            this.builderIds[i] = EntityId.valueOf(i + 1L);
+            this.requests[i] = SyntheticEntities.status(i, 1000);
+            builderManager.addBuilder(new SyntheticBuilder(this.builderIds[i], PLAYER, QUEUE_SIZE));
+        }
+        this.queueManager = new ConstructionQueueManager<>(builderManager);
+        this.queueManager.willNotify(q -> {});
+    }
+
+    @Benchmark
+    public void addEntityThenComplete() {
+        int i = this.next();
+        EntityConstructionStatus request = this.requests[i];
+        this.queueManager.addEntity(PLAYER, this.builderIds[i], request);
+        this.queueManager.entityComplete(this.builderIds[i], PLAYER, request.type, this.builderIds[i], request.index);
+    }
+
+    @Benchmark
+    public void addEntityThenCancel() {
+        int i = this.next();
+        EntityConstructionStatus request = this.requests[i];
+        this.queueManager.addEntity(PLAYER, this.builderIds[i], request);
+        this.queueManager.cancel(PLAYER, request.index);
+    }
+
+    private int next() {
+        int i = this.cursor;
+        this.cursor = i + 1 == this.buildersPerPlayer ? 0 : i + 1;
+        return i;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.geometry.Point3D;
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+
+import java.util.List;
+
+/**
+ * Builder without prerequisites, building at the origin.
+ *
+ * @author Grégory Van den Borre
+ */
+final class SyntheticBuilder implements QueueBuilder<EntityConstructionStatus> {
+
+    private final EntityId id;
+
+    private final PlayerId owner;
+
+    private final ConstructionQueue<EntityConstructionStatus> queue;
+
+    SyntheticBuilder(final EntityId id, final PlayerId owner, final int queueSize) {
+        super();
+        this.id = id;
+        this.owner = owner;
+        this.queue = new ConstructionQueue<>(id, queueSize);
+    }
+
+    @Override
+    public void cancel(final int index) {
+        this.queue.remove(index);
+    }
+
+    @Override
+    public EntityId getBuilderId() {
+        return this.id;
+    }
+
+    @Override
+    public PlayerId getOwner() {
+        return this.owner;
+    }
+
+    @Override
+    public Point3D getBuildPosition() {
+        return Point3D.BASE_DIRECTION;
+    }
+
+    @Override
+    public boolean fullfilPrerequisite(final Buildable data) {
+        return true;
+    }
+
+    @Override
+    public ConstructionQueue<EntityConstructionStatus> getQueue() {
+        return this.queue;
+    }
+
+    @Override
+    public void setQueue(final List<EntityConstructionStatus> queue) {
+        this.queue.set(queue);
+    }
+
+    @Override
+    public void removeFromQueue(final int index) {
+        this.queue.remove(index);
+    }
+
+    @Override
+    public void addInQueue(final EntityConstructionStatus r) {
+        this.queue.add(r);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.Entity;
+import be.yildizgames.engine.feature.entity.EntityCreator;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.EntityToCreate;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+
+/**
+ * Synthetic construction data used by the benchmarks.
+ *
+ * @author Grégory Van den Borre
+ */
+final class SyntheticEntities {
+
+    /**
+     * Entity types used by the benchmarks.
+     */
+    static final EntityType[] TYPES = {
+            new EntityType(1, "Worker"),
+            new EntityType(2, "Soldier"),
+            new EntityType(3, "Tank"),
+            new EntityType(4, "Plane")
+    };
+
+    /**
+     * Creator not materializing anything.
+     */
+    @SuppressWarnings("rawtypes")
+    static final EntityCreator CREATOR = SyntheticEntities::create;
+
+    private SyntheticEntities() {
+        super();
+    }
+
+    static EntityType type(final int i) {
+        return TYPES[i % TYPES.length];
+    }
+
+    static EntityConstructionStatus status(final int index, final long time) {
+        return new EntityConstructionStatus(type(index), index, time);
+    }
+
+    static EntityInConstruction entity(final long id, final PlayerId owner) {
+        return new EntityInConstruction(type((int) id), EntityId.valueOf(id), owner);
+    }
+
+    static WaitingEntity<EntityInConstruction> waiting(final EntityInConstruction entity, final int index, final long time, final EntityId builder) {
+        return new WaitingEntity<>(entity, status(index, time), builder);
+    }
+
+    private static Entity create(final EntityToCreate e) {
+        return null;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Keep track of all existing builders, the storage is provided by the implementations.
+ * BuilderManager is the implementation for a single thread, ConcurrentBuilderManager the one to register builders from several threads.
+ * @param <B> Builder type.
+ *
+ * @author Grégory Van den Borre
+ */
+public abstract class AbstractBuilderManager<B extends Builder> {
+
+    protected AbstractBuilderManager() {
+        super();
+    }
+
+    /**
+     * Retrieve a builder by its id.
+     * @param builderId Builder unique id.
+     * @return The builder matching the given id.
+     */
+    //@Ensures("result != null")
+    public abstract Optional<B> getBuilderById(EntityId builderId);
+
+    /**
+     * Register a new builder, if a builder with the same id was already registered, it is replaced.
+     * @param builder Builder to register.
+     */
+    public abstract void addBuilder(B builder);
+
+    /**
+     * Unregister a builder, for example when it is destroyed.
+     * @param builderId Id of the builder to remove.
+     * @return The removed builder, empty if no builder was registered with that id.
+     */
+    //@Ensures("result != null")
+    public abstract Optional<B> removeBuilder(EntityId builderId);
+
+    /**
+     * Move a builder to the player currently owning it, to call once the builder owner changed, for example when it is captured.
+     * @param builderId Id of the builder whose owner changed.
+     * @return <code>true</code> if the builder is registered, false otherwise.
+     */
+    public abstract boolean updateOwner(EntityId builderId);
+
+    /**
+     * Retrieve all builder for a given player.
+     *
+     * @param player Player owner of the builders.
+     * @return the list of builders for a player.
+     */
+    //@Requires player != null
+    //@Ensures("result != null")
+    public abstract List<B> getBuilderByPlayer(PlayerId player);
+
+    /**
+     * Retrieve the owner a builder is registered for, it differs from the builder owner until updateOwner is called.
+     *
+     * @param builderId Id of the builder.
+     * @return The owner the builder is registered for, null if no builder is registered with that id.
+     */
+    abstract PlayerId getRegisteredOwner(EntityId builderId);
+
+    /**
+     * Provide every registered builder, in no particular order.
+     *
+     * @param action Called for every builder.
+     */
+    abstract void forEachBuilder(Consumer<B> action);
+
+    /**
+     * A registered builder, with the owner it was registered for.
+     * @param <B> Builder type.
+     */
+    static final class Registration<B extends Builder> {
+
+        final B builder;
+
+        /**
+         * Owner of the builder when it was registered.
+         */
+        final PlayerId owner;
+
+        Registration(final B builder, final PlayerId owner) {
+            this.builder = builder;
+            this.owner = owner;
+        }
+    }
+}
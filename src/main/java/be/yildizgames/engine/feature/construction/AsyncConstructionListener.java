@@ -0,0 +1,124 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+
+/**
+ * Construction listener forwarding the notifications to another listener on a dedicated thread, so a slow listener does not slow down the frame.
+ * The notifications are kept in a bounded buffer, when it is full the notifying thread waits for a free place, no notification is dropped.
+ * The waiting entities are provided as is, their representation can be modified by the frame thread meanwhile.
+ * @param <E> EntityInConstruction real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class AsyncConstructionListener<E extends EntityInConstruction> implements ConstructionListener<E>, AutoCloseable {
+
+    /**
+     * Listener receiving the notifications.
+     */
+    private final ConstructionListener<E> delegate;
+
+    /**
+     * Executor running the delegate notifications.
+     */
+    private final ListenerExecutor executor;
+
+    /**
+     * Create a new instance and start its notification thread.
+     *
+     * @param delegate Listener receiving the notifications.
+     * @param capacity Maximum number of notifications waiting to be forwarded.
+     * @throws NullPointerException If delegate is null.
+     */
+    public AsyncConstructionListener(final ConstructionListener<E> delegate, final int capacity) {
+        super();
+        assert delegate != null;
+        this.delegate = delegate;
+        this.executor = new ListenerExecutor("construction-listener-" + delegate.getClass().getSimpleName(), capacity);
+    }
+
+    @Override
+    public void entityConstructionStarted() {
+        this.executor.submit(this.delegate::entityConstructionStarted);
+    }
+
+    @Override
+    public void entityComplete(final EntityId id, final PlayerId owner, final EntityType type, final EntityId builder, final int request) {
+        this.executor.submit(() -> this.delegate.entityComplete(id, owner, type, builder, request));
+    }
+
+    @Override
+    public void entityConstructionCanceled(final WaitingEntity<E> e) {
+        this.executor.submit(() -> this.delegate.entityConstructionCanceled(e));
+    }
+
+    @Override
+    public void addEntityToCreate(final WaitingEntity<E> e) {
+        this.executor.submit(() -> this.delegate.addEntityToCreate(e));
+    }
+
+    /**
+     * @return The listener receiving the notifications.
+     */
+    public ConstructionListener<E> getDelegate() {
+        return this.delegate;
+    }
+
+    /**
+     * @return The number of notifications waiting to be forwarded.
+     */
+    public int getBacklog() {
+        return this.executor.getBacklog();
+    }
+
+    /**
+     * @return The number of notifications which had to wait for a free place in the buffer.
+     */
+    public long getBlocked() {
+        return this.executor.getBlocked();
+    }
+
+    /**
+     * Wait for all the notifications received before the close to be forwarded.
+     *
+     * @param timeout Maximum time to wait, in milliseconds.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void awaitTermination(final long timeout) throws InterruptedException {
+        this.executor.awaitTermination(timeout);
+    }
+
+    /**
+     * Stop forwarding the new notifications, the notifications already received are still forwarded.
+     */
+    @Override
+    public void close() {
+        this.executor.close();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+
+/**
+ * Queue listener forwarding the notifications to another listener on a dedicated thread, so a slow listener does not slow down the frame.
+ * The notifications are kept in a bounded buffer, when it is full the notifying thread waits for a free place, no notification is dropped.
+ * The queues and changes are copied before being forwarded, their elements are not.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class AsyncConstructionQueueListener implements ConstructionQueueListener, AutoCloseable {
+
+    /**
+     * Listener receiving the notifications.
+     */
+    private final ConstructionQueueListener delegate;
+
+    /**
+     * Executor running the delegate notifications.
+     */
+    private final ListenerExecutor executor;
+
+    /**
+     * Create a new instance and start its notification thread.
+     *
+     * @param delegate Listener receiving the notifications.
+     * @param capacity Maximum number of notifications waiting to be forwarded.
+     * @throws NullPointerException If delegate is null.
+     */
+    public AsyncConstructionQueueListener(final ConstructionQueueListener delegate, final int capacity) {
+        super();
+        assert delegate != null;
+        this.delegate = delegate;
+        this.executor = new ListenerExecutor("construction-queue-listener-" + delegate.getClass().getSimpleName(), capacity);
+    }
+
+    @Override
+    public void notify(final ConstructionQueue queue) {
+        ConstructionQueue copy = queue.copy();
+        this.executor.submit(() -> this.delegate.notify(copy));
+    }
+
+    @Override
+    public void notifyChanges(final ConstructionQueue queue, final ConstructionQueueChange change) {
+        ConstructionQueue copy = queue.copy();
+        ConstructionQueueChange changeCopy = change.copy();
+        this.executor.submit(() -> this.delegate.notifyChanges(copy, changeCopy));
+    }
+
+    @Override
+    public void add(final EntityConstructionStatus toBuild, final PlayerId playerId, final EntityId builderId) {
+        this.executor.submit(() -> this.delegate.add(toBuild, playerId, builderId));
+    }
+
+    /**
+     * @return The listener receiving the notifications.
+     */
+    public ConstructionQueueListener getDelegate() {
+        return this.delegate;
+    }
+
+    /**
+     * @return The number of notifications waiting to be forwarded.
+     */
+    public int getBacklog() {
+        return this.executor.getBacklog();
+    }
+
+    /**
+     * @return The number of notifications which had to wait for a free place in the buffer.
+     */
+    public long getBlocked() {
+        return this.executor.getBlocked();
+    }
+
+    /**
+     * Wait for all the notifications received before the close to be forwarded.
+     *
+     * @param timeout Maximum time to wait, in milliseconds.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void awaitTermination(final long timeout) throws InterruptedException {
+        this.executor.awaitTermination(timeout);
+    }
+
+    /**
+     * Stop forwarding the new notifications, the notifications already received are still forwarded.
+     */
+    @Override
+    public void close() {
+        this.executor.close();
+    }
+}
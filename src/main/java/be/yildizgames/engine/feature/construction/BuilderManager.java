@@ -27,66 +27,142 @@ package be.yildizgames.engine.feature.construction;
 import be.yildizgames.common.model.EntityId;
 import be.yildizgames.common.model.PlayerId;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Keep track of all existing builders.
+ * Builders are indexed on the numeric value of their id without boxing, the builders of a player are kept in a flat array.
+ * This implementation is not thread safe, see ConcurrentBuilderManager to register builders from several threads.
  *
  * @author Grégory Van den Borre
  */
-public class BuilderManager<B extends Builder> {
+public class BuilderManager<B extends Builder> extends AbstractBuilderManager<B> {
 
     /**
-     * List of builder by their id.
+     * List of builder by their id value.
      */
-    private final Map<EntityId, B> builderList = new HashMap<>();
+    private final LongObjectMap<Registration<B>> builderList = new LongObjectMap<>();
 
     /**
      * List of all builders for a given player.
      */
-    private final Map<PlayerId, List<B>> buildersByPlayer = new HashMap<>();
+    private final Map<PlayerId, PlayerBuilders<B>> buildersByPlayer = new HashMap<>();
 
     public BuilderManager() {
         super();
     }
 
-    /**
-     * Retrieve a builder by its id.
-     * @param builderId Builder unique id.
-     * @return The builder matching the given id.
-     */
-    //@Ensures("result != null")
+    @Override
     public Optional<B> getBuilderById(final EntityId builderId) {
-        return Optional.ofNullable(this.builderList.get(builderId));
+        Registration<B> registration = this.builderList.get(builderId.value);
+        return registration == null ? Optional.empty() : Optional.of(registration.builder);
     }
 
-    /**
-     * Register a new builder.
-     * @param builder Builder to register.
-     */
+    @Override
     public void addBuilder(final B builder) {
-        this.builderList.put(builder.getBuilderId(), builder);
-        if (!this.buildersByPlayer.containsKey(builder.getOwner())) {
-            this.buildersByPlayer.put(builder.getOwner(), new ArrayList<>());
+        Registration<B> previous = this.builderList.put(builder.getBuilderId().value, new Registration<>(builder, builder.getOwner()));
+        if (previous != null) {
+            this.removeFromPlayer(previous);
         }
-        this.buildersByPlayer.get(builder.getOwner()).add(builder);
+        this.buildersByPlayer.computeIfAbsent(builder.getOwner(), p -> new PlayerBuilders<>()).append(builder);
     }
 
-    /**
-     * Retrieve all builder for a given player.
-     *
-     * @param player Player owner of the builders.
-     * @return the list of builders for a player.
-     */
-    //@Ensures("result != null")
+    @Override
+    public Optional<B> removeBuilder(final EntityId builderId) {
+        Registration<B> registration = this.builderList.remove(builderId.value);
+        if (registration == null) {
+            return Optional.empty();
+        }
+        this.removeFromPlayer(registration);
+        return Optional.of(registration.builder);
+    }
+
+    @Override
+    public boolean updateOwner(final EntityId builderId) {
+        Registration<B> registration = this.builderList.get(builderId.value);
+        if (registration == null) {
+            return false;
+        }
+        if (!registration.owner.equals(registration.builder.getOwner())) {
+            this.addBuilder(registration.builder);
+        }
+        return true;
+    }
+
+    @Override
     public List<B> getBuilderByPlayer(final PlayerId player) {
         assert player != null;
-        return Collections.unmodifiableList(this.buildersByPlayer.getOrDefault(player, Collections.emptyList()));
+        PlayerBuilders<B> builders = this.buildersByPlayer.get(player);
+        return builders == null ? Collections.emptyList() : builders;
+    }
+
+    @Override
+    PlayerId getRegisteredOwner(final EntityId builderId) {
+        Registration<B> registration = this.builderList.get(builderId.value);
+        return registration == null ? null : registration.owner;
+    }
+
+    @Override
+    void forEachBuilder(final Consumer<B> action) {
+        this.builderList.forEachValue(r -> action.accept(r.builder));
     }
 
+    private void removeFromPlayer(final Registration<B> registration) {
+        PlayerBuilders<B> builders = this.buildersByPlayer.get(registration.owner);
+        if (builders != null) {
+            builders.delete(registration.builder);
+        }
+    }
+
+    /**
+     * Builders of a player in a flat array, in registration order.
+     * The instance is also the read only list returned to the callers, it stays up to date.
+     * @param <B> Builder type.
+     */
+    private static final class PlayerBuilders<B extends Builder> extends AbstractList<B> {
+
+        private Object[] builders = new Object[4];
+
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public B get(final int index) {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+            }
+            return (B) this.builders[index];
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        private void append(final B builder) {
+            if (this.size == this.builders.length) {
+                this.builders = Arrays.copyOf(this.builders, this.size << 1);
+            }
+            this.builders[this.size] = builder;
+            this.size++;
+        }
+
+        private void delete(final B builder) {
+            for (int i = 0; i < this.size; i++) {
+                if (this.builders[i] == builder) {
+                    this.size--;
+                    System.arraycopy(this.builders, i + 1, this.builders, i, this.size - i);
+                    this.builders[this.size] = null;
+                    return;
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,278 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler keeping the remaining time of the waiting entities in a primitive array instead of reading it through every entity representation.
+ * A frame is a countdown loop over that array, the waiting entities are only touched when some are completed or canceled.
+ * Every scheduled entity gets a handle, mapped to its current slot in the arrays, so a cancel is done in constant time,
+ * the canceled slots are compacted at the next frame.
+ * The remaining time of the waiting entities representation is only updated when they are completed or retrieved.
+ * Entities completed in the same frame are provided in scheduling order.
+ * @param <E> EntityInConstruction real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public class ColumnarConstructionScheduler<E extends EntityInConstruction> implements ConstructionScheduler<E> {
+
+    /**
+     * Initial capacity of the arrays.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Handle of every scheduled entity, the identity is used because the representation held by the waiting entity is mutated while scheduled.
+     */
+    private final Map<WaitingEntity<E>, Integer> handles = new IdentityHashMap<>();
+
+    /**
+     * Remaining time of the entity in each slot.
+     */
+    private long[] timeLeft;
+
+    /**
+     * Entity in each slot, null for a canceled slot.
+     */
+    private WaitingEntity<E>[] entities;
+
+    /**
+     * Handle of the entity in each slot.
+     */
+    private int[] handleBySlot;
+
+    /**
+     * Slot of each handle.
+     */
+    private int[] slotByHandle;
+
+    /**
+     * Handles released by completed and canceled entities.
+     */
+    private int[] freeHandles;
+
+    private int freeHandlesSize;
+
+    /**
+     * Number of handles used at least once.
+     */
+    private int usedHandles;
+
+    /**
+     * Number of used slots, including the canceled ones.
+     */
+    private int size;
+
+    /**
+     * Number of canceled slots not yet compacted.
+     */
+    private int holes;
+
+    /**
+     * Entities completed during the current frame, provided once the arrays are compacted so the completion callback can schedule or cancel entities.
+     */
+    private WaitingEntity<E>[] completedBuffer;
+
+    public ColumnarConstructionScheduler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param capacity Expected number of simultaneous constructions.
+     */
+    @SuppressWarnings("unchecked")
+    public ColumnarConstructionScheduler(final int capacity) {
+        super();
+        int c = Math.max(1, capacity);
+        this.timeLeft = new long[c];
+        this.entities = new WaitingEntity[c];
+        this.handleBySlot = new int[c];
+        this.slotByHandle = new int[c];
+        this.freeHandles = new int[c];
+        this.completedBuffer = new WaitingEntity[c];
+    }
+
+    @Override
+    public void schedule(final WaitingEntity<E> entity, final long duration) {
+        assert entity != null;
+        Integer existing = this.handles.get(entity);
+        if (existing != null) {
+            this.timeLeft[this.slotByHandle[existing]] = duration;
+            return;
+        }
+        if (this.size == this.timeLeft.length) {
+            this.grow();
+        }
+        int handle;
+        if (this.freeHandlesSize > 0) {
+            this.freeHandlesSize--;
+            handle = this.freeHandles[this.freeHandlesSize];
+        } else {
+            handle = this.usedHandles;
+            this.usedHandles++;
+        }
+        int slot = this.size;
+        this.size++;
+        this.timeLeft[slot] = duration;
+        this.entities[slot] = entity;
+        this.handleBySlot[slot] = handle;
+        this.slotByHandle[handle] = slot;
+        this.handles.put(entity, handle);
+    }
+
+    @Override
+    public boolean cancel(final WaitingEntity<E> entity) {
+        Integer handle = this.handles.remove(entity);
+        if (handle == null) {
+            return false;
+        }
+        int slot = this.slotByHandle[handle];
+        this.entities[slot] = null;
+        this.timeLeft[slot] = Long.MAX_VALUE;
+        this.releaseHandle(handle);
+        this.holes++;
+        return true;
+    }
+
+    @Override
+    public void advance(final long time, final Consumer<WaitingEntity<E>> completed) {
+        long[] left = this.timeLeft;
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < this.size; i++) {
+            long value = left[i] - time;
+            left[i] = value;
+            min = Math.min(min, value);
+        }
+        if (min > 0 && this.holes == 0) {
+            return;
+        }
+        int completedSize = this.compact();
+        for (int i = 0; i < completedSize; i++) {
+            WaitingEntity<E> entity = this.completedBuffer[i];
+            this.completedBuffer[i] = null;
+            completed.accept(entity);
+        }
+    }
+
+    @Override
+    public List<WaitingEntity<E>> getScheduled() {
+        List<WaitingEntity<E>> result = new ArrayList<>(this.handles.size());
+        for (int i = 0; i < this.size; i++) {
+            WaitingEntity<E> entity = this.entities[i];
+            if (entity != null) {
+                synchronize(entity, this.timeLeft[i]);
+                result.add(entity);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public void synchronize(final WaitingEntity<E> entity) {
+        Integer handle = this.handles.get(entity);
+        if (handle != null) {
+            synchronize(entity, this.timeLeft[this.slotByHandle[handle]]);
+        }
+    }
+
+    /**
+     * Remove the canceled and completed entities from the arrays, keeping the order of the remaining ones.
+     * The completed entities are moved to the completed buffer.
+     *
+     * @return The number of completed entities.
+     */
+    private int compact() {
+        int kept = 0;
+        int completedSize = 0;
+        for (int i = 0; i < this.size; i++) {
+            WaitingEntity<E> entity = this.entities[i];
+            if (entity == null) {
+                continue;
+            }
+            long left = this.timeLeft[i];
+            int handle = this.handleBySlot[i];
+            if (left <= 0) {
+                this.handles.remove(entity);
+                this.releaseHandle(handle);
+                synchronize(entity, left);
+                if (completedSize == this.completedBuffer.length) {
+                    this.completedBuffer = Arrays.copyOf(this.completedBuffer, completedSize << 1);
+                }
+                this.completedBuffer[completedSize] = entity;
+                completedSize++;
+            } else {
+                if (kept != i) {
+                    this.timeLeft[kept] = left;
+                    this.entities[kept] = entity;
+                    this.handleBySlot[kept] = handle;
+                    this.slotByHandle[handle] = kept;
+                }
+                kept++;
+            }
+        }
+        Arrays.fill(this.entities, kept, this.size, null);
+        this.size = kept;
+        this.holes = 0;
+        return completedSize;
+    }
+
+    private void releaseHandle(final int handle) {
+        this.freeHandles[this.freeHandlesSize] = handle;
+        this.freeHandlesSize++;
+    }
+
+    private void grow() {
+        int capacity = this.timeLeft.length << 1;
+        this.timeLeft = Arrays.copyOf(this.timeLeft, capacity);
+        this.entities = Arrays.copyOf(this.entities, capacity);
+        this.handleBySlot = Arrays.copyOf(this.handleBySlot, capacity);
+        this.slotByHandle = Arrays.copyOf(this.slotByHandle, capacity);
+        this.freeHandles = Arrays.copyOf(this.freeHandles, capacity);
+    }
+
+    /**
+     * Report the remaining time to the entity representation.
+     *
+     * @param entity Entity to update.
+     * @param left Remaining time.
+     */
+    private static void synchronize(final WaitingEntity<?> entity, final long left) {
+        long elapsed = entity.representation.getTimeLeft() - left;
+        if (elapsed != 0) {
+            entity.representation.reduceTimeLeft(elapsed);
+        }
+    }
+}
@@ -37,6 +37,14 @@ public interface CompleteConstructionManager <E extends EntityInConstruction> ex
 
     void createEntity(EntityToCreate entity);
 
+    /**
+     * Add an entity to build, it will be created once its construction time is elapsed.
+     *
+     * @param w Entity to build.
+     */
+    //@Requires w != null
+    void addEntityToBuild(WaitingEntity<E> w);
+
     /**
      * Cancel an entity to build.
      *
@@ -0,0 +1,175 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+
+import java.util.Arrays;
+
+/**
+ * All the constructions completed during a frame, stored in parallel arrays.
+ * The same instance is reused every frame, its content is only valid during the listener call.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class CompletionBatch {
+
+    /**
+     * Initial number of completions the batch can hold.
+     */
+    private static final int INITIAL_CAPACITY = 32;
+
+    /**
+     * Id of the built entities.
+     */
+    private EntityId[] ids = new EntityId[INITIAL_CAPACITY];
+
+    /**
+     * Id of the owner of the built entities.
+     */
+    private PlayerId[] owners = new PlayerId[INITIAL_CAPACITY];
+
+    /**
+     * Type of the built entities.
+     */
+    private EntityType[] types = new EntityType[INITIAL_CAPACITY];
+
+    /**
+     * Id of the builder of the entities.
+     */
+    private EntityId[] builders = new EntityId[INITIAL_CAPACITY];
+
+    /**
+     * Index of the request for the entities.
+     */
+    private int[] requests = new int[INITIAL_CAPACITY];
+
+    private int size;
+
+    CompletionBatch() {
+        super();
+    }
+
+    /**
+     * @return The number of completed constructions in this batch.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * @param i Position in the batch.
+     * @return The id of the built entity.
+     */
+    public EntityId getId(final int i) {
+        this.check(i);
+        return this.ids[i];
+    }
+
+    /**
+     * @param i Position in the batch.
+     * @return The id of the owner of the built entity.
+     */
+    public PlayerId getOwner(final int i) {
+        this.check(i);
+        return this.owners[i];
+    }
+
+    /**
+     * @param i Position in the batch.
+     * @return The type of the built entity.
+     */
+    public EntityType getType(final int i) {
+        this.check(i);
+        return this.types[i];
+    }
+
+    /**
+     * @param i Position in the batch.
+     * @return The id of the builder of the entity.
+     */
+    public EntityId getBuilder(final int i) {
+        this.check(i);
+        return this.builders[i];
+    }
+
+    /**
+     * @param i Position in the batch.
+     * @return The index to retrieve the entity against its request.
+     */
+    public int getRequest(final int i) {
+        this.check(i);
+        return this.requests[i];
+    }
+
+    /**
+     * Add a completed construction.
+     *
+     * @param id Id of the built entity.
+     * @param owner Id of the owner of the built entity.
+     * @param type Type of the built entity.
+     * @param builder Id of the builder of the entity.
+     * @param request An index to retrieve an entity against a request.
+     */
+    void add(final EntityId id, final PlayerId owner, final EntityType type, final EntityId builder, final int request) {
+        if (this.size == this.ids.length) {
+            int capacity = this.size << 1;
+            this.ids = Arrays.copyOf(this.ids, capacity);
+            this.owners = Arrays.copyOf(this.owners, capacity);
+            this.types = Arrays.copyOf(this.types, capacity);
+            this.builders = Arrays.copyOf(this.builders, capacity);
+            this.requests = Arrays.copyOf(this.requests, capacity);
+        }
+        this.ids[this.size] = id;
+        this.owners[this.size] = owner;
+        this.types[this.size] = type;
+        this.builders[this.size] = builder;
+        this.requests[this.size] = request;
+        this.size++;
+    }
+
+    /**
+     * Remove all completions, the capacity is kept for the next frame.
+     */
+    void clear() {
+        Arrays.fill(this.ids, 0, this.size, null);
+        Arrays.fill(this.owners, 0, this.size, null);
+        Arrays.fill(this.types, 0, this.size, null);
+        Arrays.fill(this.builders, 0, this.size, null);
+        this.size = 0;
+    }
+
+    private void check(final int i) {
+        if (i < 0 || i >= this.size) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.size);
+        }
+    }
+}
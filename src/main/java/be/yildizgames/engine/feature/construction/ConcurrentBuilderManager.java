@@ -0,0 +1,137 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+
+/**
+ * Keep track of all existing builders, builders can be registered, removed and read from any thread.
+ * Reads are lock free, writes only lock the builder id entry, the builders of a player are kept in an immutable list replaced on every change.
+ *
+ * @author Grégory Van den Borre
+ */
+public class ConcurrentBuilderManager<B extends Builder> extends AbstractBuilderManager<B> {
+
+    /**
+     * List of builder by their id.
+     */
+    private final ConcurrentMap<EntityId, Registration<B>> builderList = new ConcurrentHashMap<>();
+
+    /**
+     * Immutable list of all builders for a given player.
+     */
+    private final ConcurrentMap<PlayerId, List<B>> buildersByPlayer = new ConcurrentHashMap<>();
+
+    public ConcurrentBuilderManager() {
+        super();
+    }
+
+    @Override
+    public Optional<B> getBuilderById(final EntityId builderId) {
+        Registration<B> registration = this.builderList.get(builderId);
+        return registration == null ? Optional.empty() : Optional.of(registration.builder);
+    }
+
+    @Override
+    public void addBuilder(final B builder) {
+        this.builderList.compute(builder.getBuilderId(), (id, previous) -> {
+            if (previous != null) {
+                this.removeFromPlayer(previous);
+            }
+            Registration<B> registration = new Registration<>(builder, builder.getOwner());
+            this.addToPlayer(registration);
+            return registration;
+        });
+    }
+
+    @Override
+    public Optional<B> removeBuilder(final EntityId builderId) {
+        Object[] removed = new Object[1];
+        this.builderList.computeIfPresent(builderId, (id, registration) -> {
+            this.removeFromPlayer(registration);
+            removed[0] = registration.builder;
+            return null;
+        });
+        @SuppressWarnings("unchecked")
+        B builder = (B) removed[0];
+        return Optional.ofNullable(builder);
+    }
+
+    @Override
+    public boolean updateOwner(final EntityId builderId) {
+        return this.builderList.computeIfPresent(builderId, (id, registration) -> {
+            PlayerId owner = registration.builder.getOwner();
+            if (registration.owner.equals(owner)) {
+                return registration;
+            }
+            this.removeFromPlayer(registration);
+            Registration<B> moved = new Registration<>(registration.builder, owner);
+            this.addToPlayer(moved);
+            return moved;
+        }) != null;
+    }
+
+    @Override
+    public List<B> getBuilderByPlayer(final PlayerId player) {
+        assert player != null;
+        return this.buildersByPlayer.getOrDefault(player, Collections.emptyList());
+    }
+
+    @Override
+    PlayerId getRegisteredOwner(final EntityId builderId) {
+        Registration<B> registration = this.builderList.get(builderId);
+        return registration == null ? null : registration.owner;
+    }
+
+    @Override
+    void forEachBuilder(final Consumer<B> action) {
+        this.builderList.values().forEach(r -> action.accept(r.builder));
+    }
+
+    private void addToPlayer(final Registration<B> registration) {
+        this.buildersByPlayer.compute(registration.owner, (p, builders) -> {
+            List<B> result = builders == null ? new ArrayList<>(1) : new ArrayList<>(builders);
+            result.add(registration.builder);
+            return Collections.unmodifiableList(result);
+        });
+    }
+
+    private void removeFromPlayer(final Registration<B> registration) {
+        this.buildersByPlayer.computeIfPresent(registration.owner, (p, builders) -> {
+            List<B> result = new ArrayList<>(builders);
+            result.remove(registration.builder);
+            return result.isEmpty() ? null : Collections.unmodifiableList(result);
+        });
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+/**
+ * To call once per frame with all the building tasks completed during that frame.
+ *
+ * @author Grégory Van den Borre
+ */
+@FunctionalInterface
+public interface ConstructionBatchListener {
+
+    /**
+     * Adapt a listener expecting one call per completed entity.
+     *
+     * @param listener Listener to call for every completion in the batch.
+     * @return A batch listener calling entityComplete on the listener for every completion, in the batch order.
+     * @throws NullPointerException If listener is null.
+     */
+    static ConstructionBatchListener fanOut(final ConstructionListener listener) {
+        assert listener != null;
+        return batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                listener.entityComplete(batch.getId(i), batch.getOwner(i), batch.getType(i), batch.getBuilder(i), batch.getRequest(i));
+            }
+        };
+    }
+
+    /**
+     * Provide all the entities built during the frame.
+     *
+     * @param batch Completed constructions, the instance is reused and must not be kept after the call.
+     */
+    void entitiesComplete(CompletionBatch batch);
+}
@@ -0,0 +1,155 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import java.util.Arrays;
+
+/**
+ * Histogram of positive values with a bounded relative error, recording does not allocate.
+ * Values below 32 are counted exactly, bigger values are counted in 16 buckets per power of two, the error is lower than 6.25%.
+ * Negative values are recorded as 0. The methods are synchronized, so the histogram can be read from a monitoring thread.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class ConstructionHistogram {
+
+    /**
+     * Values below this one have their own bucket.
+     */
+    private static final int EXACT = 32;
+
+    /**
+     * Number of buckets for each power of two above EXACT.
+     */
+    private static final int SUB_BUCKETS = 16;
+
+    private static final int BUCKETS = EXACT + 58 * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+
+    private long count;
+
+    private long min = Long.MAX_VALUE;
+
+    private long max;
+
+    private double sum;
+
+    public ConstructionHistogram() {
+        super();
+    }
+
+    /**
+     * Record a value.
+     *
+     * @param value Value to record.
+     */
+    public synchronized void record(final long value) {
+        long v = Math.max(0, value);
+        this.counts[index(v)]++;
+        this.count++;
+        this.sum += v;
+        this.min = Math.min(this.min, v);
+        this.max = Math.max(this.max, v);
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public synchronized long getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return The smallest recorded value, 0 if none.
+     */
+    public synchronized long getMin() {
+        return this.count == 0 ? 0 : this.min;
+    }
+
+    /**
+     * @return The biggest recorded value, 0 if none.
+     */
+    public synchronized long getMax() {
+        return this.max;
+    }
+
+    /**
+     * @return The mean of the recorded values, 0 if none.
+     */
+    public synchronized double getMean() {
+        return this.count == 0 ? 0 : this.sum / this.count;
+    }
+
+    /**
+     * Compute the value below which a percentage of the recorded values are.
+     *
+     * @param percentile Percentage, between 0 and 100.
+     * @return The highest value equivalent to the percentile bucket, bounded by the maximum recorded value, 0 if nothing was recorded.
+     */
+    public synchronized long getValueAtPercentile(final double percentile) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * this.count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts[i];
+            if (seen >= rank) {
+                return Math.min(this.max, highestEquivalent(i));
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * Remove all the recorded values.
+     */
+    public synchronized void reset() {
+        Arrays.fill(this.counts, 0);
+        this.count = 0;
+        this.min = Long.MAX_VALUE;
+        this.max = 0;
+        this.sum = 0;
+    }
+
+    private static int index(final long value) {
+        if (value < EXACT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 4;
+        int sub = (int) (value >>> shift);
+        return EXACT + (shift - 1) * SUB_BUCKETS + sub - SUB_BUCKETS;
+    }
+
+    private static long highestEquivalent(final int index) {
+        if (index < EXACT) {
+            return index;
+        }
+        int shift = (index - EXACT) / SUB_BUCKETS + 1;
+        long sub = (index - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.geometry.Point3D;
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.EntityToCreate;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append only journal of the construction commands, to recover a state after a crash or replay a session.
+ * Every command is a fixed size record, the records are kept in a buffer and written to the file in a single call at the end of every frame.
+ * A record starts with its kind, followed by 3 reserved bytes, 5 int fields (type, owner, request, extra type, priority)
+ * and 3 long fields (entity, builder, value).
+ * The priority field holds the priority class of the queue elements, 0 for the normal priority, the class ordinal + 1 otherwise.
+ * The records written by the frame thread are in command order, the entities to create can be recorded from any thread.
+ * A crash loses at most the records of the current frame, a partially written record at the end of the file is ignored when replayed.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class ConstructionJournal implements AutoCloseable {
+
+    /**
+     * Size of a record, in bytes.
+     */
+    public static final int RECORD_SIZE = 48;
+
+    /**
+     * Version of the file format.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * Size of the file header: magic number and format version.
+     */
+    static final int HEADER_SIZE = 8;
+
+    static final int MAGIC = 0x59434A4E;
+
+    /**
+     * Frame ended, value is the time since the previous frame.
+     */
+    static final byte FRAME = 1;
+
+    /**
+     * Entity added to build, value is the remaining time.
+     */
+    static final byte ADD = 2;
+
+    /**
+     * Construction canceled.
+     */
+    static final byte CANCEL = 3;
+
+    /**
+     * Construction completed by the construction manager, only recorded to follow the completed entities.
+     */
+    static final byte COMPLETE = 4;
+
+    /**
+     * Entity directly built, without waiting.
+     */
+    static final byte BUILT = 5;
+
+    /**
+     * Entity to create at the end of the frame, the entity, builder and value fields contain the position and direction.
+     */
+    static final byte CREATE = 6;
+
+    /**
+     * Element added to a builder queue, value is the remaining time.
+     */
+    static final byte QUEUE_ADD = 7;
+
+    /**
+     * Construction canceled in the builders queues.
+     */
+    static final byte QUEUE_CANCEL = 8;
+
+    /**
+     * Builder queue replaced, value is the number of QUEUE_ELEMENT records following.
+     */
+    static final byte QUEUE_UPDATE = 9;
+
+    /**
+     * Element of a replaced queue, value is the remaining time.
+     */
+    static final byte QUEUE_ELEMENT = 10;
+
+    /**
+     * Default number of records buffered before being written.
+     */
+    private static final int DEFAULT_BATCH = 1024;
+
+    private final FileChannel channel;
+
+    /**
+     * Records not yet written.
+     */
+    private final ByteBuffer batch;
+
+    /**
+     * <code>true</code> to force the records to the disk at every commit.
+     */
+    private final boolean sync;
+
+    /**
+     * Open a journal, the records are appended if the file already exists.
+     *
+     * @param file File to write.
+     * @param sync <code>true</code> to force the records to the disk at the end of every frame,
+     *             false to leave it to the operating system, a process crash then loses nothing but a system crash can.
+     * @throws IOException If the file cannot be opened or is not a journal.
+     */
+    public ConstructionJournal(final Path file, final boolean sync) throws IOException {
+        this(file, sync, DEFAULT_BATCH);
+    }
+
+    /**
+     * Open a journal, the records are appended if the file already exists.
+     *
+     * @param file File to write.
+     * @param sync <code>true</code> to force the records to the disk at the end of every frame.
+     * @param batch Number of records buffered before being written, if a frame records more, they are written in several calls.
+     * @throws IOException If the file cannot be opened or is not a journal.
+     */
+    public ConstructionJournal(final Path file, final boolean sync, final int batch) throws IOException {
+        super();
+        assert file != null;
+        assert batch > 0;
+        this.sync = sync;
+        this.batch = ByteBuffer.allocateDirect(batch * RECORD_SIZE);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = this.channel.size();
+            if (size == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(FORMAT_VERSION);
+                header.flip();
+                this.channel.write(header, 0);
+            } else {
+                checkHeader(this.channel, file);
+            }
+            long records = (this.channel.size() - HEADER_SIZE) / RECORD_SIZE;
+            this.channel.position(HEADER_SIZE + records * RECORD_SIZE);
+        } catch (IOException | RuntimeException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Check a journal file header.
+     *
+     * @param channel Channel of the journal, its position is moved after the header.
+     * @param file Journal file.
+     * @throws IOException If the file is not a supported journal.
+     */
+    static void checkHeader(final FileChannel channel, final Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        channel.position(0);
+        while (header.hasRemaining() && channel.read(header) >= 0) {
+            // Read the whole header.
+        }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC) {
+            throw new IOException("Not a construction journal: " + file);
+        }
+        int version = header.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported construction journal version: " + version);
+        }
+    }
+
+    /**
+     * Write all the buffered records to the file, called at the end of every frame.
+     *
+     * @throws UncheckedIOException If the records cannot be written.
+     */
+    public synchronized void commit() {
+        try {
+            this.writeBatch();
+            if (this.sync) {
+                this.channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            this.writeBatch();
+            this.channel.force(false);
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    synchronized void frame(final long time) {
+        this.record(FRAME, 0, 0, 0, 0, 0, 0, time);
+    }
+
+    synchronized void add(final WaitingEntity<?> w) {
+        EntityInConstruction e = w.entity;
+        this.record(ADD, e.getType().type, e.getOwner().value, w.representation.index, w.representation.type.type,
+                e.getId().value, w.builderId.value, w.representation.getTimeLeft());
+    }
+
+    synchronized void cancel(final WaitingEntity<?> w) {
+        EntityInConstruction e = w.entity;
+        this.record(CANCEL, e.getType().type, e.getOwner().value, w.representation.index, w.representation.type.type,
+                e.getId().value, w.builderId.value, 0);
+    }
+
+    synchronized void complete(final EntityId id, final PlayerId owner, final EntityType type, final EntityId builder, final int request) {
+        this.record(COMPLETE, type.type, owner.value, request, type.type, id.value, builder.value, 0);
+    }
+
+    synchronized void built(final EntityInConstruction e, final EntityId builder, final int request) {
+        this.record(BUILT, e.getType().type, e.getOwner().value, request, e.getType().type, e.getId().value, builder.value, 0);
+    }
+
+    synchronized void create(final EntityToCreate e) {
+        Point3D p = e.getPosition();
+        Point3D d = e.getDirection();
+        this.record(CREATE, e.getType().type, e.getOwner().value, 0, 0, pack(p.x, p.y), pack(p.z, d.x), pack(d.y, d.z));
+    }
+
+    synchronized void queueAdd(final PlayerId player, final EntityId builder, final EntityConstructionStatus status, final ConstructionPriority priority) {
+        this.record(QUEUE_ADD, status.type.type, player.value, status.index, status.type.type, encode(priority), 0, builder.value, status.getTimeLeft());
+    }
+
+    synchronized void queueCancel(final PlayerId player, final int request) {
+        this.record(QUEUE_CANCEL, 0, player.value, request, 0, 0, 0, 0);
+    }
+
+    synchronized void queueUpdate(final ConstructionQueue<?> queue, final ConstructionPriority[] priorities) {
+        this.record(QUEUE_UPDATE, 0, 0, 0, 0, 0, queue.getBuilderId().value, queue.getList().size());
+        int position = 0;
+        for (EntityConstructionStatus status : queue.getList()) {
+            this.record(QUEUE_ELEMENT, status.type.type, 0, status.index, status.type.type, encode(priorities[position]),
+                    0, queue.getBuilderId().value, status.getTimeLeft());
+            position++;
+        }
+    }
+
+    /**
+     * Encode a priority class in a record priority field.
+     *
+     * @param priority Priority class, null for the normal priority.
+     * @return 0 for the normal priority, the class ordinal + 1 otherwise.
+     */
+    static int encode(final ConstructionPriority priority) {
+        return priority == null || priority == ConstructionPriority.NORMAL ? 0 : priority.ordinal() + 1;
+    }
+
+    /**
+     * Decode a record priority field.
+     *
+     * @param priority Priority field value.
+     * @return The priority class, normal for 0 or an unknown value.
+     */
+    static ConstructionPriority decode(final int priority) {
+        ConstructionPriority[] values = ConstructionPriority.values();
+        return priority <= 0 || priority > values.length ? ConstructionPriority.NORMAL : values[priority - 1];
+    }
+
+    static long pack(final float high, final float low) {
+        return ((long) Float.floatToRawIntBits(high) << 32) | (Float.floatToRawIntBits(low) & 0xFFFFFFFFL);
+    }
+
+    static float high(final long packed) {
+        return Float.intBitsToFloat((int) (packed >>> 32));
+    }
+
+    static float low(final long packed) {
+        return Float.intBitsToFloat((int) packed);
+    }
+
+    private void record(final byte kind, final int type, final int owner, final int request, final int extra,
+                        final long entity, final long builder, final long value) {
+        this.record(kind, type, owner, request, extra, 0, entity, builder, value);
+    }
+
+    private void record(final byte kind, final int type, final int owner, final int request, final int extra, final int priority,
+                        final long entity, final long builder, final long value) {
+        if (this.batch.remaining() < RECORD_SIZE) {
+            try {
+                this.writeBatch();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        this.batch.put(kind).put((byte) 0).putShort((short) 0)
+                .putInt(type).putInt(owner).putInt(request).putInt(extra).putInt(priority)
+                .putLong(entity).putLong(builder).putLong(value);
+    }
+
+    private void writeBatch() throws IOException {
+        this.batch.flip();
+        while (this.batch.hasRemaining()) {
+            this.channel.write(this.batch);
+        }
+        this.batch.clear();
+    }
+}
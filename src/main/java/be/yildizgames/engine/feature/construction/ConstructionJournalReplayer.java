@@ -0,0 +1,266 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.geometry.Point3D;
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.EntityToCreate;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replay the commands of a construction journal on a construction manager and a construction queue manager,
+ * to rebuild the state of a crashed session or to drive a load test with a recorded session.
+ * The frames are replayed with their recorded time, so the completions happen in the same frames as when recorded.
+ * The managers must not have listeners issuing commands, like a ConstructionManagerFiller, as those commands are already in the journal.
+ * @param <E> EntityInConstruction real type.
+ * @param <R> EntityConstructionStatus real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class ConstructionJournalReplayer<E extends EntityInConstruction, R extends EntityConstructionStatus> {
+
+    /**
+     * Number of records read from the file at once.
+     */
+    private static final int READ_RECORDS = 1024;
+
+    private final ConstructionManager<?, E, ?> manager;
+
+    /**
+     * Queue manager receiving the queue commands, null to ignore them.
+     */
+    private final ConstructionQueueManager<R, E> queueManager;
+
+    private final ConstructionStateFactory<E, R> factory;
+
+    /**
+     * Replayed entities in construction, by entity id value, to find them when canceled.
+     */
+    private final LongObjectMap<WaitingEntity<E>> inConstruction = new LongObjectMap<>();
+
+    /**
+     * Queue being rebuilt from QUEUE_ELEMENT records, null if none.
+     */
+    private ConstructionQueue<R> updatedQueue;
+
+    /**
+     * Number of QUEUE_ELEMENT records left for the updated queue.
+     */
+    private long updatedQueueLeft;
+
+    /**
+     * Priorities of the elements of the queue being rebuilt, in queue order.
+     */
+    private ConstructionPriority[] updatedPriorities;
+
+    private long records;
+
+    /**
+     * Number of queue commands rejected by the queue manager.
+     */
+    private long rejected;
+
+    private long frames;
+
+    /**
+     * Create a new instance ignoring the queue commands.
+     *
+     * @param manager Construction manager receiving the commands.
+     * @param factory Factory to build the replayed entities.
+     * @throws NullPointerException If a parameter is null.
+     */
+    public ConstructionJournalReplayer(final ConstructionManager<?, E, ?> manager, final ConstructionStateFactory<E, R> factory) {
+        this(manager, null, factory);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param manager Construction manager receiving the commands.
+     * @param queueManager Queue manager receiving the queue commands, null to ignore them.
+     * @param factory Factory to build the replayed entities.
+     * @throws NullPointerException If manager or factory is null.
+     */
+    public ConstructionJournalReplayer(final ConstructionManager<?, E, ?> manager, final ConstructionQueueManager<R, E> queueManager, final ConstructionStateFactory<E, R> factory) {
+        super();
+        assert manager != null;
+        assert factory != null;
+        this.manager = manager;
+        this.queueManager = queueManager;
+        this.factory = factory;
+    }
+
+    /**
+     * Replay all the records of a journal file, must be called from the frame thread.
+     * A partially written record at the end of the file is ignored.
+     *
+     * @param file Journal to replay.
+     * @return The number of frames replayed.
+     * @throws IOException If the file cannot be read or is not a journal.
+     */
+    //@Requires file != null
+    public long replay(final Path file) throws IOException {
+        long frameStart = this.frames;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ConstructionJournal.checkHeader(channel, file);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(READ_RECORDS * ConstructionJournal.RECORD_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                while (buffer.remaining() >= ConstructionJournal.RECORD_SIZE) {
+                    this.replay(buffer);
+                }
+                buffer.compact();
+            }
+        }
+        return this.frames - frameStart;
+    }
+
+    /**
+     * @return The number of records replayed since the creation of this object.
+     */
+    public long getReplayedRecords() {
+        return this.records;
+    }
+
+    /**
+     * A queue command is rejected when the replayed queue cannot hold it, which only happens with a journal recorded
+     * before the rejected commands stopped being recorded, or replayed on builders with smaller queues.
+     *
+     * @return The number of queue commands rejected since the creation of this object, they are skipped and the replay goes on.
+     */
+    public long getRejectedCommands() {
+        return this.rejected;
+    }
+
+    /**
+     * @return The number of frames replayed since the creation of this object.
+     */
+    public long getReplayedFrames() {
+        return this.frames;
+    }
+
+    private void replay(final ByteBuffer buffer) {
+        byte kind = buffer.get();
+        buffer.position(buffer.position() + 3);
+        int type = buffer.getInt();
+        int owner = buffer.getInt();
+        int request = buffer.getInt();
+        int extra = buffer.getInt();
+        int priority = buffer.getInt();
+        long entity = buffer.getLong();
+        long builder = buffer.getLong();
+        long value = buffer.getLong();
+        this.records++;
+        switch (kind) {
+            case ConstructionJournal.FRAME:
+                this.frames++;
+                this.manager.frameEnded(value);
+                break;
+            case ConstructionJournal.ADD:
+                WaitingEntity<E> w = new WaitingEntity<>(
+                        this.factory.createEntity(type, EntityId.valueOf(entity), PlayerId.valueOf(owner)),
+                        this.factory.create(extra, request, value),
+                        EntityId.valueOf(builder));
+                this.inConstruction.put(entity, w);
+                this.manager.addEntityToBuild(w);
+                break;
+            case ConstructionJournal.CANCEL:
+                WaitingEntity<E> canceled = this.inConstruction.remove(entity);
+                if (canceled != null) {
+                    this.manager.cancel(canceled);
+                }
+                break;
+            case ConstructionJournal.COMPLETE:
+                this.inConstruction.remove(entity);
+                break;
+            case ConstructionJournal.BUILT:
+                this.manager.createEntity(this.factory.createEntity(type, EntityId.valueOf(entity), PlayerId.valueOf(owner)), EntityId.valueOf(builder), request);
+                break;
+            case ConstructionJournal.CREATE:
+                this.manager.createEntity(new EntityToCreate(
+                        this.factory.getType(type),
+                        Point3D.valueOf(ConstructionJournal.high(entity), ConstructionJournal.low(entity), ConstructionJournal.high(builder)),
+                        Point3D.valueOf(ConstructionJournal.low(builder), ConstructionJournal.high(value), ConstructionJournal.low(value)),
+                        PlayerId.valueOf(owner)));
+                break;
+            case ConstructionJournal.QUEUE_ADD:
+                if (this.queueManager != null) {
+                    try {
+                        this.queueManager.addEntity(PlayerId.valueOf(owner), EntityId.valueOf(builder), this.factory.create(extra, request, value),
+                                ConstructionJournal.decode(priority));
+                    } catch (ConstructionQueueFullException e) {
+                        this.rejected++;
+                    }
+                }
+                break;
+            case ConstructionJournal.QUEUE_CANCEL:
+                if (this.queueManager != null) {
+                    this.queueManager.cancel(PlayerId.valueOf(owner), request);
+                }
+                break;
+            case ConstructionJournal.QUEUE_UPDATE:
+                this.updatedQueue = new ConstructionQueue<>(EntityId.valueOf(builder), (int) Math.min(value, Integer.MAX_VALUE));
+                this.updatedQueueLeft = value;
+                this.updatedPriorities = new ConstructionPriority[(int) Math.min(value, Integer.MAX_VALUE)];
+                this.completeUpdate();
+                break;
+            case ConstructionJournal.QUEUE_ELEMENT:
+                if (this.updatedQueue != null) {
+                    this.updatedPriorities[this.updatedQueue.getList().size()] = ConstructionJournal.decode(priority);
+                    this.updatedQueue.add(this.factory.create(extra, request, value));
+                    this.updatedQueueLeft--;
+                    this.completeUpdate();
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown journal record kind: " + kind);
+        }
+    }
+
+    /**
+     * Send the updated queue to the queue manager once all its elements are read.
+     */
+    private void completeUpdate() {
+        if (this.updatedQueueLeft == 0) {
+            if (this.queueManager != null) {
+                try {
+                    this.queueManager.update(this.updatedQueue, this.updatedPriorities);
+                } catch (ConstructionQueueFullException e) {
+                    this.rejected++;
+                }
+            }
+            this.updatedQueue = null;
+            this.updatedPriorities = null;
+        }
+    }
+}
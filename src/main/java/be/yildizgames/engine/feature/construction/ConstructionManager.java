@@ -32,14 +32,27 @@ import be.yildizgames.engine.feature.entity.Entity;
 import be.yildizgames.engine.feature.entity.EntityCreator;
 import be.yildizgames.engine.feature.entity.EntityInConstruction;
 import be.yildizgames.engine.feature.entity.EntityToCreate;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Check all builder List and execute their build method. Primary task is Call all builder to create their units, if they don't have anything to create, they are removed from the builder list.
+ * When the scheduler retains the scheduled entities, the waiting entities provided back, to the completion process and by getEntityToBuildList,
+ * are the instances added with addEntityToBuild. When it does not, like the OffHeapConstructionScheduler, they are new instances materialized
+ * from the stored state on every call, so the listeners and callers must identify a waiting entity by its entity id, not by instance.
  *
  * @author Grégory Van den Borre
  */
@@ -48,9 +61,35 @@ public class ConstructionManager<T extends Entity, E extends EntityInConstructio
     private static final System.Logger LOGGER = System.getLogger(ConstructionManager.class.getName());
 
     /**
-     * List of entities waiting to be build.
+     * Decide when the entities waiting to be build are completed.
      */
-    private final List<WaitingEntity<E>> entityToBuildList = new ArrayList<>();
+    private final ConstructionScheduler<E> scheduler;
+
+    /**
+     * Called by the scheduler for every completed entity.
+     */
+    private final Consumer<WaitingEntity<E>> completion = this::complete;
+
+    /**
+     * Entities waiting to be build, by owner, in no particular order, not used if the scheduler does not retain them.
+     * A player without any waiting entity is removed.
+     */
+    private final Map<PlayerId, List<WaitingEntity<E>>> entityToBuildByPlayer = new HashMap<>();
+
+    /**
+     * Read only views on the entities waiting to be build, by owner.
+     */
+    private final Map<PlayerId, List<WaitingEntity>> entityToBuildByPlayerView = new HashMap<>();
+
+    /**
+     * Position of every indexed entity in its owner list, by instance, so an entity is removed in constant time and never indexed twice.
+     */
+    private final Map<WaitingEntity<E>, IndexEntry<E>> indexEntries = new IdentityHashMap<>();
+
+    /**
+     * Index entries no longer used, reused for the next indexed entities.
+     */
+    private final Deque<IndexEntry<E>> freeIndexEntries = new ArrayDeque<>();
 
     /**
      * Factory to build the entities.
@@ -62,9 +101,92 @@ public class ConstructionManager<T extends Entity, E extends EntityInConstructio
      */
     private final List<ConstructionListener> listenerList = new ArrayList<>();
 
+    /**
+     * Asynchronous wrappers created by this manager for the demoted listeners, owned and closed by this manager.
+     */
+    private final List<AsyncConstructionListener<E>> demotedList = new ArrayList<>();
+
+    /**
+     * Listener to notify once per frame with all the completed constructions.
+     */
+    private final List<ConstructionBatchListener> batchListenerList = new ArrayList<>();
+
+    /**
+     * Constructions completed since the last batch notification.
+     */
+    private final CompletionBatch completionBatch = new CompletionBatch();
+
     private final EntityCreator creator;
 
-    private List<EntityToCreate> entityToCreateList = new ArrayList<>();
+    /**
+     * Entities to create, drained at the end of every frame.
+     */
+    private final EntityCreationPipeline entityToCreateList;
+
+    /**
+     * Called by the pipeline for every entity to create.
+     */
+    private final Consumer<EntityToCreate> creation;
+
+    /**
+     * Journal recording the commands, null if none.
+     */
+    private volatile ConstructionJournal journal;
+
+    /**
+     * Called by the pipeline for every entity to create when the creator is called asynchronously.
+     */
+    private final Consumer<EntityToCreate> asyncCreation = this::createAsync;
+
+    /**
+     * Completed constructions waiting for a free slot to be materialized, in completion order.
+     */
+    private final Deque<Materialization<T, E>> toMaterialize = new ArrayDeque<>();
+
+    /**
+     * Constructions being materialized, in completion order.
+     */
+    private final Deque<Materialization<T, E>> materializing = new ArrayDeque<>();
+
+    /**
+     * Number of creator calls running.
+     */
+    private final AtomicInteger creating = new AtomicInteger();
+
+    /**
+     * Executor calling the factory and the creator, null to call them in the frame.
+     */
+    private Executor executor;
+
+    /**
+     * Maximum number of factory and creator calls running at the same time.
+     */
+    private int maxInFlight;
+
+    /**
+     * Measures of the frames and listeners.
+     */
+    private ConstructionMetrics metrics = ConstructionMetrics.NONE;
+
+    /**
+     * Maximum notification time of the listeners, null if not checked.
+     */
+    private ListenerBudget budget;
+
+    /**
+     * Number of entities waiting to be built.
+     */
+    private int waiting;
+
+    /**
+     * Number of constructions completed since the last frame measure.
+     */
+    private int completed;
+
+    /**
+     * Number of constructions canceled since the last frame measure.
+     */
+    private int canceled;
 
     /**
      * Create a new BuilderManager.
@@ -73,56 +195,391 @@ public class ConstructionManager<T extends Entity, E extends EntityInConstructio
      * @param creator The class creating the entities in the system.
      */
     public ConstructionManager(FrameManager frame, EntityFactory<T, E> factory, EntityCreator creator) {
+        this(frame, factory, creator, new LinearConstructionScheduler<>());
+    }
+
+    /**
+     * Create a new BuilderManager.
+     * @param frame Frame manager listening to this object.
+     * @param factory Entity factory to materialize entities.
+     * @param creator The class creating the entities in the system.
+     * @param scheduler Strategy deciding when the waiting entities are completed.
+     */
+    public ConstructionManager(FrameManager frame, EntityFactory<T, E> factory, EntityCreator creator, ConstructionScheduler<E> scheduler) {
+        this(frame, factory, creator, scheduler, new EntityCreationPipeline());
+    }
+
+    /**
+     * Create a new BuilderManager.
+     * @param frame Frame manager listening to this object.
+     * @param factory Entity factory to materialize entities.
+     * @param creator The class creating the entities in the system.
+     * @param scheduler Strategy deciding when the waiting entities are completed.
+     * @param pipeline Pipeline holding the entities to create, with its capacity and per frame budget.
+     */
+    public ConstructionManager(FrameManager frame, EntityFactory<T, E> factory, EntityCreator creator, ConstructionScheduler<E> scheduler, EntityCreationPipeline pipeline) {
+        this(factory, creator, scheduler, pipeline);
+        frame.addFrameListener(this);
+    }
+
+    /**
+     * Create a new BuilderManager, not registered to any frame manager.
+     * @param factory Entity factory to materialize entities.
+     * @param creator The class creating the entities in the system.
+     * @param scheduler Strategy deciding when the waiting entities are completed.
+     */
+    ConstructionManager(EntityFactory<T, E> factory, EntityCreator creator, ConstructionScheduler<E> scheduler) {
+        this(factory, creator, scheduler, new EntityCreationPipeline());
+    }
+
+    /**
+     * Create a new BuilderManager, not registered to any frame manager.
+     * @param factory Entity factory to materialize entities.
+     * @param creator The class creating the entities in the system.
+     * @param scheduler Strategy deciding when the waiting entities are completed.
+     * @param pipeline Pipeline holding the entities to create.
+     */
+    ConstructionManager(EntityFactory<T, E> factory, EntityCreator creator, ConstructionScheduler<E> scheduler, EntityCreationPipeline pipeline) {
         super();
+        assert scheduler != null;
+        assert pipeline != null;
         this.associatedFactory = factory;
         this.creator = creator;
-        frame.addFrameListener(this);
+        this.scheduler = scheduler;
+        this.entityToCreateList = pipeline;
+        this.creation = e -> this.creator.create(e);
     }
 
     @Override
     public void createEntity(final E entity, final EntityId builderId, final int index) {
+        ConstructionJournal j = this.journal;
+        if (j != null) {
+            j.built(entity, builderId, index);
+        }
+        if (this.executor != null) {
+            this.toMaterialize.add(new Materialization<>(new WaitingEntity<>(entity, new EntityConstructionStatus(entity.getType(), index, 0L), builderId)));
+            return;
+        }
+        this.materialize(entity, builderId, index);
+    }
+
+    /**
+     * Materialize an entity in the frame and notify the listeners.
+     *
+     * @param entity Entity to materialize.
+     * @param builderId Id of the builder of the entity.
+     * @param index Index of the construction request.
+     */
+    private void materialize(final E entity, final EntityId builderId, final int index) {
         T buildEntity = this.associatedFactory.createEntity(entity);
-        LOGGER.log(System.Logger.Level.DEBUG, "Entity built " + entity.getId() + ":" + entity.getType().name);
-        this.listenerList.forEach(l -> l.entityComplete(buildEntity.getId(), buildEntity.getOwner(), buildEntity.getType(), builderId, index));
+        if (LOGGER.isLoggable(System.Logger.Level.DEBUG)) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Entity built " + entity.getId() + ":" + entity.getType().name);
+        }
+        this.notifyComplete(buildEntity, builderId, index);
     }
 
+    /**
+     * Add an entity to create at the end of the frame, can be called from any thread.
+     *
+     * @param entity Entity to create.
+     * @throws EntityCreationPipelineFullException If too many entities are waiting to be created.
+     */
     @Override
     public void createEntity(final EntityToCreate entity) {
         this.entityToCreateList.add(entity);
+        ConstructionJournal j = this.journal;
+        if (j != null) {
+            j.create(entity);
+        }
+    }
+
+    @Override
+    public void addEntityToBuild(final WaitingEntity<E> w) {
+        assert w != null;
+        ConstructionJournal j = this.journal;
+        if (j != null) {
+            j.add(w);
+        }
+        this.scheduler.schedule(w, w.representation.getTimeLeft());
+        this.index(w);
+        for (int i = 0; i < this.listenerList.size(); i++) {
+            this.listenerList.get(i).addEntityToCreate(w);
+        }
+    }
+
+    /**
+     * Add an entity to build restored from a saved state, the listeners are not notified and the journal does not record it.
+     *
+     * @param w Entity to build.
+     */
+    void restoreEntityToBuild(final WaitingEntity<E> w) {
+        assert w != null;
+        this.scheduler.schedule(w, w.representation.getTimeLeft());
+        this.index(w);
     }
 
     @Override
     public void cancel(final WaitingEntity w) {
-        if (this.entityToBuildList.remove(w)) {
-            this.listenerList.forEach(l -> l.entityConstructionCanceled(w));
+        if (this.scheduler.cancel(w)) {
+            ConstructionJournal j = this.journal;
+            if (j != null) {
+                j.cancel(w);
+            }
+            this.canceled++;
+            this.unindex(w);
+            for (int i = 0; i < this.listenerList.size(); i++) {
+                this.listenerList.get(i).entityConstructionCanceled(w);
+            }
         }
     }
 
     /**
      * Call the building logic for all builder in the list.
+     * Apart from the factory, creator and listeners, this method does not allocate, unless the factory and creator are called asynchronously.
      *
      * @param time Time since the last call.
      */
     @Override
     public boolean frameEnded(final long time) {
-        for (int i = 0; i < this.entityToBuildList.size(); i++) {
-            WaitingEntity<E> waitingEntity = this.entityToBuildList.get(i);
-            waitingEntity.representation.reduceTimeLeft(time);
-            if (waitingEntity.representation.isTimeElapsed()) {
-                T buildEntity = this.associatedFactory.createEntity(waitingEntity.entity);
-                LOGGER.log(System.Logger.Level.DEBUG, "Entity built " + waitingEntity.entity.getId());
-                this.listenerList.forEach(l -> l.entityComplete(buildEntity.getId(), buildEntity.getOwner(), buildEntity.getType(), waitingEntity.builderId, waitingEntity.representation.index));
-                this.entityToBuildList.remove(i);
-                i--;
-            }
+        long start = this.metrics == ConstructionMetrics.NONE ? 0 : System.nanoTime();
+        ConstructionJournal j = this.journal;
+        if (j != null) {
+            j.frame(time);
+        }
+        this.scheduler.advance(time, this.completion);
+        if (this.executor != null || !this.materializing.isEmpty()) {
+            this.dispatchMaterializations();
+            this.collectMaterializations();
+        }
+        this.flushBatch();
+        //FIXME missing listener call?
+        if (this.executor == null) {
+            this.entityToCreateList.drain(this.creation);
+        } else {
+            this.entityToCreateList.drain(this.asyncCreation, Math.max(0, this.maxInFlight - this.getInFlight()));
         }
-        while(!this.entityToCreateList.isEmpty()) {
-            this.creator.create(this.entityToCreateList.remove(0));
-            //FIXME missing listener call?
+        if (j != null) {
+            j.commit();
         }
+        if (this.metrics != ConstructionMetrics.NONE) {
+            this.metrics.frameEnded(System.nanoTime() - start, this.waiting, this.completed, this.canceled, this.entityToCreateList.getBacklog());
+        }
+        this.completed = 0;
+        this.canceled = 0;
         return true;
     }
 
+    /**
+     * Materialize an entity whose construction is complete and notify the listeners.
+     *
+     * @param waitingEntity Completed entity.
+     */
+    private void complete(final WaitingEntity<E> waitingEntity) {
+        ConstructionJournal j = this.journal;
+        if (j != null) {
+            E e = waitingEntity.entity;
+            j.complete(e.getId(), e.getOwner(), e.getType(), waitingEntity.builderId, waitingEntity.representation.index);
+        }
+        this.unindex(waitingEntity);
+        this.completed++;
+        if (this.executor != null) {
+            this.toMaterialize.add(new Materialization<>(waitingEntity));
+            return;
+        }
+        T buildEntity = this.associatedFactory.createEntity(waitingEntity.entity);
+        if (LOGGER.isLoggable(System.Logger.Level.DEBUG)) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Entity built " + waitingEntity.entity.getId());
+        }
+        this.notifyComplete(buildEntity, waitingEntity.builderId, waitingEntity.representation.index);
+    }
+
+    /**
+     * Notify the listeners about a built entity, and add it to the batch if any batch listener is registered.
+     * Called for every completion, does not allocate.
+     *
+     * @param buildEntity Built entity.
+     * @param builderId Id of the builder of the entity.
+     * @param index Index of the construction request.
+     */
+    private void notifyComplete(final T buildEntity, final EntityId builderId, final int index) {
+        if (this.metrics == ConstructionMetrics.NONE && this.budget == null) {
+            for (int i = 0; i < this.listenerList.size(); i++) {
+                this.listenerList.get(i).entityComplete(buildEntity.getId(), buildEntity.getOwner(), buildEntity.getType(), builderId, index);
+            }
+        } else {
+            for (int i = 0; i < this.listenerList.size(); i++) {
+                ConstructionListener listener = this.listenerList.get(i);
+                long start = System.nanoTime();
+                listener.entityComplete(buildEntity.getId(), buildEntity.getOwner(), buildEntity.getType(), builderId, index);
+                this.listenerNotified(i, listener, System.nanoTime() - start);
+            }
+        }
+        if (!this.batchListenerList.isEmpty()) {
+            this.completionBatch.add(buildEntity.getId(), buildEntity.getOwner(), buildEntity.getType(), builderId, index);
+        }
+    }
+
+    /**
+     * Start materializing the completed constructions, as long as the number of calls in flight is below the limit.
+     */
+    private void dispatchMaterializations() {
+        while (!this.toMaterialize.isEmpty() && this.getInFlight() < this.maxInFlight) {
+            Materialization<T, E> m = this.toMaterialize.poll();
+            m.result = CompletableFuture.supplyAsync(() -> this.associatedFactory.createEntity(m.waiting.entity), this.executor);
+            this.materializing.add(m);
+        }
+    }
+
+    /**
+     * Notify the materialized entities, in completion order: an entity is only notified once all the entities completed before are.
+     */
+    private void collectMaterializations() {
+        while (!this.materializing.isEmpty() && this.materializing.peek().result.isDone()) {
+            this.notifyMaterialized(this.materializing.poll());
+        }
+    }
+
+    /**
+     * Wait for all the constructions being materialized and notify them, in completion order.
+     */
+    private void awaitMaterializations() {
+        while (!this.materializing.isEmpty()) {
+            this.notifyMaterialized(this.materializing.poll());
+        }
+    }
+
+    /**
+     * Notify the listeners about a materialized entity, waiting for its materialization if still running.
+     * If the factory failed, the construction is notified as canceled, so the builder queues can move to their next request.
+     *
+     * @param m Materialization to notify.
+     */
+    private void notifyMaterialized(final Materialization<T, E> m) {
+        T buildEntity;
+        try {
+            buildEntity = m.result.join();
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.ERROR, "Entity materialization failed " + m.waiting.entity.getId(), e);
+            this.canceled++;
+            for (int i = 0; i < this.listenerList.size(); i++) {
+                this.listenerList.get(i).entityConstructionCanceled(m.waiting);
+            }
+            return;
+        }
+        if (LOGGER.isLoggable(System.Logger.Level.DEBUG)) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Entity built " + m.waiting.entity.getId());
+        }
+        this.notifyComplete(buildEntity, m.waiting.builderId, m.waiting.representation.index);
+    }
+
+    private void createAsync(final EntityToCreate entity) {
+        this.creating.incrementAndGet();
+        CompletableFuture.runAsync(() -> this.creator.create(entity), this.executor).whenComplete((r, e) -> {
+            this.creating.decrementAndGet();
+            if (e != null) {
+                LOGGER.log(System.Logger.Level.ERROR, "Entity creation failed", e);
+            }
+        });
+    }
+
+    private int getInFlight() {
+        return this.materializing.size() + this.creating.get();
+    }
+
+    /**
+     * Notify the batch listeners with all the constructions completed since the last call.
+     */
+    private void flushBatch() {
+        if (this.completionBatch.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < this.batchListenerList.size(); i++) {
+            ConstructionBatchListener listener = this.batchListenerList.get(i);
+            boolean timed = this.metrics != ConstructionMetrics.NONE || this.budget != null;
+            long start = timed ? System.nanoTime() : 0;
+            listener.entitiesComplete(this.completionBatch);
+            if (timed) {
+                long duration = System.nanoTime() - start;
+                this.metrics.listenerNotified(listener, duration);
+                if (this.budget != null) {
+                    this.budget.isExceeded(listener, duration);
+                }
+            }
+        }
+        this.completionBatch.clear();
+    }
+
+    /**
+     * Measure a listener notification, and demote the listener to an asynchronous dispatch if it went over the budget and is a DemotableListener.
+     * The asynchronous listeners are not checked, their notification time is only the time to submit it.
+     *
+     * @param position Position of the listener in the list.
+     * @param listener Notified listener.
+     * @param duration Duration of the notification, in nanoseconds.
+     */
+    @SuppressWarnings("unchecked")
+    private void listenerNotified(final int position, final ConstructionListener listener, final long duration) {
+        this.metrics.listenerNotified(listener, duration);
+        if (this.budget != null && !(listener instanceof AsyncConstructionListener) && this.budget.isExceeded(listener, duration)
+                && listener instanceof DemotableListener) {
+            AsyncConstructionListener<E> demoted = new AsyncConstructionListener<E>(listener, this.budget.getDemoteCapacity());
+            this.demotedList.add(demoted);
+            this.listenerList.set(position, demoted);
+        }
+    }
+
+    private void index(final WaitingEntity<E> w) {
+        if (!this.scheduler.isRetainingEntities()) {
+            this.waiting++;
+            return;
+        }
+        if (this.indexEntries.containsKey(w)) {
+            return;
+        }
+        PlayerId owner = w.entity.getOwner();
+        List<WaitingEntity<E>> entities = this.entityToBuildByPlayer.get(owner);
+        if (entities == null) {
+            entities = new ArrayList<>();
+            this.entityToBuildByPlayer.put(owner, entities);
+            this.entityToBuildByPlayerView.put(owner, Collections.unmodifiableList(entities));
+        }
+        IndexEntry<E> entry = this.freeIndexEntries.poll();
+        if (entry == null) {
+            entry = new IndexEntry<>();
+        }
+        entry.owner = owner;
+        entry.entities = entities;
+        entry.position = entities.size();
+        entities.add(w);
+        this.indexEntries.put(w, entry);
+        this.waiting++;
+    }
+
+    private void unindex(final WaitingEntity<E> w) {
+        if (!this.scheduler.isRetainingEntities()) {
+            this.waiting--;
+            return;
+        }
+        IndexEntry<E> entry = this.indexEntries.remove(w);
+        if (entry == null) {
+            return;
+        }
+        List<WaitingEntity<E>> entities = entry.entities;
+        WaitingEntity<E> last = entities.remove(entities.size() - 1);
+        if (last != w) {
+            entities.set(entry.position, last);
+            this.indexEntries.get(last).position = entry.position;
+        }
+        if (entities.isEmpty()) {
+            this.entityToBuildByPlayer.remove(entry.owner);
+            this.entityToBuildByPlayerView.remove(entry.owner);
+        }
+        entry.owner = null;
+        entry.entities = null;
+        this.freeIndexEntries.push(entry);
+        this.waiting--;
+    }
+
     @Override
     public void willNotify(final ConstructionListener... listeners) {
         if (listeners != null) {
@@ -136,18 +593,209 @@ public class ConstructionManager<T extends Entity, E extends EntityInConstructio
      * @param listener Listener to remove.
      */
     public void removeListener(final ConstructionListener listener) {
-        this.listenerList.remove(listener);
+        if (this.listenerList.remove(listener)) {
+            return;
+        }
+        for (int i = 0; i < this.listenerList.size(); i++) {
+            ConstructionListener l = this.listenerList.get(i);
+            if (l instanceof AsyncConstructionListener && ((AsyncConstructionListener) l).getDelegate() == listener) {
+                this.listenerList.remove(i);
+                this.demotedList.remove(l);
+                ((AsyncConstructionListener) l).close();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Close the asynchronous wrappers this manager created for the demoted listeners, and wait for their pending notifications to be forwarded.
+     * The wrappers created by this manager are owned by it, and their threads only stop when the listener is removed or when this method is called,
+     * so it must be called on shutdown, from the frame thread, once the frames are stopped.
+     * The demoted listeners are put back in place of their wrapper and notified on the frame thread again.
+     * The AsyncConstructionListener registered by the caller are owned by the caller and are not closed.
+     *
+     * @param timeout Maximum time to wait for each wrapper, in milliseconds.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void closeDemotedListeners(final long timeout) throws InterruptedException {
+        for (int i = 0; i < this.demotedList.size(); i++) {
+            AsyncConstructionListener<E> demoted = this.demotedList.get(i);
+            int position = this.listenerList.indexOf(demoted);
+            if (position != -1) {
+                this.listenerList.set(position, demoted.getDelegate());
+            }
+            demoted.close();
+        }
+        try {
+            for (int i = 0; i < this.demotedList.size(); i++) {
+                this.demotedList.get(i).awaitTermination(timeout);
+            }
+        } finally {
+            this.demotedList.clear();
+        }
+    }
+
+    /**
+     * Add one or several listener to notify once per frame with all the constructions completed during that frame.
+     * Entities built without waiting time are provided with the next frame batch.
+     *
+     * @param listeners Listeners to notify.
+     */
+    public void willNotifyBatch(final ConstructionBatchListener... listeners) {
+        if (listeners != null) {
+            Collections.addAll(this.batchListenerList, listeners);
+        }
+    }
+
+    /**
+     * Remove a listener to notify with the completed constructions batch.
+     *
+     * @param listener Listener to remove.
+     */
+    public void removeBatchListener(final ConstructionBatchListener listener) {
+        this.batchListenerList.remove(listener);
+        if (this.batchListenerList.isEmpty()) {
+            this.completionBatch.clear();
+        }
+    }
+
+    /**
+     * Call the factory and the creator on an executor instead of the frame thread, for factories and creators doing slow work like persistence.
+     * The completed constructions are materialized in the background and notified at the end of a next frame,
+     * in the order the constructions completed, on the frame thread.
+     * If the factory fails for an entity, the failure is logged and the construction is notified as canceled instead of complete.
+     * The completed constructions and the entities to create wait when too many calls are in flight.
+     * Any executor can be used, a virtual thread per task executor is a good fit on runtimes providing it.
+     *
+     * @param executor Executor calling the factory and the creator, null to call them in the frame again,
+     *                 the constructions being materialized are then awaited and notified, and the completed constructions
+     *                 still waiting are materialized immediately, all in completion order.
+     * @param maxInFlight Maximum number of factory and creator calls running at the same time, ignored if executor is null.
+     */
+    public void setAsync(final Executor executor, final int maxInFlight) {
+        assert executor == null || maxInFlight > 0;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        if (executor == null) {
+            this.awaitMaterializations();
+            while (!this.toMaterialize.isEmpty()) {
+                WaitingEntity<E> w = this.toMaterialize.poll().waiting;
+                this.materialize(w.entity, w.builderId, w.representation.index);
+            }
+        }
+    }
+
+    /**
+     * @return The number of completed constructions not yet notified because they are waiting or being materialized.
+     */
+    public int getMaterializationBacklog() {
+        return this.toMaterialize.size() + this.materializing.size();
+    }
+
+    /**
+     * Measure the frames and the listeners notification time.
+     *
+     * @param metrics Metrics receiving the measures, ConstructionMetrics.NONE to stop measuring.
+     * @throws NullPointerException If metrics is null.
+     */
+    public void setMetrics(final ConstructionMetrics metrics) {
+        assert metrics != null;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Set the maximum time a listener can take to be notified of a completed construction.
+     * A listener going over it is logged and flagged as slow, and if a demote capacity is provided and the listener is a DemotableListener,
+     * it is then notified on its own thread through an AsyncConstructionListener with that buffer capacity,
+     * owned by this manager and closed by removeListener or closeDemotedListeners.
+     * The other listeners and the batch listeners are only flagged.
+     * To dispatch a listener asynchronously from the start, register it wrapped in an AsyncConstructionListener.
+     *
+     * @param maxDuration Maximum notification time, in nanoseconds, 0 to stop checking.
+     * @param demoteCapacity Buffer capacity of the demoted listeners, 0 to only flag them.
+     */
+    public void setListenerBudget(final long maxDuration, final int demoteCapacity) {
+        assert maxDuration >= 0;
+        this.budget = maxDuration == 0 ? null : new ListenerBudget(maxDuration, demoteCapacity);
+    }
+
+    /**
+     * @return The listeners which went over the budget at least once since the budget was set.
+     */
+    public Set<Object> getSlowListeners() {
+        return this.budget == null ? Collections.emptySet() : this.budget.getSlowListeners();
+    }
+
+    /**
+     * Record the commands received by this manager in a journal, to replay them with a ConstructionJournalReplayer.
+     * The journal is committed at the end of every frame.
+     *
+     * @param journal Journal to use, null to stop recording.
+     */
+    public void setJournal(final ConstructionJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return The pipeline holding the entities to create, to check its backlog or offer entities without failing when full.
+     */
+    public EntityCreationPipeline getEntityToCreatePipeline() {
+        return this.entityToCreateList;
     }
 
     @Override
     public List<WaitingEntity> getEntityToBuildList() {
-        return Collections.unmodifiableList(this.entityToBuildList);
+        return Collections.unmodifiableList(this.scheduler.getScheduled());
     }
 
     @Override
     public List<WaitingEntity> getEntityToBuildList(final PlayerId player) {
-        return this.entityToBuildList.stream()
-                .filter(w -> w.isOwned(player))
-                .collect(Collectors.toList());
+        assert player != null;
+        if (!this.scheduler.isRetainingEntities()) {
+            return Collections.unmodifiableList(this.scheduler.getScheduled(player));
+        }
+        List<WaitingEntity<E>> entities = this.entityToBuildByPlayer.get(player);
+        if (entities == null) {
+            return Collections.emptyList();
+        }
+        for (int i = 0; i < entities.size(); i++) {
+            this.scheduler.synchronize(entities.get(i));
+        }
+        return this.entityToBuildByPlayerView.get(player);
+    }
+
+    /**
+     * Position of an entity in the list of its owner.
+     * @param <E> EntityInConstruction real type.
+     */
+    private static final class IndexEntry<E extends EntityInConstruction> {
+
+        private PlayerId owner;
+
+        private List<WaitingEntity<E>> entities;
+
+        private int position;
+    }
+
+    /**
+     * A completed construction to materialize asynchronously.
+     * @param <T> Entity type.
+     * @param <E> EntityInConstruction real type.
+     */
+    private static final class Materialization<T extends Entity, E extends EntityInConstruction> {
+
+        /**
+         * Completed construction.
+         */
+        private final WaitingEntity<E> waiting;
+
+        /**
+         * Materialized entity, null until dispatched.
+         */
+        private CompletableFuture<T> result;
+
+        private Materialization(final WaitingEntity<E> waiting) {
+            this.waiting = waiting;
+        }
     }
 }
@@ -34,23 +34,27 @@ import java.util.Optional;
 
 /**
  * This class fill the construction manager with requests coming from the queue manager.
+ * If the creation pipeline of the manager is full, the entity is not created and a warning is logged,
+ * the other queue listeners are still notified, the refused entities are counted by EntityCreationPipeline.getRejected.
  *
  * @author Grégory Van den Borre
  */
 public class ConstructionManagerFiller implements ConstructionQueueListener {
 
+    private static final System.Logger LOGGER = System.getLogger(ConstructionManagerFiller.class.getName());
+
     /**
      * Manager responsible to build entities.
      */
     private final ConstructionManager manager;
 
-    private final BuilderManager builderManager;
+    private final AbstractBuilderManager builderManager;
 
     /**
      * Create a new instance filler.
      * @param manager Manager responsible to build entities.
      */
-    public ConstructionManagerFiller(BuilderManager builderManager, ConstructionManager manager) {
+    public ConstructionManagerFiller(AbstractBuilderManager builderManager, ConstructionManager manager) {
         super();
         this.manager = manager;
         this.builderManager = builderManager;
@@ -71,7 +75,11 @@ public class ConstructionManagerFiller implements ConstructionQueueListener {
                     b.getBuildPosition(),
                     Point3D.BASE_DIRECTION,
                     p);
-            this.manager.createEntity(etc);
+            try {
+                this.manager.createEntity(etc);
+            } catch (EntityCreationPipelineFullException e) {
+                LOGGER.log(System.Logger.Level.WARNING, "Entity creation pipeline full, entity not created for builder " + builderId);
+            }
         });
     }
 }
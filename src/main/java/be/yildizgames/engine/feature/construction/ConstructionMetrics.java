@@ -0,0 +1,74 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+
+/**
+ * Receive the measures of the construction managers, called on the frame thread.
+ * All methods do nothing by default, an implementation only overrides the measures it is interested in.
+ *
+ * @author Grégory Van den Borre
+ */
+public interface ConstructionMetrics {
+
+    /**
+     * Metrics ignoring all measures, the managers skip the measurements when using it.
+     */
+    ConstructionMetrics NONE = new ConstructionMetrics() {};
+
+    /**
+     * Measures of a construction manager frame.
+     *
+     * @param duration Time spent in the frame, in nanoseconds.
+     * @param waiting Number of entities waiting to be built at the end of the frame.
+     * @param completed Number of constructions completed during the frame.
+     * @param canceled Number of constructions canceled since the previous frame.
+     * @param creationBacklog Number of entities waiting to be created at the end of the frame.
+     */
+    default void frameEnded(long duration, int waiting, int completed, int canceled, long creationBacklog) {
+        // Does nothing.
+    }
+
+    /**
+     * Depth of a builder queue after it changed.
+     *
+     * @param builder Id of the builder.
+     * @param depth Number of elements in the queue.
+     */
+    default void queueChanged(EntityId builder, int depth) {
+        // Does nothing.
+    }
+
+    /**
+     * Time spent by a listener to handle a notification.
+     *
+     * @param listener Notified listener.
+     * @param duration Time spent in the listener, in nanoseconds.
+     */
+    default void listenerNotified(Object listener, long duration) {
+        // Does nothing.
+    }
+}
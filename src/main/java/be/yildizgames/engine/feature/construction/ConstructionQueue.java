@@ -28,32 +28,125 @@ import be.yildizgames.common.model.EntityId;
 import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
 import be.yildizgames.engine.feature.entity.data.EntityType;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
 
 /**
  * Simple list of representation for entities in a queue waiting for construction.
+ * The elements are stored in slots linked in queue order, with an index from the request to its slot and a count per entity type,
+ * so removing a request and counting the entities of a type are done in constant time.
+ * The elements being built are always the first ones of the queue, followed by the pending ones,
+ * ordered by priority class, each class being kept as a linked segment with its last slot known,
+ * so adding an element with a priority, or moving it, is done in constant time.
  *
  * @author Grégory Van den Borre
  */
 public final class ConstructionQueue<R extends EntityConstructionStatus> {
 
     /**
-     * Wrapped list of elements,
+     * Value used for a missing slot.
      */
-    private final List<R> entities = new ArrayList<>();
+    private static final int NONE = -1;
+
+    /**
+     * Initial number of slots, if the max size is bigger.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    private static final ConstructionPriority[] CLASSES = ConstructionPriority.values();
 
     /**
      * Id of the builder holding this queue.
      */
     private final EntityId builderId;
 
+    /**
+     * Slot holding each request index.
+     */
+    private final IntIntMap slotByRequest = new IntIntMap();
+
+    /**
+     * Number of elements for each entity type.
+     */
+    private final Map<EntityType, Integer> countByType = new HashMap<>();
+
+    /**
+     * Read only view on the elements, in queue order.
+     */
+    private final List<R> view = new QueueView();
+
     /**
      * Queue maximum size.
      */
     private int maxSize = 0;
 
+    /**
+     * Element in each slot.
+     */
+    private Object[] elements;
+
+    /**
+     * Next slot in queue order, or next free slot for the unused slots.
+     */
+    private int[] next;
+
+    /**
+     * Previous slot in queue order.
+     */
+    private int[] previous;
+
+    /**
+     * <code>true</code> for the slots whose element is being built.
+     */
+    private boolean[] started;
+
+    /**
+     * Number of elements being built.
+     */
+    private int inProgress;
+
+    /**
+     * Priority class ordinal of the element in each slot.
+     */
+    private byte[] priorities;
+
+    /**
+     * Last pending slot of each priority class, NONE if the class has no pending element.
+     */
+    private final int[] classTails = new int[CLASSES.length];
+
+    private int head = NONE;
+
+    private int tail = NONE;
+
+    /**
+     * First slot of the free slots list.
+     */
+    private int free = NONE;
+
+    /**
+     * Number of slots used at least once.
+     */
+    private int used;
+
+    private int size;
+
+    /**
+     * <code>true</code> if a request index was added while already present in the queue.
+     */
+    private boolean duplicatedRequest;
+
+    /**
+     * Incremented on every change of the content.
+     */
+    private long version;
+
     /**
      * Create a new instance.
      *
@@ -66,53 +159,196 @@ public final class ConstructionQueue<R extends EntityConstructionStatus> {
         assert builderId != null;
         this.builderId = builderId;
         this.maxSize = maxSize;
+        int capacity = Math.max(1, Math.min(maxSize, INITIAL_CAPACITY));
+        this.elements = new Object[capacity];
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.started = new boolean[capacity];
+        this.priorities = new byte[capacity];
+        Arrays.fill(this.classTails, NONE);
     }
 
     /**
-     * Add a new entity to build in the queue.
+     * Add a new entity to build in the queue, with the normal priority.
      *
      * @param e Entity data.
      */
     public void add(final R e) {
-        if(this.entities.size() == this.maxSize) {
+        this.add(e, ConstructionPriority.NORMAL);
+    }
+
+    /**
+     * Add a new entity to build in the queue, after the pending entities with the same or a higher priority.
+     *
+     * @param e Entity data.
+     * @param priority Priority class of the entity.
+     * @throws ConstructionQueueFullException If the queue is full.
+     */
+    public void add(final R e, final ConstructionPriority priority) {
+        assert priority != null;
+        if(this.size == this.maxSize) {
             throw new ConstructionQueueFullException();
         }
-        this.entities.add(e);
+        int slot = this.insert(e, this.getClassAnchor(priority.ordinal()), priority);
+        this.classTails[priority.ordinal()] = slot;
+        this.version++;
+    }
+
+    /**
+     * Move a pending element before all the other pending elements, its priority becomes rush.
+     *
+     * @param request Unique index of the build request.
+     * @return <code>true</code> if the element was moved, false if it is not in the queue or already being built.
+     */
+    public boolean moveToFront(final int request) {
+        int slot = this.slotByRequest.get(request);
+        if (slot == IntIntMap.MISSING || this.started[slot]) {
+            return false;
+        }
+        this.leavePending(slot);
+        this.detach(slot);
+        this.priorities[slot] = (byte) ConstructionPriority.RUSH.ordinal();
+        this.attachAfter(this.getLastStarted(), slot);
+        if (this.classTails[ConstructionPriority.RUSH.ordinal()] == NONE) {
+            this.classTails[ConstructionPriority.RUSH.ordinal()] = slot;
+        }
+        this.version++;
+        return true;
+    }
+
+    /**
+     * Change the priority of an element, a pending element is moved after the pending elements with the same or a higher priority.
+     *
+     * @param request Unique index of the build request.
+     * @param priority New priority class.
+     * @return <code>true</code> if the element was found, false otherwise.
+     */
+    public boolean setPriority(final int request, final ConstructionPriority priority) {
+        assert priority != null;
+        int slot = this.slotByRequest.get(request);
+        if (slot == IntIntMap.MISSING) {
+            return false;
+        }
+        if (this.priorities[slot] == priority.ordinal()) {
+            return true;
+        }
+        if (this.started[slot]) {
+            this.priorities[slot] = (byte) priority.ordinal();
+            return true;
+        }
+        this.leavePending(slot);
+        this.detach(slot);
+        this.priorities[slot] = (byte) priority.ordinal();
+        this.attachAfter(this.getClassAnchor(priority.ordinal()), slot);
+        this.classTails[priority.ordinal()] = slot;
+        this.version++;
+        return true;
+    }
+
+    /**
+     * Retrieve the priority class of an element.
+     *
+     * @param request Unique index of the build request.
+     * @return The priority of the element, null if it is not in the queue.
+     */
+    public ConstructionPriority getPriority(final int request) {
+        int slot = this.slotByRequest.get(request);
+        return slot == IntIntMap.MISSING ? null : CLASSES[this.priorities[slot]];
     }
 
     public boolean isEmpty() {
-        return this.entities.isEmpty();
+        return this.size == 0;
     }
 
     /**
-     * Reset the construction list with new values.
+     * Reset the construction list with new values, all the elements get the normal priority.
+     * The elements whose request was being built stay in progress and are kept first, the others are pending, in the provided order.
      *
      * @param list New values to set in the list.
      * @throws ConstructionQueueFullException If the list size is bigger than the max size.
      */
+    @SuppressWarnings("unchecked")
     public void set(List<R> list) {
-        this.entities.clear();
-        if (list.size() > this.maxSize) {
+        Object[] values = list.toArray();
+        IntIntMap startedByRequest = new IntIntMap();
+        for (int slot = this.head; slot != NONE && this.started[slot]; slot = this.next[slot]) {
+            int request = this.elementAt(slot).index;
+            startedByRequest.put(request, Math.max(startedByRequest.get(request), 0) + 1);
+        }
+        this.clear();
+        this.version++;
+        if (values.length > this.maxSize) {
             throw new ConstructionQueueFullException();
         }
-        if (list.contains(null)) {
-            throw new NullPointerException("The list contains null values.");
+        for (Object value : values) {
+            if (value == null) {
+                throw new NullPointerException("The list contains null values.");
+            }
+        }
+        boolean[] kept = new boolean[values.length];
+        for (int i = 0; i < values.length && startedByRequest.size() > 0; i++) {
+            int request = ((R) values[i]).index;
+            int count = startedByRequest.get(request);
+            if (count != IntIntMap.MISSING) {
+                if (count == 1) {
+                    startedByRequest.remove(request, count);
+                } else {
+                    startedByRequest.put(request, count - 1);
+                }
+                int slot = this.insert((R) values[i], this.tail, ConstructionPriority.NORMAL);
+                this.started[slot] = true;
+                this.inProgress++;
+                kept[i] = true;
+            }
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (!kept[i]) {
+                this.insert((R) values[i], this.tail, ConstructionPriority.NORMAL);
+            }
         }
-        this.entities.addAll(list);
+        this.computeClassTails();
     }
 
+    /**
+     * @return A read only view of the queue content, in construction order.
+     */
     public List<R> getList() {
-        return Collections.unmodifiableList(entities);
+        return this.view;
     }
 
+    /**
+     * Remove an element from the queue.
+     *
+     * @param request Unique index of the build request.
+     * @return <code>true</code> if an element was removed, false otherwise.
+     */
     public boolean remove(int request) {
-        for (R e : this.entities) {
-            if (e.index == request) {
-                this.entities.remove(e);
-                return true;
-            }
+        int slot = this.slotByRequest.get(request);
+        if (slot == IntIntMap.MISSING) {
+            return false;
         }
-        return false;
+        this.unlink(slot);
+        this.version++;
+        return true;
+    }
+
+    /**
+     * Retrieve an element from its request index.
+     *
+     * @param request Unique index of the build request.
+     * @return The first element in queue order with that request index, or null if none.
+     */
+    R getByRequest(final int request) {
+        int slot = this.slotByRequest.get(request);
+        return slot == IntIntMap.MISSING ? null : this.elementAt(slot);
+    }
+
+    /**
+     * Remove all the elements.
+     */
+    void removeAll() {
+        this.clear();
+        this.version++;
     }
 
     /**
@@ -122,21 +358,368 @@ public final class ConstructionQueue<R extends EntityConstructionStatus> {
      * @return The number of entities in the list matching the type.
      */
     public int getNumberOfEntities(final EntityType type) {
-        int result = 0;
-        for (R c : this.entities) {
-            if (c.type.equals(type)) {
-                result++;
-            }
+        return this.countByType.getOrDefault(type, 0);
+    }
+
+    /**
+     * @return A read only view of the elements being built, in construction order.
+     */
+    public List<R> getInProgress() {
+        return this.view.subList(0, this.inProgress);
+    }
+
+    /**
+     * @return A read only view of the elements waiting for a free production slot, in construction order.
+     */
+    public List<R> getPending() {
+        return this.view.subList(this.inProgress, this.size);
+    }
+
+    /**
+     * Check if an element is being built.
+     *
+     * @param request Unique index of the build request.
+     * @return <code>true</code> if the first element with that request index is being built.
+     */
+    boolean isInProgress(final int request) {
+        int slot = this.slotByRequest.get(request);
+        return slot != IntIntMap.MISSING && this.started[slot];
+    }
+
+    /**
+     * Mark a pending element as being built, without changing the version, used when its construction is restored.
+     * The element is moved after the elements being built.
+     *
+     * @param request Unique index of the build request.
+     * @return <code>true</code> if the element was marked, false if it is not in the queue or already being built.
+     */
+    boolean markStarted(final int request) {
+        int slot = this.slotByRequest.get(request);
+        if (slot == IntIntMap.MISSING || this.started[slot]) {
+            return false;
         }
-        return result;
+        int lastStarted = this.getLastStarted();
+        this.leavePending(slot);
+        this.detach(slot);
+        this.attachAfter(lastStarted, slot);
+        this.started[slot] = true;
+        this.inProgress++;
+        return true;
+    }
+
+    /**
+     * @return The maximum number of elements in this queue.
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * @return The number of elements being built.
+     */
+    public int getInProgressSize() {
+        return this.inProgress;
+    }
+
+    /**
+     * Start building the first pending elements, until all the production slots are used or no element is pending.
+     *
+     * @param slots Number of production slots of the builder.
+     * @param action Called for every started element, in queue order.
+     * @return The number of started elements.
+     */
+    int promote(final int slots, final Consumer<R> action) {
+        int promoted = 0;
+        int slot = this.head;
+        while (slot != NONE && this.started[slot]) {
+            slot = this.next[slot];
+        }
+        while (slot != NONE && this.inProgress < slots) {
+            this.leavePending(slot);
+            this.started[slot] = true;
+            this.inProgress++;
+            promoted++;
+            int nextSlot = this.next[slot];
+            action.accept(this.elementAt(slot));
+            slot = nextSlot;
+        }
+        return promoted;
     }
 
     public boolean hasOnlyOneElement() {
-        return this.entities.size() == 1;
+        return this.size == 1;
     }
 
     public final EntityId getBuilderId() {
         return builderId;
     }
 
+    /**
+     * @return The version of the queue content, incremented on every change.
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Set the version, used when the content is copied from another queue.
+     *
+     * @param version Version of the copied queue.
+     */
+    void setVersion(final long version) {
+        this.version = version;
+    }
+
+    /**
+     * Copy this queue, the elements are not copied.
+     *
+     * @return A new queue with the same builder, maximum size, elements and version.
+     */
+    ConstructionQueue<R> copy() {
+        ConstructionQueue<R> copy = new ConstructionQueue<>(this.builderId, this.maxSize);
+        for (int slot = this.head; slot != NONE; slot = this.next[slot]) {
+            @SuppressWarnings("unchecked")
+            R e = (R) this.elements[slot];
+            copy.insert(e, copy.tail, CLASSES[this.priorities[slot]]);
+        }
+        for (int slot = copy.head; slot != NONE && copy.inProgress < this.inProgress; slot = copy.next[slot]) {
+            copy.started[slot] = true;
+            copy.inProgress++;
+        }
+        copy.computeClassTails();
+        copy.version = this.version;
+        return copy;
+    }
+
+    /**
+     * Store an element in a new slot, linked after another slot.
+     *
+     * @param e Element to store.
+     * @param anchor Slot to insert after, NONE to insert at the head.
+     * @param priority Priority class of the element.
+     * @return The slot of the element.
+     */
+    private int insert(final R e, final int anchor, final ConstructionPriority priority) {
+        int slot = this.allocateSlot();
+        this.elements[slot] = e;
+        this.priorities[slot] = (byte) priority.ordinal();
+        this.attachAfter(anchor, slot);
+        this.size++;
+        if (this.slotByRequest.putIfAbsent(e.index, slot) != IntIntMap.MISSING) {
+            this.duplicatedRequest = true;
+        }
+        this.countByType.merge(e.type, 1, Integer::sum);
+        return slot;
+    }
+
+    private void attachAfter(final int anchor, final int slot) {
+        int after = anchor == NONE ? this.head : this.next[anchor];
+        this.previous[slot] = anchor;
+        this.next[slot] = after;
+        if (anchor == NONE) {
+            this.head = slot;
+        } else {
+            this.next[anchor] = slot;
+        }
+        if (after == NONE) {
+            this.tail = slot;
+        } else {
+            this.previous[after] = slot;
+        }
+    }
+
+    private void detach(final int slot) {
+        int before = this.previous[slot];
+        int after = this.next[slot];
+        if (before == NONE) {
+            this.head = after;
+        } else {
+            this.next[before] = after;
+        }
+        if (after == NONE) {
+            this.tail = before;
+        } else {
+            this.previous[after] = before;
+        }
+    }
+
+    /**
+     * Update the class tails before a pending slot is removed, moved or started.
+     *
+     * @param slot Pending slot.
+     */
+    private void leavePending(final int slot) {
+        int priority = this.priorities[slot];
+        if (this.classTails[priority] == slot) {
+            int before = this.previous[slot];
+            boolean sameClass = before != NONE && !this.started[before] && this.priorities[before] == priority;
+            this.classTails[priority] = sameClass ? before : NONE;
+        }
+    }
+
+    /**
+     * Find the slot to insert a pending element of a priority class after.
+     *
+     * @param priority Ordinal of the priority class.
+     * @return The last pending slot with the same or a higher priority, or the last started slot, or NONE to insert at the head.
+     */
+    private int getClassAnchor(final int priority) {
+        for (int i = priority; i >= 0; i--) {
+            if (this.classTails[i] != NONE) {
+                return this.classTails[i];
+            }
+        }
+        return this.getLastStarted();
+    }
+
+    /**
+     * @return The slot of the last element being built, NONE if none.
+     */
+    private int getLastStarted() {
+        int last = NONE;
+        for (int slot = this.head; slot != NONE && this.started[slot]; slot = this.next[slot]) {
+            last = slot;
+        }
+        return last;
+    }
+
+    private void computeClassTails() {
+        Arrays.fill(this.classTails, NONE);
+        for (int slot = this.head; slot != NONE; slot = this.next[slot]) {
+            if (!this.started[slot]) {
+                this.classTails[this.priorities[slot]] = slot;
+            }
+        }
+    }
+
+    private void unlink(final int slot) {
+        R e = this.elementAt(slot);
+        if (this.started[slot]) {
+            this.started[slot] = false;
+            this.inProgress--;
+        } else {
+            this.leavePending(slot);
+        }
+        int after = this.next[slot];
+        this.detach(slot);
+        this.elements[slot] = null;
+        this.next[slot] = this.free;
+        this.free = slot;
+        this.size--;
+        if (this.size == 0) {
+            this.duplicatedRequest = false;
+        }
+        if (this.slotByRequest.remove(e.index, slot) && this.duplicatedRequest) {
+            this.indexNextOccurrence(after, e.index);
+        }
+        this.countByType.computeIfPresent(e.type, (t, c) -> c == 1 ? null : c - 1);
+    }
+
+    /**
+     * Index the first element with a given request index, starting from a slot.
+     *
+     * @param from Slot to start the search.
+     * @param request Request index to find.
+     */
+    private void indexNextOccurrence(final int from, final int request) {
+        for (int i = from; i != NONE; i = this.next[i]) {
+            if (this.elementAt(i).index == request) {
+                this.slotByRequest.put(request, i);
+                return;
+            }
+        }
+    }
+
+    private int allocateSlot() {
+        if (this.free != NONE) {
+            int slot = this.free;
+            this.free = this.next[slot];
+            return slot;
+        }
+        if (this.used == this.elements.length) {
+            int capacity = this.elements.length << 1;
+            this.elements = Arrays.copyOf(this.elements, capacity);
+            this.next = Arrays.copyOf(this.next, capacity);
+            this.previous = Arrays.copyOf(this.previous, capacity);
+            this.started = Arrays.copyOf(this.started, capacity);
+            this.priorities = Arrays.copyOf(this.priorities, capacity);
+        }
+        int slot = this.used;
+        this.used++;
+        return slot;
+    }
+
+    private void clear() {
+        Arrays.fill(this.elements, 0, this.used, null);
+        Arrays.fill(this.started, 0, this.used, false);
+        this.inProgress = 0;
+        Arrays.fill(this.classTails, NONE);
+        this.slotByRequest.clear();
+        this.countByType.clear();
+        this.head = NONE;
+        this.tail = NONE;
+        this.free = NONE;
+        this.used = 0;
+        this.size = 0;
+        this.duplicatedRequest = false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private R elementAt(final int slot) {
+        return (R) this.elements[slot];
+    }
+
+    /**
+     * Live read only list following the slots in queue order.
+     */
+    private final class QueueView extends AbstractList<R> {
+
+        @Override
+        public R get(final int position) {
+            if (position < 0 || position >= size) {
+                throw new IndexOutOfBoundsException("Index: " + position + ", Size: " + size);
+            }
+            int slot;
+            if (position < size >> 1) {
+                slot = head;
+                for (int i = 0; i < position; i++) {
+                    slot = next[slot];
+                }
+            } else {
+                slot = tail;
+                for (int i = size - 1; i > position; i--) {
+                    slot = previous[slot];
+                }
+            }
+            return elementAt(slot);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Iterator<R> iterator() {
+            return new Iterator<>() {
+
+                private int slot = head;
+
+                @Override
+                public boolean hasNext() {
+                    return this.slot != NONE;
+                }
+
+                @Override
+                public R next() {
+                    if (this.slot == NONE) {
+                        throw new NoSuchElementException();
+                    }
+                    R result = elementAt(this.slot);
+                    this.slot = next[this.slot];
+                    return result;
+                }
+            };
+        }
+    }
 }
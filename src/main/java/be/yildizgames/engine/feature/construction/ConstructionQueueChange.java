@@ -0,0 +1,190 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import java.util.Arrays;
+
+/**
+ * Changes of a construction queue since its last notification.
+ * Removed requests are to be applied first, then added requests are appended at the end of the queue, in order.
+ * When the queue was reset, the added and removed requests do not describe the new order and the queue content must be read entirely.
+ * The instance is reused and must not be kept after the notification.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class ConstructionQueueChange {
+
+    /**
+     * Added request indexes, in order.
+     */
+    private int[] added = new int[4];
+
+    private int addedSize;
+
+    /**
+     * Removed request indexes.
+     */
+    private int[] removed = new int[4];
+
+    private int removedSize;
+
+    /**
+     * <code>true</code> if the queue content was replaced.
+     */
+    private boolean reset;
+
+    /**
+     * Version of the queue when the first change was registered.
+     */
+    private long baseVersion;
+
+    ConstructionQueueChange() {
+        super();
+    }
+
+    /**
+     * @return The number of requests added.
+     */
+    public int getAddedSize() {
+        return this.addedSize;
+    }
+
+    /**
+     * @param i Position of the change.
+     * @return The index of the added request.
+     */
+    public int getAdded(final int i) {
+        if (i < 0 || i >= this.addedSize) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.addedSize);
+        }
+        return this.added[i];
+    }
+
+    /**
+     * @return The number of requests removed.
+     */
+    public int getRemovedSize() {
+        return this.removedSize;
+    }
+
+    /**
+     * @param i Position of the change.
+     * @return The index of the removed request.
+     */
+    public int getRemoved(final int i) {
+        if (i < 0 || i >= this.removedSize) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + this.removedSize);
+        }
+        return this.removed[i];
+    }
+
+    /**
+     * @return <code>true</code> if the queue content was replaced and must be read entirely.
+     */
+    public boolean isReset() {
+        return this.reset;
+    }
+
+    /**
+     * @return The version of the queue before those changes, the current version is provided by the queue.
+     */
+    public long getBaseVersion() {
+        return this.baseVersion;
+    }
+
+    void setBaseVersion(final long version) {
+        this.baseVersion = version;
+    }
+
+    /**
+     * Register a request added at the end of the queue.
+     *
+     * @param request Index of the added request.
+     */
+    void add(final int request) {
+        if (indexOf(this.added, this.addedSize, request) == -1) {
+            this.added = append(this.added, this.addedSize, request);
+            this.addedSize++;
+        }
+    }
+
+    /**
+     * Register a removed request, a request added since the last notification is simply forgotten.
+     *
+     * @param request Index of the removed request.
+     */
+    void remove(final int request) {
+        int position = indexOf(this.added, this.addedSize, request);
+        if (position != -1) {
+            this.addedSize--;
+            System.arraycopy(this.added, position + 1, this.added, position, this.addedSize - position);
+        } else if (indexOf(this.removed, this.removedSize, request) == -1) {
+            this.removed = append(this.removed, this.removedSize, request);
+            this.removedSize++;
+        }
+    }
+
+    /**
+     * Register a replacement of the queue content.
+     */
+    void reset() {
+        this.reset = true;
+    }
+
+    /**
+     * @return A copy of these changes, to keep after the notification.
+     */
+    ConstructionQueueChange copy() {
+        ConstructionQueueChange copy = new ConstructionQueueChange();
+        copy.added = Arrays.copyOf(this.added, Math.max(1, this.addedSize));
+        copy.addedSize = this.addedSize;
+        copy.removed = Arrays.copyOf(this.removed, Math.max(1, this.removedSize));
+        copy.removedSize = this.removedSize;
+        copy.reset = this.reset;
+        copy.baseVersion = this.baseVersion;
+        return copy;
+    }
+
+    void clear() {
+        this.addedSize = 0;
+        this.removedSize = 0;
+        this.reset = false;
+    }
+
+    private static int indexOf(final int[] values, final int size, final int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] append(final int[] values, final int size, final int value) {
+        int[] result = size == values.length ? Arrays.copyOf(values, size << 1) : values;
+        result[size] = value;
+        return result;
+    }
+}
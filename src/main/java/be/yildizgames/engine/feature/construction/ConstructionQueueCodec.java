@@ -0,0 +1,326 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Binary encoding of a construction queue, read and written directly from and to a buffer.
+ * A snapshot contains the whole queue content, a delta contains the requests removed and added since a previous version of the queue.
+ * Every message starts with its kind and the builder id, then the versions and the requests.
+ * Counts, versions and ids are written as unsigned variable length integers,
+ * request indexes, entity types and remaining times are written as zigzag variable length integers.
+ * Writing a message in a buffer too small throws a BufferOverflowException, the buffer position is then undefined.
+ * The priority classes are not encoded: the decoded elements keep the encoded order but all get the normal priority,
+ * so an element added with a higher priority after a decoded snapshot can be placed before decoded elements of that priority.
+ * @param <R> EntityConstructionStatus real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class ConstructionQueueCodec<R extends EntityConstructionStatus> {
+
+    /**
+     * Message kind for a full queue content.
+     */
+    public static final byte SNAPSHOT = 0;
+
+    /**
+     * Message kind for the changes between two versions.
+     */
+    public static final byte DELTA = 1;
+
+    /**
+     * Maximum size of an encoded element: request index, entity type and remaining time.
+     */
+    private static final int STATUS_MAX_SIZE = 5 + 5 + Varint.MAX_SIZE;
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * Factory to build the decoded elements.
+     */
+    private final StatusFactory<R> factory;
+
+    /**
+     * Create a new instance.
+     *
+     * @param factory Factory to build the decoded elements.
+     * @throws NullPointerException If factory is null.
+     */
+    public ConstructionQueueCodec(final StatusFactory<R> factory) {
+        super();
+        assert factory != null;
+        this.factory = factory;
+    }
+
+    /**
+     * Write the full content of a queue.
+     *
+     * @param queue Queue to write.
+     * @param buffer Buffer to write into, from its current position.
+     */
+    //@Requires queue != null
+    //@Requires buffer != null
+    public void writeSnapshot(final ConstructionQueue<R> queue, final ByteBuffer buffer) {
+        writeSnapshotHeader(buffer, queue.getBuilderId().value, queue.getVersion(), queue.getList().size());
+        for (R status : queue.getList()) {
+            writeStatus(buffer, status);
+        }
+    }
+
+    /**
+     * Write the changes of a queue since the change base version, or its full content if it was reset.
+     *
+     * @param queue Queue to write.
+     * @param change Changes of the queue since its last notification.
+     * @param buffer Buffer to write into, from its current position.
+     */
+    //@Requires queue != null
+    //@Requires change != null
+    //@Requires buffer != null
+    public void writeDelta(final ConstructionQueue<R> queue, final ConstructionQueueChange change, final ByteBuffer buffer) {
+        if (change.isReset()) {
+            this.writeSnapshot(queue, buffer);
+            return;
+        }
+        buffer.put(DELTA);
+        Varint.writeUnsigned(buffer, queue.getBuilderId().value);
+        Varint.writeUnsigned(buffer, change.getBaseVersion());
+        Varint.writeUnsigned(buffer, queue.getVersion());
+        Varint.writeUnsigned(buffer, change.getRemovedSize());
+        for (int i = 0; i < change.getRemovedSize(); i++) {
+            Varint.writeSigned(buffer, change.getRemoved(i));
+        }
+        int added = 0;
+        for (int i = 0; i < change.getAddedSize(); i++) {
+            if (queue.getByRequest(change.getAdded(i)) != null) {
+                added++;
+            }
+        }
+        Varint.writeUnsigned(buffer, added);
+        for (int i = 0; i < change.getAddedSize(); i++) {
+            R status = queue.getByRequest(change.getAdded(i));
+            if (status != null) {
+                writeStatus(buffer, status);
+            }
+        }
+    }
+
+    /**
+     * Read a message and apply it to a queue.
+     * A delta is only applied if the queue version is the delta base version, otherwise it is skipped and a snapshot must be requested.
+     * The whole message is read and checked before the queue is modified, so a message that cannot be applied leaves the queue unchanged.
+     *
+     * @param buffer Buffer to read from its current position, the position is moved after the message in any case.
+     * @param queue Queue to update, it must be the queue for the message builder id.
+     * @return <code>true</code> if the message was applied, false if it was a delta based on another version.
+     * @throws IllegalArgumentException If the message kind is unknown.
+     * @throws ConstructionQueueFullException If applying the message would put more elements than the queue max size.
+     */
+    //@Requires buffer != null
+    //@Requires queue != null
+    public boolean read(final ByteBuffer buffer, final ConstructionQueue<R> queue) {
+        byte kind = buffer.get();
+        Varint.readUnsigned(buffer);
+        if (kind == SNAPSHOT) {
+            long version = Varint.readUnsigned(buffer);
+            Object[] statuses = this.readStatuses(buffer, queue, true);
+            if (statuses == null) {
+                throw new ConstructionQueueFullException();
+            }
+            queue.removeAll();
+            this.addAll(queue, statuses);
+            queue.setVersion(version);
+            return true;
+        }
+        if (kind != DELTA) {
+            throw new IllegalArgumentException("Unknown message kind: " + kind);
+        }
+        long baseVersion = Varint.readUnsigned(buffer);
+        long version = Varint.readUnsigned(buffer);
+        boolean apply = queue.getVersion() == baseVersion;
+        long removedSize = Varint.readUnsigned(buffer);
+        if (removedSize > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        int[] removed = new int[(int) removedSize];
+        for (int i = 0; i < removed.length; i++) {
+            removed[i] = (int) Varint.readSigned(buffer);
+        }
+        Object[] added = this.readStatuses(buffer, queue, apply);
+        if (!apply) {
+            return false;
+        }
+        if (added == null || queue.getList().size() - countRemoved(queue, removed) + added.length > queue.getMaxSize()) {
+            throw new ConstructionQueueFullException();
+        }
+        for (int request : removed) {
+            queue.remove(request);
+        }
+        this.addAll(queue, added);
+        queue.setVersion(version);
+        return true;
+    }
+
+    /**
+     * Compute the maximum size of a snapshot.
+     *
+     * @param elements Number of elements in the queue.
+     * @return The maximum number of bytes written by writeSnapshot.
+     */
+    static long getMaxSnapshotSize(final int elements) {
+        return 1 + Varint.MAX_SIZE * 3L + elements * (long) STATUS_MAX_SIZE;
+    }
+
+    /**
+     * Read the builder id of a message without moving the buffer position.
+     *
+     * @param buffer Buffer positioned at the beginning of a message.
+     * @return The id value of the builder holding the queue.
+     */
+    //@Requires buffer != null
+    public static long peekBuilderId(final ByteBuffer buffer) {
+        int position = buffer.position();
+        buffer.position(position + 1);
+        long id = Varint.readUnsigned(buffer);
+        buffer.position(position);
+        return id;
+    }
+
+    /**
+     * Read the elements of a message, the buffer is always moved after them.
+     *
+     * @param buffer Buffer positioned on the elements count.
+     * @param queue Queue the elements are for.
+     * @param create <code>true</code> to build the elements, false to only skip them.
+     * @return The built elements, an empty array if they are skipped, null if there are more elements than the queue max size.
+     */
+    private Object[] readStatuses(final ByteBuffer buffer, final ConstructionQueue<R> queue, final boolean create) {
+        long size = Varint.readUnsigned(buffer);
+        boolean fits = size <= queue.getMaxSize();
+        Object[] result = create && fits ? new Object[(int) size] : EMPTY;
+        for (long i = 0; i < size; i++) {
+            int index = (int) Varint.readSigned(buffer);
+            int type = (int) Varint.readSigned(buffer);
+            long timeLeft = Varint.readSigned(buffer);
+            if (result != EMPTY) {
+                result[(int) i] = this.factory.create(type, index, timeLeft);
+            }
+        }
+        return create && !fits ? null : result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void addAll(final ConstructionQueue<R> queue, final Object[] statuses) {
+        for (Object status : statuses) {
+            queue.add((R) status);
+        }
+    }
+
+    /**
+     * Count the elements a list of removals would remove from a queue, a request index removes its first occurrence.
+     *
+     * @param queue Queue to check.
+     * @param removed Request indexes to remove, sorted by this method.
+     * @return The number of elements removed.
+     */
+    private static int countRemoved(final ConstructionQueue<?> queue, final int[] removed) {
+        Arrays.sort(removed);
+        int count = 0;
+        int i = 0;
+        while (i < removed.length) {
+            int request = removed[i];
+            int occurrences = 0;
+            while (i < removed.length && removed[i] == request) {
+                occurrences++;
+                i++;
+            }
+            int present = 0;
+            for (EntityConstructionStatus status : queue.getList()) {
+                if (status.index == request) {
+                    present++;
+                }
+            }
+            count += Math.min(occurrences, present);
+        }
+        return count;
+    }
+
+    /**
+     * Write the beginning of a snapshot, to be followed by its elements.
+     *
+     * @param buffer Buffer to write into.
+     * @param builderId Id value of the builder holding the queue.
+     * @param version Version of the queue.
+     * @param size Number of elements in the queue.
+     */
+    static void writeSnapshotHeader(final ByteBuffer buffer, final long builderId, final long version, final int size) {
+        buffer.put(SNAPSHOT);
+        Varint.writeUnsigned(buffer, builderId);
+        Varint.writeUnsigned(buffer, version);
+        Varint.writeUnsigned(buffer, size);
+    }
+
+    /**
+     * Write an element of a snapshot or delta.
+     *
+     * @param buffer Buffer to write into.
+     * @param index Unique index of the build request.
+     * @param type Id of the entity type.
+     * @param timeLeft Time left before the construction is complete.
+     */
+    static void writeStatus(final ByteBuffer buffer, final int index, final int type, final long timeLeft) {
+        Varint.writeSigned(buffer, index);
+        Varint.writeSigned(buffer, type);
+        Varint.writeSigned(buffer, timeLeft);
+    }
+
+    private static void writeStatus(final ByteBuffer buffer, final EntityConstructionStatus status) {
+        writeStatus(buffer, status.index, status.type.type, status.getTimeLeft());
+    }
+
+    /**
+     * Build the queue elements read from a message.
+     * @param <R> EntityConstructionStatus real type.
+     */
+    @FunctionalInterface
+    public interface StatusFactory<R extends EntityConstructionStatus> {
+
+        /**
+         * Build an element.
+         *
+         * @param type Id of the entity type.
+         * @param index Unique index of the build request.
+         * @param timeLeft Time left before the construction is complete.
+         * @return The built element.
+         */
+        //@Ensures("result != null")
+        R create(int type, int index, long timeLeft);
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.frame.EndFrameListener;
+import be.yildizgames.common.frame.FrameManager;
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Front end receiving the construction queue commands from any thread, for example the network threads,
+ * and applying them to a construction queue manager on the frame thread.
+ * The commands are written in a bounded ring of preallocated command objects, publishing a command does not lock nor allocate.
+ * The commands are applied in bulk, in publication order, when apply is called.
+ * @param <R> EntityConstructionStatus real type.
+ * @param <E> EntityInConstruction real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class ConstructionQueueCommands<R extends EntityConstructionStatus, E extends EntityInConstruction> {
+
+    /**
+     * Default maximum number of commands waiting to be applied.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 12;
+
+    private static final System.Logger LOGGER = System.getLogger(ConstructionQueueCommands.class.getName());
+
+    private static final byte ADD = 1;
+
+    private static final byte CANCEL = 2;
+
+    private static final byte UPDATE = 3;
+
+    /**
+     * Manager receiving the commands.
+     */
+    private final ConstructionQueueManager<R, E> manager;
+
+    /**
+     * Preallocated commands, one per slot.
+     */
+    private final Command<R>[] commands;
+
+    /**
+     * Position + 1 of the command published in each slot, 0 if none was published yet.
+     */
+    private final AtomicLongArray published;
+
+    /**
+     * Mask to compute the slot from a position, the capacity is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Next position to reserve by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Number of commands refused because the ring was full.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Next position to apply, only written by the consumer.
+     */
+    private volatile long head;
+
+    /**
+     * Number of commands the manager failed to apply, only written by the consumer.
+     */
+    private volatile long failed;
+
+    /**
+     * Create a new instance with the default capacity, the commands must be applied by calling apply.
+     *
+     * @param manager Manager receiving the commands.
+     * @throws NullPointerException If manager is null.
+     */
+    public ConstructionQueueCommands(final ConstructionQueueManager<R, E> manager) {
+        this(manager, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new instance, the commands must be applied by calling apply.
+     *
+     * @param manager Manager receiving the commands.
+     * @param capacity Maximum number of commands waiting to be applied, rounded up to a power of two.
+     * @throws NullPointerException If manager is null.
+     */
+    @SuppressWarnings("unchecked")
+    public ConstructionQueueCommands(final ConstructionQueueManager<R, E> manager, final int capacity) {
+        super();
+        assert manager != null;
+        assert capacity > 0;
+        this.manager = manager;
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.commands = new Command[size];
+        for (int i = 0; i < size; i++) {
+            this.commands[i] = new Command<>();
+        }
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Create a new instance applying the commands at the end of every frame.
+     * To apply the commands before the constructions progress, register it to the frame manager before the construction manager.
+     *
+     * @param manager Manager receiving the commands.
+     * @param capacity Maximum number of commands waiting to be applied, rounded up to a power of two.
+     * @param frame Frame manager calling apply.
+     * @throws NullPointerException If manager or frame is null.
+     */
+    public ConstructionQueueCommands(final ConstructionQueueManager<R, E> manager, final int capacity, final FrameManager frame) {
+        this(manager, capacity);
+        assert frame != null;
+        frame.addFrameListener(new EndFrameListener() {
+            @Override
+            public boolean frameEnded(final long time) {
+                apply();
+                return true;
+            }
+        });
+    }
+
+    /**
+     * Publish a command to add an entity in a builder queue, can be called from any thread.
+     *
+     * @param playerId Player owner of the entity.
+     * @param builderId Id of the builder of the entity.
+     * @param toBuild Data of the entity to build.
+     * @return <code>true</code> if the command was published, false if too many commands are waiting.
+     */
+    //@Requires playerId != null
+    //@Requires builderId != null
+    //@Requires toBuild != null
+    public boolean addEntity(final PlayerId playerId, final EntityId builderId, final R toBuild) {
+        long position = this.claim();
+        if (position < 0) {
+            return false;
+        }
+        Command<R> command = this.commands[(int) position & this.mask];
+        command.kind = ADD;
+        command.playerId = playerId;
+        command.builderId = builderId;
+        command.status = toBuild;
+        this.publish(position);
+        return true;
+    }
+
+    /**
+     * Publish a command to cancel a construction, can be called from any thread.
+     *
+     * @param playerId Player canceling the construction.
+     * @param index Index of the construction.
+     * @return <code>true</code> if the command was published, false if too many commands are waiting.
+     */
+    //@Requires playerId != null
+    public boolean cancel(final PlayerId playerId, final int index) {
+        long position = this.claim();
+        if (position < 0) {
+            return false;
+        }
+        Command<R> command = this.commands[(int) position & this.mask];
+        command.kind = CANCEL;
+        command.playerId = playerId;
+        command.index = index;
+        this.publish(position);
+        return true;
+    }
+
+    /**
+     * Publish a command to replace a builder queue content, can be called from any thread.
+     * The queue must not be modified once published.
+     *
+     * @param items New values in the queue.
+     * @return <code>true</code> if the command was published, false if too many commands are waiting.
+     */
+    //@Requires items != null
+    public boolean update(final ConstructionQueue<R> items) {
+        long position = this.claim();
+        if (position < 0) {
+            return false;
+        }
+        Command<R> command = this.commands[(int) position & this.mask];
+        command.kind = UPDATE;
+        command.queue = items;
+        this.publish(position);
+        return true;
+    }
+
+    /**
+     * Apply all the published commands to the manager, in publication order.
+     * Must only be called from the frame thread.
+     * A command the manager fails to apply, for example an add in a full queue, is logged, counted as failed and skipped,
+     * the next commands are still applied.
+     *
+     * @return The number of applied commands, including the failed ones.
+     */
+    public int apply() {
+        int applied = 0;
+        long position = this.head;
+        while (true) {
+            int slot = (int) position & this.mask;
+            if (this.published.get(slot) != position + 1) {
+                break;
+            }
+            Command<R> command = this.commands[slot];
+            byte kind = command.kind;
+            PlayerId playerId = command.playerId;
+            EntityId builderId = command.builderId;
+            R status = command.status;
+            int index = command.index;
+            ConstructionQueue<R> queue = command.queue;
+            command.clear();
+            position++;
+            this.head = position;
+            applied++;
+            try {
+                if (kind == ADD) {
+                    this.manager.addEntity(playerId, builderId, status);
+                } else if (kind == CANCEL) {
+                    this.manager.cancel(playerId, index);
+                } else {
+                    this.manager.update(queue);
+                }
+            } catch (ConstructionQueueFullException e) {
+                this.failed++;
+                LOGGER.log(System.Logger.Level.WARNING, "Construction queue full, command rejected for builder " + (kind == ADD ? builderId : queue.getBuilderId()));
+            } catch (RuntimeException e) {
+                this.failed++;
+                LOGGER.log(System.Logger.Level.ERROR, "Construction queue command failed", e);
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * @return The maximum number of commands waiting to be applied.
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * @return The number of commands waiting to be applied.
+     */
+    public long getBacklog() {
+        return Math.max(0, this.tail.get() - this.head);
+    }
+
+    /**
+     * @return The number of commands refused since the creation of this object because too many commands were waiting.
+     */
+    public long getRejected() {
+        return this.rejected.get();
+    }
+
+    /**
+     * @return The number of commands the manager failed to apply since the creation of this object, they were skipped.
+     */
+    public long getFailed() {
+        return this.failed;
+    }
+
+    /**
+     * Reserve a position for a command.
+     *
+     * @return The reserved position, -1 if the ring is full.
+     */
+    private long claim() {
+        long position;
+        do {
+            position = this.tail.get();
+            if (position - this.head > this.mask) {
+                this.rejected.incrementAndGet();
+                return -1;
+            }
+        } while (!this.tail.compareAndSet(position, position + 1));
+        return position;
+    }
+
+    private void publish(final long position) {
+        this.published.lazySet((int) position & this.mask, position + 1);
+    }
+
+    /**
+     * A reusable command, its fields are written by the producer owning its slot and read by the consumer once published.
+     * @param <R> EntityConstructionStatus real type.
+     */
+    private static final class Command<R extends EntityConstructionStatus> {
+
+        private byte kind;
+
+        private PlayerId playerId;
+
+        private EntityId builderId;
+
+        private R status;
+
+        private int index;
+
+        private ConstructionQueue<R> queue;
+
+        private void clear() {
+            this.playerId = null;
+            this.builderId = null;
+            this.status = null;
+            this.queue = null;
+        }
+    }
+}
@@ -41,6 +41,16 @@ public interface ConstructionQueueListener {
      */
     void notify(ConstructionQueue queue);
 
+    /**
+     * Notify about all the changes of a queue since its last notification, used when the queue manager coalesces its notifications.
+     * By default, only the queue is notified.
+     * @param queue Queue changed.
+     * @param change Requests added and removed since the last notification, must not be kept after the call.
+     */
+    default void notifyChanges(ConstructionQueue queue, ConstructionQueueChange change) {
+        this.notify(queue);
+    }
+
     /**
      * Notify when a new request is added to the queue.
      * @param toBuild Construction data.
@@ -24,15 +24,23 @@
 
 package be.yildizgames.engine.feature.construction;
 
+import be.yildizgames.common.frame.EndFrameListener;
+import be.yildizgames.common.frame.FrameManager;
 import be.yildizgames.common.model.EntityId;
 import be.yildizgames.common.model.PlayerId;
 import be.yildizgames.engine.feature.entity.EntityInConstruction;
 import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
 import be.yildizgames.engine.feature.entity.data.EntityType;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Manage the different construction queues.
@@ -47,22 +55,97 @@ public class ConstructionQueueManager<R extends EntityConstructionStatus, E exte
     //@Invariant("!listeners.contains(null)")
     private final List<ConstructionQueueListener> listeners = new ArrayList<>();
 
+    /**
+     * Asynchronous wrappers created by this manager for the demoted listeners, owned and closed by this manager.
+     */
+    private final List<AsyncConstructionQueueListener> demoted = new ArrayList<>();
+
     /**
      * Manage the builders.
      */
     //@Invariant("builderManager != null")
-    private final BuilderManager<QueueBuilder<R>> builderManager;
+    private final AbstractBuilderManager<QueueBuilder<R>> builderManager;
+
+    /**
+     * <code>true</code> if the queue notifications are delayed until the next flush.
+     */
+    private final boolean coalescing;
+
+    /**
+     * Builders whose queue changed since the last flush, in the order of their first change.
+     */
+    private final List<QueueBuilder<R>> dirtyBuilders = new ArrayList<>();
+
+    /**
+     * Changes of the dirty builders queue.
+     */
+    private final Map<QueueBuilder<R>, ConstructionQueueChange> changes = new IdentityHashMap<>();
+
+    /**
+     * Changes objects to reuse.
+     */
+    private final Deque<ConstructionQueueChange> changePool = new ArrayDeque<>();
+
+    /**
+     * Journal recording the commands, null if none.
+     */
+    private ConstructionJournal journal;
 
     /**
-     * Create a new instance.
+     * Measures of the queues depth and listeners.
+     */
+    private ConstructionMetrics metrics = ConstructionMetrics.NONE;
+
+    /**
+     * Maximum notification time of the listeners, null if not checked.
+     */
+    private ListenerBudget budget;
+
+    /**
+     * Id of the builder holding each request, by owner and request index, to cancel a request without scanning all the owner builders.
+     */
+    private final LongObjectMap<EntityId> routes = new LongObjectMap<>();
+
+    /**
+     * Number of bulk operations in progress, their notifications are delayed until the end of the outermost one.
+     */
+    private int bulk;
+
+    /**
+     * Create a new instance, notifying the listeners on every queue change.
      *
      * @param builderManager Associated builder manager.
      * @throws NullPointerException If builderManager is null.
      */
-    public ConstructionQueueManager(final BuilderManager<QueueBuilder<R>> builderManager) {
+    public ConstructionQueueManager(final AbstractBuilderManager<QueueBuilder<R>> builderManager) {
         super();
         assert builderManager != null;
         this.builderManager = builderManager;
+        this.coalescing = false;
+    }
+
+    /**
+     * Create a new instance, coalescing the queue notifications.
+     * Changed queues are notified once, with their changes, when flush is called, at the end of every frame.
+     * The notifications to start building are not delayed.
+     *
+     * @param builderManager Associated builder manager.
+     * @param frame Frame manager calling flush at the end of every frame.
+     * @throws NullPointerException If builderManager or frame is null.
+     */
+    public ConstructionQueueManager(final AbstractBuilderManager<QueueBuilder<R>> builderManager, final FrameManager frame) {
+        super();
+        assert builderManager != null;
+        assert frame != null;
+        this.builderManager = builderManager;
+        this.coalescing = true;
+        frame.addFrameListener(new EndFrameListener() {
+            @Override
+            public boolean frameEnded(final long time) {
+                flush();
+                return true;
+            }
+        });
     }
 
     /**
@@ -78,11 +161,26 @@ public class ConstructionQueueManager<R extends EntityConstructionStatus, E exte
 
     /**
      * Cancel a construction and remove it from the queue.
+     * The cancel goes to the builder holding the request, if no builder of the player holds it, all the player builders are called.
+     * If the holder removes the request from its queue, the listeners are notified once.
      *
      * @param playerId Player canceling the construction.
      * @param index    Index of the construction.
      */
     public void cancel(final PlayerId playerId, final int index) {
+        if (this.journal != null) {
+            this.journal.queueCancel(playerId, index);
+        }
+        QueueBuilder<R> holder = this.findHolder(playerId, index);
+        if (holder != null) {
+            this.bulk++;
+            try {
+                this.cancelHeld(holder, index);
+            } finally {
+                this.endBulk();
+            }
+            return;
+        }
         List<QueueBuilder<R>> builders = builderManager.getBuilderByPlayer(playerId);
         builders.forEach(b -> b.cancel(index));
         /*for (Builder b : builders) {
@@ -94,54 +192,325 @@ public class ConstructionQueueManager<R extends EntityConstructionStatus, E exte
     }
 
     /**
-     * Refresh a builder state with the updated queue.
+     * Cancel several constructions of a player, each cancel goes to the builder holding the request, the requests not in any queue are ignored.
+     * The pending constructions are canceled before the ones in progress, so no canceled construction is started,
+     * and the listeners are notified once per affected queue.
+     *
+     * @param playerId Player canceling the constructions.
+     * @param indexes Indexes of the constructions.
+     * @throws NullPointerException If indexes is null.
+     */
+    public void cancelMany(final PlayerId playerId, final int[] indexes) {
+        if (this.journal != null) {
+            for (int index : indexes) {
+                this.journal.queueCancel(playerId, index);
+            }
+        }
+        this.bulk++;
+        try {
+            for (int index : indexes) {
+                QueueBuilder<R> b = this.findHolder(playerId, index);
+                if (b != null && !b.getQueue().isInProgress(index)) {
+                    this.cancelHeld(b, index);
+                }
+            }
+            for (int index : indexes) {
+                QueueBuilder<R> b = this.findHolder(playerId, index);
+                if (b != null) {
+                    this.cancelHeld(b, index);
+                }
+            }
+        } finally {
+            this.endBulk();
+        }
+    }
+
+    /**
+     * Cancel all the constructions of a builder queue, the pending ones first, then the ones in progress.
+     * The listeners are notified once.
+     * If the builder is not found, nothing happens.
+     *
+     * @param builderId Id of the builder.
+     */
+    public void cancelAll(final EntityId builderId) {
+        Optional<QueueBuilder<R>> builder = this.builderManager.getBuilderById(builderId);
+        if (builder.isEmpty()) {
+            return;
+        }
+        QueueBuilder<R> b = builder.get();
+        List<R> elements = b.getQueue().getList();
+        int[] indexes = new int[elements.size()];
+        int i = indexes.length;
+        for (R r : elements) {
+            i--;
+            indexes[i] = r.index;
+        }
+        if (this.journal != null) {
+            for (int index : indexes) {
+                this.journal.queueCancel(b.getOwner(), index);
+            }
+        }
+        this.bulk++;
+        try {
+            for (int index : indexes) {
+                this.cancelHeld(b, index);
+            }
+        } finally {
+            this.endBulk();
+        }
+    }
+
+    /**
+     * Unregister a builder from the builder manager, for example when it is destroyed, and remove the routes of the requests in its queue.
+     * Must be used instead of the builder manager removeBuilder for the builders holding a queue managed by this manager,
+     * so the routing table does not keep the requests of the removed builders.
+     *
+     * @param builderId Id of the builder to remove.
+     * @return The removed builder, empty if no builder was registered with that id.
+     */
+    public Optional<QueueBuilder<R>> removeBuilder(final EntityId builderId) {
+        PlayerId registered = this.builderManager.getRegisteredOwner(builderId);
+        Optional<QueueBuilder<R>> removed = this.builderManager.removeBuilder(builderId);
+        removed.ifPresent(b -> {
+            this.unrouteAll(b, registered);
+            this.unrouteAll(b, b.getOwner());
+        });
+        return removed;
+    }
+
+    /**
+     * Move a builder to the player currently owning it in the builder manager, for example when it is captured,
+     * and route the requests in its queue under the new owner.
+     * Must be used instead of the builder manager updateOwner for the builders holding a queue managed by this manager,
+     * so the routing table does not keep the requests under the previous owner.
+     *
+     * @param builderId Id of the builder whose owner changed.
+     * @return <code>true</code> if the builder is registered, false otherwise.
+     */
+    public boolean updateOwner(final EntityId builderId) {
+        PlayerId registered = this.builderManager.getRegisteredOwner(builderId);
+        if (!this.builderManager.updateOwner(builderId)) {
+            return false;
+        }
+        this.builderManager.getBuilderById(builderId).ifPresent(b -> {
+            if (registered != null && !registered.equals(b.getOwner())) {
+                this.unrouteAll(b, registered);
+                this.routeAll(b);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Refresh several builders state with their updated queue, the listeners are notified once per queue.
+     * The queues not associated with any builder are ignored.
+     *
+     * @param queues New values of the queues.
+     * @throws NullPointerException if queues is null.
+     */
+    public void updateAll(final List<ConstructionQueue<R>> queues) {
+        this.bulk++;
+        try {
+            for (int i = 0; i < queues.size(); i++) {
+                this.update(queues.get(i));
+            }
+        } finally {
+            this.endBulk();
+        }
+    }
+
+    /**
+     * Refresh a builder state with the updated queue, the elements keep their priority class from the updated queue.
+     * The elements whose request was being built stay in progress, and the listeners are notified to start building the next pending elements
+     * if production slots were freed.
      * If the items is not associated with any builder, nothing happens.
      *
      * @param items New values in the queue.
      * @throws NullPointerException if items is null.
      */
     public void update(final ConstructionQueue<R> items) {
+        this.update(items, getPriorities(items));
+    }
+
+    /**
+     * Refresh a builder state with the updated queue, giving its elements the provided priority classes.
+     * The pending elements with a priority other than normal are moved after the pending elements with the same or a higher priority,
+     * so the queue order is kept when the priorities come from a queue in that order.
+     *
+     * @param items New values in the queue.
+     * @param priorities Priority class of every element, in queue order, null for the normal priority.
+     */
+    void update(final ConstructionQueue<R> items, final ConstructionPriority[] priorities) {
         Optional<QueueBuilder<R>> builder = this.builderManager.getBuilderById(items.getBuilderId());
         builder.ifPresent(
                 b -> {
+                    int[] requests = new int[priorities.length];
+                    int position = 0;
+                    for (R element : items.getList()) {
+                        requests[position] = element.index;
+                        position++;
+                    }
+                    long version = b.getQueue().getVersion();
+                    this.unrouteAll(b);
                     b.setQueue(items.getList());
-                    listeners.forEach(l -> l.notify(b.getQueue()));
+                    if (this.journal != null) {
+                        this.journal.queueUpdate(items, priorities);
+                    }
+                    for (int i = 0; i < requests.length; i++) {
+                        if (priorities[i] != null && priorities[i] != ConstructionPriority.NORMAL) {
+                            b.getQueue().setPriority(requests[i], priorities[i]);
+                        }
+                    }
+                    this.routeAll(b);
+                    this.promote(b, b.getOwner(), b.getBuilderId());
+                    this.queueReset(b, version);
                 }
         );
     }
 
     /**
-     * Add an entity in a list, if the list was empty, notify listener to start building.
+     * Add an entity in a list, if the builder has a free production slot, notify listener to start building.
      *
      * @param playerId Player owner of the entity.
      * @param builderId Id of the builder of the entity.
      * @param toBuild Data of the entity to build.
      */
     public void addEntity(final PlayerId playerId, final EntityId builderId, final R toBuild) {
+        this.addEntity(playerId, builderId, toBuild, ConstructionPriority.NORMAL);
+    }
+
+    /**
+     * Add an entity in a list, after the pending entities with the same or a higher priority.
+     * If the builder has a free production slot, notify listener to start building.
+     * If the entity is not added at the end of the queue, the queue change is notified as a reset.
+     *
+     * @param playerId Player owner of the entity.
+     * @param builderId Id of the builder of the entity.
+     * @param toBuild Data of the entity to build.
+     * @param priority Priority class of the entity.
+     */
+    public void addEntity(final PlayerId playerId, final EntityId builderId, final R toBuild, final ConstructionPriority priority) {
+        assert priority != null;
         Optional<QueueBuilder<R>> builder = this.builderManager.getBuilderById(builderId);
         builder.ifPresent(
                 b -> {
-                    b.addInQueue(toBuild);
-                    if (b.getQueue().hasOnlyOneElement()) {
-                        listeners.forEach(l -> l.add(toBuild, playerId, builderId));
+                    ConstructionQueue<R> queue = b.getQueue();
+                    long version = queue.getVersion();
+                    b.addInQueue(toBuild, priority);
+                    if (this.journal != null) {
+                        this.journal.queueAdd(playerId, builderId, toBuild, priority);
+                    }
+                    this.route(b, toBuild.index);
+                    this.promote(b, playerId, builderId);
+                    List<R> elements = queue.getList();
+                    if (elements.get(elements.size() - 1) == toBuild) {
+                        this.queueChanged(b, version, toBuild.index, true);
+                    } else {
+                        this.reordered(b, version);
                     }
-                    listeners.forEach(l -> l.notify(b.getQueue()));
                 }
         );
     }
 
+    /**
+     * Move a pending entity of a builder queue before all the other pending entities, its priority becomes rush.
+     * The queue change is notified as a reset.
+     *
+     * @param builderId Id of the builder.
+     * @param index Index of the construction request.
+     * @return <code>true</code> if the entity was moved, false if the builder or the pending entity was not found.
+     */
+    public boolean moveToFront(final EntityId builderId, final int index) {
+        Optional<QueueBuilder<R>> builder = this.builderManager.getBuilderById(builderId);
+        if (builder.isEmpty()) {
+            return false;
+        }
+        QueueBuilder<R> b = builder.get();
+        long version = b.getQueue().getVersion();
+        if (!b.getQueue().moveToFront(index)) {
+            return false;
+        }
+        this.reordered(b, version);
+        return true;
+    }
+
+    /**
+     * Change the priority of an entity in a builder queue, a pending entity is moved after the pending entities with the same or a higher priority.
+     * If the order changed, the queue change is notified as a reset.
+     *
+     * @param builderId Id of the builder.
+     * @param index Index of the construction request.
+     * @param priority New priority class.
+     * @return <code>true</code> if the entity was found, false otherwise.
+     */
+    public boolean setPriority(final EntityId builderId, final int index, final ConstructionPriority priority) {
+        Optional<QueueBuilder<R>> builder = this.builderManager.getBuilderById(builderId);
+        if (builder.isEmpty()) {
+            return false;
+        }
+        QueueBuilder<R> b = builder.get();
+        long version = b.getQueue().getVersion();
+        if (!b.getQueue().setPriority(index, priority)) {
+            return false;
+        }
+        if (b.getQueue().getVersion() != version) {
+            this.reordered(b, version);
+        }
+        return true;
+    }
+
+    /**
+     * Add several entities at the end of a builder queue, with a single builder lookup and capacity check.
+     * The listeners are notified to start building as many entities as the builder has free production slots, and once for the queue change.
+     * If the builder is not found, nothing happens.
+     *
+     * @param playerId Player owner of the entities.
+     * @param builderId Id of the builder of the entities.
+     * @param toBuild Data of the entities to build, in queue order.
+     * @throws ConstructionQueueFullException If the queue cannot hold all the entities, in which case none is added.
+     * @throws NullPointerException If toBuild is null.
+     */
+    public void addEntities(final PlayerId playerId, final EntityId builderId, final List<R> toBuild) {
+        Optional<QueueBuilder<R>> builder = this.builderManager.getBuilderById(builderId);
+        if (builder.isEmpty() || toBuild.isEmpty()) {
+            return;
+        }
+        QueueBuilder<R> b = builder.get();
+        ConstructionQueue<R> queue = b.getQueue();
+        if (queue.getList().size() + toBuild.size() > queue.getMaxSize()) {
+            throw new ConstructionQueueFullException();
+        }
+        if (this.journal != null) {
+            for (int i = 0; i < toBuild.size(); i++) {
+                this.journal.queueAdd(playerId, builderId, toBuild.get(i), ConstructionPriority.NORMAL);
+            }
+        }
+        this.bulk++;
+        try {
+            for (int i = 0; i < toBuild.size(); i++) {
+                R r = toBuild.get(i);
+                long version = queue.getVersion();
+                b.addInQueue(r);
+                this.route(b, r.index);
+                this.queueChanged(b, version, r.index, true);
+            }
+            this.promote(b, playerId, builderId);
+        } finally {
+            this.endBulk();
+        }
+    }
+
     @Override
     public void entityComplete(final EntityId entity, PlayerId owner, EntityType type, final EntityId builder, final int index) {
         if (builder.equals(EntityId.WORLD)) {
             return;
         }
         this.builderManager.getBuilderById(builder).ifPresent(b -> {
+            long version = b.getQueue().getVersion();
             b.removeFromQueue(index);
-            if (!b.getQueue().isEmpty()) {
-                R nextToBuild = b.getQueue().getList().get(0);
-                listeners.forEach(l -> l.add(nextToBuild, b.getOwner(), builder));
-            }
-            listeners.forEach(l -> l.notify(b.getQueue()));
+            this.unrouteIfRemoved(b, index);
+            this.promote(b, b.getOwner(), builder);
+            this.queueChanged(b, version, index, false);
         });
 
     }
@@ -149,12 +518,367 @@ public class ConstructionQueueManager<R extends EntityConstructionStatus, E exte
     @Override
     public final void entityConstructionCanceled(WaitingEntity<E> w) {
         this.builderManager.getBuilderById(w.builderId).ifPresent(b -> {
+            long version = b.getQueue().getVersion();
             b.removeFromQueue(w.representation.index);
-            if (!b.getQueue().isEmpty()) {
-                R nextToBuild = b.getQueue().getList().get(0);
-                listeners.forEach(l -> l.add(nextToBuild, w.entity.getOwner(), w.builderId));
-            }
-            listeners.forEach(l -> l.notify(b.getQueue()));
+            this.unrouteIfRemoved(b, w.representation.index);
+            this.promote(b, w.entity.getOwner(), w.builderId);
+            this.queueChanged(b, version, w.representation.index, false);
         });
     }
+
+    /**
+     * Measure the depth of the builders queues after every change, and the listeners notification time.
+     *
+     * @param metrics Metrics receiving the measures, ConstructionMetrics.NONE to stop measuring.
+     * @throws NullPointerException If metrics is null.
+     */
+    public void setMetrics(final ConstructionMetrics metrics) {
+        assert metrics != null;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Set the maximum time a listener can take to be notified.
+     * A listener going over it is logged and flagged as slow, and if a demote capacity is provided and the listener is a DemotableListener,
+     * it is then notified on its own thread through an AsyncConstructionQueueListener with that buffer capacity,
+     * owned by this manager and closed by closeDemotedListeners.
+     * The other listeners are only flagged.
+     * To dispatch a listener asynchronously from the start, register it wrapped in an AsyncConstructionQueueListener.
+     *
+     * @param maxDuration Maximum notification time, in nanoseconds, 0 to stop checking.
+     * @param demoteCapacity Buffer capacity of the demoted listeners, 0 to only flag them.
+     */
+    public void setListenerBudget(final long maxDuration, final int demoteCapacity) {
+        assert maxDuration >= 0;
+        this.budget = maxDuration == 0 ? null : new ListenerBudget(maxDuration, demoteCapacity);
+    }
+
+    /**
+     * @return The listeners which went over the budget at least once since the budget was set.
+     */
+    public Set<Object> getSlowListeners() {
+        return this.budget == null ? Collections.emptySet() : this.budget.getSlowListeners();
+    }
+
+    /**
+     * Close the asynchronous wrappers this manager created for the demoted listeners, and wait for their pending notifications to be forwarded.
+     * The wrappers created by this manager are owned by it, and their threads only stop when this method is called,
+     * so it must be called on shutdown, from the frame thread, once the frames are stopped.
+     * The demoted listeners are put back in place of their wrapper and notified on the frame thread again.
+     * The AsyncConstructionQueueListener registered by the caller are owned by the caller and are not closed.
+     *
+     * @param timeout Maximum time to wait for each wrapper, in milliseconds.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void closeDemotedListeners(final long timeout) throws InterruptedException {
+        for (int i = 0; i < this.demoted.size(); i++) {
+            AsyncConstructionQueueListener async = this.demoted.get(i);
+            int position = this.listeners.indexOf(async);
+            if (position != -1) {
+                this.listeners.set(position, async.getDelegate());
+            }
+            async.close();
+        }
+        try {
+            for (int i = 0; i < this.demoted.size(); i++) {
+                this.demoted.get(i).awaitTermination(timeout);
+            }
+        } finally {
+            this.demoted.clear();
+        }
+    }
+
+    /**
+     * Record the commands received by this manager in a journal, to replay them with a ConstructionJournalReplayer.
+     * The additions and updates are only recorded once applied, so a command rejected by a full queue or an unknown builder is not replayed.
+     * The journal is committed by the construction manager at the end of every frame.
+     *
+     * @param journal Journal to use, null to stop recording.
+     */
+    public void setJournal(final ConstructionJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Notify the listeners once for every queue changed since the last flush, with its changes.
+     * Does nothing if the notifications are not coalesced.
+     * Called at the end of the bulk operations when the notifications are not coalesced.
+     */
+    public void flush() {
+        for (int i = 0; i < this.dirtyBuilders.size(); i++) {
+            QueueBuilder<R> b = this.dirtyBuilders.get(i);
+            ConstructionQueueChange change = this.changes.remove(b);
+            for (int j = 0; j < this.listeners.size(); j++) {
+                ConstructionQueueListener listener = this.listeners.get(j);
+                long start = this.isTimed() ? System.nanoTime() : 0;
+                listener.notifyChanges(b.getQueue(), change);
+                this.listenerNotified(j, listener, start);
+            }
+            change.clear();
+            this.changePool.push(change);
+        }
+        this.dirtyBuilders.clear();
+    }
+
+    /**
+     * Notify a request added or removed in a builder queue, or register it until the next flush.
+     *
+     * @param b Builder whose queue changed.
+     * @param version Version of the queue before the change.
+     * @param request Index of the request.
+     * @param added <code>true</code> if the request was added, false if it was removed.
+     */
+    private void queueChanged(final QueueBuilder<R> b, final long version, final int request, final boolean added) {
+        this.metrics.queueChanged(b.getBuilderId(), b.getQueue().getList().size());
+        if (this.coalescing || this.bulk > 0) {
+            ConstructionQueueChange change = this.getChange(b, version);
+            if (added) {
+                change.add(request);
+            } else {
+                change.remove(request);
+            }
+        } else {
+            this.notifyQueue(b.getQueue());
+        }
+    }
+
+    /**
+     * Notify a builder queue content replacement, or register it until the next flush.
+     *
+     * @param b Builder whose queue was replaced.
+     * @param version Version of the queue before the change.
+     */
+    private void queueReset(final QueueBuilder<R> b, final long version) {
+        this.metrics.queueChanged(b.getBuilderId(), b.getQueue().getList().size());
+        if (this.coalescing || this.bulk > 0) {
+            this.getChange(b, version).reset();
+        } else {
+            this.notifyQueue(b.getQueue());
+        }
+    }
+
+    /**
+     * @return The builder manager holding the queues.
+     */
+    AbstractBuilderManager<QueueBuilder<R>> getBuilderManager() {
+        return this.builderManager;
+    }
+
+    /**
+     * Find the builder of a player holding a request in its queue, from the routing table,
+     * or by scanning the player builders if the table has no valid route.
+     *
+     * @param playerId Owner of the builder.
+     * @param index Index of the request.
+     * @return The builder holding the request, null if none.
+     */
+    private QueueBuilder<R> findHolder(final PlayerId playerId, final int index) {
+        EntityId routed = this.routes.get(routeKey(playerId, index));
+        if (routed != null) {
+            Optional<QueueBuilder<R>> builder = this.builderManager.getBuilderById(routed);
+            if (builder.isPresent() && builder.get().getOwner().equals(playerId) && builder.get().getQueue().getByRequest(index) != null) {
+                return builder.get();
+            }
+        }
+        List<QueueBuilder<R>> builders = this.builderManager.getBuilderByPlayer(playerId);
+        for (int i = 0; i < builders.size(); i++) {
+            QueueBuilder<R> b = builders.get(i);
+            if (b.getQueue().getByRequest(index) != null) {
+                this.route(b, index);
+                return b;
+            }
+        }
+        if (routed != null) {
+            this.routes.remove(routeKey(playerId, index));
+        }
+        return null;
+    }
+
+    /**
+     * Cancel a request held by a builder, if the builder removed it from its queue, the change is recorded and the next pending entities are started.
+     * A builder calling back the construction manager records the change through entityConstructionCanceled too, recording a removal twice has no effect.
+     * Must be called during a bulk operation, so the queue is notified once.
+     *
+     * @param b Builder holding the request.
+     * @param index Index of the request.
+     */
+    private void cancelHeld(final QueueBuilder<R> b, final int index) {
+        long version = b.getQueue().getVersion();
+        b.cancel(index);
+        if (b.getQueue().getByRequest(index) == null) {
+            this.unrouteIfRemoved(b, index);
+            this.promote(b, b.getOwner(), b.getBuilderId());
+            this.queueChanged(b, version, index, false);
+        }
+    }
+
+    private void route(final QueueBuilder<R> b, final int index) {
+        this.routes.put(routeKey(b.getOwner(), index), b.getBuilderId());
+    }
+
+    /**
+     * Remove the route of a request if it is no longer in the builder queue.
+     *
+     * @param b Builder which held the request.
+     * @param index Index of the request.
+     */
+    private void unrouteIfRemoved(final QueueBuilder<R> b, final int index) {
+        if (b.getQueue().getByRequest(index) == null) {
+            long key = routeKey(b.getOwner(), index);
+            if (b.getBuilderId().equals(this.routes.get(key))) {
+                this.routes.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Add the route of every request in a builder queue, used when the queue content is replaced.
+     *
+     * @param b Builder holding the queue.
+     */
+    void routeAll(final QueueBuilder<R> b) {
+        for (R r : b.getQueue().getList()) {
+            this.route(b, r.index);
+        }
+    }
+
+    /**
+     * Remove the route of every request in a builder queue, used before the queue content is replaced.
+     *
+     * @param b Builder holding the queue.
+     */
+    void unrouteAll(final QueueBuilder<R> b) {
+        this.unrouteAll(b, b.getOwner());
+    }
+
+    /**
+     * Remove the route of every request in a builder queue, routed for a given owner.
+     *
+     * @param b Builder holding the queue.
+     * @param owner Owner the requests were routed for.
+     */
+    private void unrouteAll(final QueueBuilder<R> b, final PlayerId owner) {
+        for (R r : b.getQueue().getList()) {
+            long key = routeKey(owner, r.index);
+            if (b.getBuilderId().equals(this.routes.get(key))) {
+                this.routes.remove(key);
+            }
+        }
+    }
+
+    /**
+     * @return The number of requests in the routing table.
+     */
+    int getRouteCount() {
+        return this.routes.size();
+    }
+
+    private static long routeKey(final PlayerId playerId, final int index) {
+        return ((long) playerId.value << 32) | (index & 0xFFFFFFFFL);
+    }
+
+    /**
+     * End a bulk operation, if it is the outermost one and the notifications are not coalesced, notify the changed queues.
+     */
+    private void endBulk() {
+        this.bulk--;
+        if (this.bulk == 0 && !this.coalescing) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Start building the next pending entities of a builder queue, in one pass, until all its production slots are used.
+     *
+     * @param b Builder to update.
+     * @param playerId Owner of the builder.
+     * @param builderId Id of the builder.
+     */
+    private void promote(final QueueBuilder<R> b, final PlayerId playerId, final EntityId builderId) {
+        b.getQueue().promote(b.getProductionSlots(), r -> this.notifyAdd(r, playerId, builderId));
+    }
+
+    private void notifyAdd(final R toBuild, final PlayerId playerId, final EntityId builderId) {
+        for (int i = 0; i < this.listeners.size(); i++) {
+            ConstructionQueueListener listener = this.listeners.get(i);
+            long start = this.isTimed() ? System.nanoTime() : 0;
+            listener.add(toBuild, playerId, builderId);
+            this.listenerNotified(i, listener, start);
+        }
+    }
+
+    private void notifyQueue(final ConstructionQueue<R> queue) {
+        for (int i = 0; i < this.listeners.size(); i++) {
+            ConstructionQueueListener listener = this.listeners.get(i);
+            long start = this.isTimed() ? System.nanoTime() : 0;
+            listener.notify(queue);
+            this.listenerNotified(i, listener, start);
+        }
+    }
+
+    private boolean isTimed() {
+        return this.metrics != ConstructionMetrics.NONE || this.budget != null;
+    }
+
+    /**
+     * Measure a listener notification if timed, and demote the listener to an asynchronous dispatch if it went over the budget and is a DemotableListener.
+     * The asynchronous listeners are not checked, their notification time is only the time to submit it.
+     *
+     * @param position Position of the listener in the list.
+     * @param listener Notified listener.
+     * @param start Time when the notification started, in nanoseconds.
+     */
+    private void listenerNotified(final int position, final ConstructionQueueListener listener, final long start) {
+        if (!this.isTimed()) {
+            return;
+        }
+        long duration = System.nanoTime() - start;
+        this.metrics.listenerNotified(listener, duration);
+        if (this.budget != null && !(listener instanceof AsyncConstructionQueueListener) && this.budget.isExceeded(listener, duration)
+                && listener instanceof DemotableListener) {
+            AsyncConstructionQueueListener async = new AsyncConstructionQueueListener(listener, this.budget.getDemoteCapacity());
+            this.demoted.add(async);
+            this.listeners.set(position, async);
+        }
+    }
+
+    /**
+     * Record and notify a queue whose order changed, the journal records the whole queue so a replay gets the same order.
+     *
+     * @param b Builder whose queue was reordered.
+     * @param version Version of the queue before the change.
+     */
+    private void reordered(final QueueBuilder<R> b, final long version) {
+        if (this.journal != null) {
+            this.journal.queueUpdate(b.getQueue(), getPriorities(b.getQueue()));
+        }
+        this.queueReset(b, version);
+    }
+
+    /**
+     * Retrieve the priority class of every element of a queue.
+     *
+     * @param queue Queue to read.
+     * @return The priority classes, in queue order.
+     */
+    private static ConstructionPriority[] getPriorities(final ConstructionQueue<?> queue) {
+        ConstructionPriority[] priorities = new ConstructionPriority[queue.getList().size()];
+        int position = 0;
+        for (EntityConstructionStatus element : queue.getList()) {
+            priorities[position] = queue.getPriority(element.index);
+            position++;
+        }
+        return priorities;
+    }
+
+    private ConstructionQueueChange getChange(final QueueBuilder<R> b, final long version) {
+        ConstructionQueueChange change = this.changes.get(b);
+        if (change == null) {
+            change = this.changePool.isEmpty() ? new ConstructionQueueChange() : this.changePool.pop();
+            change.setBaseVersion(version);
+            this.changes.put(b, change);
+            this.dirtyBuilders.add(b);
+        }
+        return change;
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Strategy used by the construction manager to decide when the entities waiting to be built are completed.
+ * @param <E> EntityInConstruction real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public interface ConstructionScheduler<E extends EntityInConstruction> {
+
+    /**
+     * Add an entity to build.
+     *
+     * @param entity Entity to build.
+     * @param duration Time left before the construction is complete.
+     */
+    //@Requires entity != null
+    void schedule(WaitingEntity<E> entity, long duration);
+
+    /**
+     * Remove an entity to build, it will never be completed.
+     *
+     * @param entity Entity to remove.
+     * @return <code>true</code> if the entity was scheduled, false otherwise.
+     */
+    boolean cancel(WaitingEntity<E> entity);
+
+    /**
+     * Advance the time and provide all the entities whose construction is complete.
+     *
+     * @param time Time since the last call.
+     * @param completed Called for every completed entity, in completion order.
+     */
+    void advance(long time, Consumer<WaitingEntity<E>> completed);
+
+    /**
+     * @return All the entities currently waiting to be built, with their remaining time up to date.
+     */
+    //@Ensures("result != null")
+    List<WaitingEntity<E>> getScheduled();
+
+    /**
+     * Update the remaining time of a scheduled entity representation, if this scheduler does not do it every frame.
+     *
+     * @param entity Entity to update.
+     */
+    default void synchronize(WaitingEntity<E> entity) {
+        // Does nothing.
+    }
+
+    /**
+     * Provide the entities currently waiting to be built for a player.
+     * Only used when this scheduler does not retain the entities, the construction manager keeps its own index otherwise.
+     *
+     * @param player Player owning the entities.
+     * @return The entities of the player waiting to be built, with their remaining time up to date.
+     */
+    //@Requires player != null
+    //@Ensures("result != null")
+    default List<WaitingEntity<E>> getScheduled(PlayerId player) {
+        List<WaitingEntity<E>> result = new ArrayList<>();
+        for (WaitingEntity<E> entity : this.getScheduled()) {
+            if (entity.isOwned(player)) {
+                result.add(entity);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @return <code>true</code> if the scheduled instances are kept and provided back, false if new instances are materialized from a stored state,
+     * in which case the entities are only identified by their id.
+     */
+    default boolean isRetainingEntities() {
+        return true;
+    }
+}
@@ -0,0 +1,430 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.geometry.Point3D;
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.EntityToCreate;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Save and restore the construction state to a file mapped in memory: the entities in construction,
+ * the content of the builders queues and the entities waiting to be created.
+ * The file starts with a magic number, the format version and the content length, followed by the three sections,
+ * each one prefixed by its number of records.
+ * A capture only copies the state in flat arrays and must be done on the frame thread, between two frames,
+ * the capture can then be encoded and written to the disk from another thread without stopping the frames.
+ * A restore must be done on the frame thread, before the first frame, once the builders are registered:
+ * the queues of the builders no longer registered are ignored.
+ * The queue elements matching a restored entity in construction are restored as being built, so they are not started again.
+ * The restore is silent: the listeners are not notified and the journal does not record the restored state,
+ * and when the snapshot is created with the queue manager, the restored requests are added to its routing table.
+ * The queues are saved with the ConstructionQueueCodec, which does not keep the priority classes:
+ * the restored queues keep their order, but all their elements have the normal priority.
+ * @param <E> EntityInConstruction real type.
+ * @param <R> EntityConstructionStatus real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class ConstructionSnapshot<E extends EntityInConstruction, R extends EntityConstructionStatus> {
+
+    /**
+     * Version of the file format.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    /**
+     * First bytes of a snapshot file.
+     */
+    private static final int MAGIC = 0x59435350;
+
+    /**
+     * Magic number, format version and content length.
+     */
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+
+    /**
+     * Maximum size of an entity in construction: ids, types, owner, request index and remaining time.
+     */
+    private static final int BUILD_MAX_SIZE = Varint.MAX_SIZE * 3 + 5 * 4;
+
+    /**
+     * Maximum size of an entity to create: type, owner, position and direction.
+     */
+    private static final int CREATION_MAX_SIZE = 5 + 5 + 6 * Float.BYTES;
+
+    private final ConstructionManager<?, E, ?> manager;
+
+    private final AbstractBuilderManager<? extends QueueBuilder<R>> builderManager;
+
+    private final ConstructionStateFactory<E, R> factory;
+
+    private final ConstructionQueueCodec<R> codec;
+
+    /**
+     * Queue manager routing the requests to their builder, null if not provided.
+     */
+    private final ConstructionQueueManager<R, E> queueManager;
+
+    /**
+     * Create a new instance.
+     *
+     * @param manager Construction manager holding the entities in construction and the entities to create.
+     * @param builderManager Builder manager holding the construction queues.
+     * @param factory Factory to build the restored state.
+     * @throws NullPointerException If a parameter is null.
+     */
+    public ConstructionSnapshot(final ConstructionManager<?, E, ?> manager, final AbstractBuilderManager<? extends QueueBuilder<R>> builderManager, final ConstructionStateFactory<E, R> factory) {
+        this(manager, builderManager, null, factory);
+    }
+
+    /**
+     * Create a new instance, the restored queues are routed by the queue manager.
+     *
+     * @param manager Construction manager holding the entities in construction and the entities to create.
+     * @param queueManager Queue manager holding the construction queues.
+     * @param factory Factory to build the restored state.
+     * @throws NullPointerException If a parameter is null.
+     */
+    public ConstructionSnapshot(final ConstructionManager<?, E, ?> manager, final ConstructionQueueManager<R, E> queueManager, final ConstructionStateFactory<E, R> factory) {
+        this(manager, queueManager.getBuilderManager(), queueManager, factory);
+    }
+
+    private ConstructionSnapshot(final ConstructionManager<?, E, ?> manager, final AbstractBuilderManager<? extends QueueBuilder<R>> builderManager,
+                                 final ConstructionQueueManager<R, E> queueManager, final ConstructionStateFactory<E, R> factory) {
+        super();
+        assert manager != null;
+        assert builderManager != null;
+        assert factory != null;
+        this.manager = manager;
+        this.builderManager = builderManager;
+        this.queueManager = queueManager;
+        this.factory = factory;
+        this.codec = new ConstructionQueueCodec<>(factory);
+    }
+
+    /**
+     * Capture the state and write it to a file.
+     *
+     * @param file File to write, replaced once completely written.
+     * @throws IOException If the file cannot be written.
+     */
+    //@Requires file != null
+    public void save(final Path file) throws IOException {
+        this.capture().writeTo(file);
+    }
+
+    /**
+     * Copy the current state, the copy is not affected by the next frames.
+     *
+     * @return The captured state, to write to a file.
+     */
+    //@Ensures("result != null")
+    public Capture capture() {
+        List<WaitingEntity> builds = this.manager.getEntityToBuildList();
+        Capture capture = new Capture(builds.size());
+        for (int i = 0; i < builds.size(); i++) {
+            capture.addBuild(builds.get(i));
+        }
+        int[] sizes = new int[2];
+        this.builderManager.forEachBuilder(b -> {
+            int size = b.getQueue().getList().size();
+            if (size > 0) {
+                sizes[0]++;
+                sizes[1] += size;
+            }
+        });
+        capture.allocateQueues(sizes[0], sizes[1]);
+        this.builderManager.forEachBuilder(b -> {
+            if (!b.getQueue().isEmpty()) {
+                capture.addQueue(b.getQueue());
+            }
+        });
+        EntityCreationPipeline pipeline = this.manager.getEntityToCreatePipeline();
+        capture.allocateCreations((int) Math.min(pipeline.getBacklog(), pipeline.getCapacity()));
+        pipeline.forEachPending(capture.creations.length, capture::addCreation);
+        return capture;
+    }
+
+    /**
+     * Restore the state from a file, the entities in construction and to create are added to the current ones,
+     * the queues of the registered builders are replaced.
+     *
+     * @param file File to read.
+     * @throws IOException If the file cannot be read or is not a supported snapshot.
+     * @throws EntityCreationPipelineFullException If the snapshot contains more entities to create than the pipeline can hold.
+     */
+    //@Requires file != null
+    public void restore(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a construction snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("Unsupported construction snapshot version: " + version);
+            }
+            long length = buffer.getLong();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Truncated construction snapshot: " + file);
+            }
+            buffer.limit(HEADER_SIZE + (int) length);
+            int builds = buffer.getInt();
+            List<WaitingEntity<E>> restored = new ArrayList<>(builds);
+            for (int i = 0; i < builds; i++) {
+                WaitingEntity<E> w = this.readBuild(buffer);
+                this.manager.restoreEntityToBuild(w);
+                restored.add(w);
+            }
+            int queues = buffer.getInt();
+            for (int i = 0; i < queues; i++) {
+                EntityId builderId = EntityId.valueOf(ConstructionQueueCodec.peekBuilderId(buffer));
+                Optional<? extends QueueBuilder<R>> builder = this.builderManager.getBuilderById(builderId);
+                if (builder.isPresent()) {
+                    this.restoreQueue(buffer, builder.get());
+                } else {
+                    this.codec.read(buffer, new ConstructionQueue<>(builderId, Integer.MAX_VALUE));
+                }
+            }
+            for (int i = 0; i < restored.size(); i++) {
+                WaitingEntity<E> w = restored.get(i);
+                this.builderManager.getBuilderById(w.builderId).ifPresent(b -> b.getQueue().markStarted(w.representation.index));
+            }
+            int creations = buffer.getInt();
+            EntityCreationPipeline pipeline = this.manager.getEntityToCreatePipeline();
+            for (int i = 0; i < creations; i++) {
+                pipeline.add(this.readCreation(buffer));
+            }
+        }
+    }
+
+    private void restoreQueue(final ByteBuffer buffer, final QueueBuilder<R> builder) {
+        if (this.queueManager == null) {
+            this.codec.read(buffer, builder.getQueue());
+            return;
+        }
+        this.queueManager.unrouteAll(builder);
+        try {
+            this.codec.read(buffer, builder.getQueue());
+        } finally {
+            this.queueManager.routeAll(builder);
+        }
+    }
+
+    private WaitingEntity<E> readBuild(final ByteBuffer buffer) {
+        EntityId id = EntityId.valueOf(Varint.readUnsigned(buffer));
+        int type = (int) Varint.readSigned(buffer);
+        PlayerId owner = PlayerId.valueOf((int) Varint.readSigned(buffer));
+        EntityId builderId = EntityId.valueOf(Varint.readUnsigned(buffer));
+        int statusType = (int) Varint.readSigned(buffer);
+        int index = (int) Varint.readSigned(buffer);
+        long timeLeft = Varint.readSigned(buffer);
+        return new WaitingEntity<>(this.factory.createEntity(type, id, owner), this.factory.create(statusType, index, timeLeft), builderId);
+    }
+
+    private EntityToCreate readCreation(final ByteBuffer buffer) {
+        int type = (int) Varint.readSigned(buffer);
+        PlayerId owner = PlayerId.valueOf((int) Varint.readSigned(buffer));
+        Point3D position = readPoint(buffer);
+        Point3D direction = readPoint(buffer);
+        return new EntityToCreate(this.factory.getType(type), position, direction, owner);
+    }
+
+    private static Point3D readPoint(final ByteBuffer buffer) {
+        return Point3D.valueOf(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+    }
+
+    /**
+     * Copy of the construction state, only holding immutable values, can be written from any thread.
+     */
+    public static final class Capture {
+
+        /**
+         * Entities in construction, only their immutable fields are read.
+         */
+        private final WaitingEntity<?>[] builds;
+
+        /**
+         * Remaining time of the entities in construction when captured.
+         */
+        private final long[] buildTimes;
+
+        private int buildSize;
+
+        private long[] queueIds;
+
+        private long[] queueVersions;
+
+        private int[] queueSizes;
+
+        private int queueSize;
+
+        /**
+         * Request index, entity type and remaining time of all the queues elements, in queue order.
+         */
+        private int[] statusIndexes;
+
+        private int[] statusTypes;
+
+        private long[] statusTimes;
+
+        private int statusSize;
+
+        private EntityToCreate[] creations;
+
+        private int creationSize;
+
+        private Capture(final int builds) {
+            super();
+            this.builds = new WaitingEntity[builds];
+            this.buildTimes = new long[builds];
+        }
+
+        /**
+         * Encode the captured state in a temporary file mapped in memory, write it to the disk and replace the snapshot file.
+         *
+         * @param file File to write, replaced once completely written.
+         * @throws IOException If the file cannot be written.
+         */
+        //@Requires file != null
+        public void writeTo(final Path file) throws IOException {
+            long size = HEADER_SIZE
+                    + Integer.BYTES + this.buildSize * (long) BUILD_MAX_SIZE
+                    + Integer.BYTES + this.queueSize * ConstructionQueueCodec.getMaxSnapshotSize(0)
+                    + ConstructionQueueCodec.getMaxSnapshotSize(this.statusSize)
+                    + Integer.BYTES + this.creationSize * (long) CREATION_MAX_SIZE;
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Construction state too large to be mapped: " + size + " bytes.");
+            }
+            Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                buffer.putInt(MAGIC);
+                buffer.putInt(FORMAT_VERSION);
+                buffer.putLong(0);
+                this.writeContent(buffer);
+                int written = buffer.position();
+                buffer.putLong(8, written - HEADER_SIZE);
+                buffer.force();
+                channel.truncate(written);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        private void writeContent(final ByteBuffer buffer) {
+            buffer.putInt(this.buildSize);
+            for (int i = 0; i < this.buildSize; i++) {
+                WaitingEntity<?> w = this.builds[i];
+                EntityInConstruction entity = w.entity;
+                Varint.writeUnsigned(buffer, entity.getId().value);
+                Varint.writeSigned(buffer, entity.getType().type);
+                Varint.writeSigned(buffer, entity.getOwner().value);
+                Varint.writeUnsigned(buffer, w.builderId.value);
+                Varint.writeSigned(buffer, w.representation.type.type);
+                Varint.writeSigned(buffer, w.representation.index);
+                Varint.writeSigned(buffer, this.buildTimes[i]);
+            }
+            buffer.putInt(this.queueSize);
+            int status = 0;
+            for (int i = 0; i < this.queueSize; i++) {
+                ConstructionQueueCodec.writeSnapshotHeader(buffer, this.queueIds[i], this.queueVersions[i], this.queueSizes[i]);
+                for (int j = 0; j < this.queueSizes[i]; j++) {
+                    ConstructionQueueCodec.writeStatus(buffer, this.statusIndexes[status], this.statusTypes[status], this.statusTimes[status]);
+                    status++;
+                }
+            }
+            buffer.putInt(this.creationSize);
+            for (int i = 0; i < this.creationSize; i++) {
+                EntityToCreate e = this.creations[i];
+                Varint.writeSigned(buffer, e.getType().type);
+                Varint.writeSigned(buffer, e.getOwner().value);
+                writePoint(buffer, e.getPosition());
+                writePoint(buffer, e.getDirection());
+            }
+        }
+
+        private void addBuild(final WaitingEntity<?> w) {
+            this.builds[this.buildSize] = w;
+            this.buildTimes[this.buildSize] = w.representation.getTimeLeft();
+            this.buildSize++;
+        }
+
+        private void allocateQueues(final int queues, final int statuses) {
+            this.queueIds = new long[queues];
+            this.queueVersions = new long[queues];
+            this.queueSizes = new int[queues];
+            this.statusIndexes = new int[statuses];
+            this.statusTypes = new int[statuses];
+            this.statusTimes = new long[statuses];
+        }
+
+        private void addQueue(final ConstructionQueue<?> queue) {
+            this.queueIds[this.queueSize] = queue.getBuilderId().value;
+            this.queueVersions[this.queueSize] = queue.getVersion();
+            this.queueSizes[this.queueSize] = queue.getList().size();
+            this.queueSize++;
+            for (EntityConstructionStatus status : queue.getList()) {
+                this.statusIndexes[this.statusSize] = status.index;
+                this.statusTypes[this.statusSize] = status.type.type;
+                this.statusTimes[this.statusSize] = status.getTimeLeft();
+                this.statusSize++;
+            }
+        }
+
+        private void allocateCreations(final int creations) {
+            this.creations = new EntityToCreate[creations];
+        }
+
+        private void addCreation(final EntityToCreate e) {
+            this.creations[this.creationSize] = e;
+            this.creationSize++;
+        }
+
+        private static void writePoint(final ByteBuffer buffer, final Point3D point) {
+            buffer.putFloat(point.x);
+            buffer.putFloat(point.y);
+            buffer.putFloat(point.z);
+        }
+    }
+}
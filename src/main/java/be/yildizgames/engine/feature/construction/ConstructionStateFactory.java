@@ -0,0 +1,61 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+
+/**
+ * Build the construction state objects read from a snapshot.
+ * @param <E> EntityInConstruction real type.
+ * @param <R> EntityConstructionStatus real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public interface ConstructionStateFactory<E extends EntityInConstruction, R extends EntityConstructionStatus> extends ConstructionQueueCodec.StatusFactory<R> {
+
+    /**
+     * Retrieve an entity type from its id.
+     *
+     * @param type Id of the entity type.
+     * @return The matching entity type.
+     */
+    //@Ensures("result != null")
+    EntityType getType(int type);
+
+    /**
+     * Build an entity in construction.
+     *
+     * @param type Id of the entity type.
+     * @param id Id of the entity.
+     * @param owner Player owning the entity.
+     * @return The built entity.
+     */
+    //@Ensures("result != null")
+    E createEntity(int type, EntityId id, PlayerId owner);
+}
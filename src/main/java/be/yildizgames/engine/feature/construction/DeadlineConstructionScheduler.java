@@ -0,0 +1,315 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler keeping the waiting entities in a min-heap ordered by their absolute completion time.
+ * A frame only touches the entities completed during that frame, a cancel is done in constant time by marking the entry,
+ * canceled entries are discarded once they reach the top of the heap.
+ * The remaining time of the waiting entities representation is only updated when they are completed or retrieved.
+ * Entities completed in the same frame are provided by completion time, then by scheduling order.
+ * The heap entries are reused, so a frame completing and scheduling entities does not allocate once the heap has grown.
+ * @param <E> EntityInConstruction real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public class DeadlineConstructionScheduler<E extends EntityInConstruction> implements ConstructionScheduler<E> {
+
+    /**
+     * Initial capacity of the heap.
+     */
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Entries by their waiting entity instance, only contains the active entries.
+     * The identity is used because the representation held by the waiting entity is mutated while scheduled.
+     */
+    private final Map<WaitingEntity<E>, Entry<E>> entries = new IdentityHashMap<>();
+
+    /**
+     * Binary min-heap of the entries, may contain canceled entries.
+     */
+    private Entry<E>[] heap;
+
+    /**
+     * First entry of the list of entries no longer in the heap, reused for the next scheduled entities.
+     */
+    private Entry<E> free;
+
+    /**
+     * Number of entries in the heap.
+     */
+    private int size;
+
+    /**
+     * Number of canceled entries still in the heap.
+     */
+    private int canceled;
+
+    /**
+     * Sum of all the times provided to this scheduler.
+     */
+    private long now;
+
+    /**
+     * Incremented for every scheduled entity, used to keep the scheduling order for entries with the same deadline.
+     */
+    private long sequence;
+
+    public DeadlineConstructionScheduler() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param capacity Expected number of simultaneous constructions.
+     */
+    @SuppressWarnings("unchecked")
+    public DeadlineConstructionScheduler(final int capacity) {
+        super();
+        this.heap = new Entry[Math.max(1, capacity)];
+    }
+
+    @Override
+    public void schedule(final WaitingEntity<E> entity, final long duration) {
+        assert entity != null;
+        Entry<E> entry = this.free;
+        if (entry == null) {
+            entry = new Entry<>();
+        } else {
+            this.free = entry.nextFree;
+            entry.nextFree = null;
+        }
+        entry.set(entity, this.now + Math.max(0, duration), this.sequence++, this.now);
+        Entry<E> previous = this.entries.put(entity, entry);
+        if (previous != null) {
+            this.markCanceled(previous);
+        }
+        this.push(entry);
+    }
+
+    @Override
+    public boolean cancel(final WaitingEntity<E> entity) {
+        Entry<E> entry = this.entries.remove(entity);
+        if (entry == null) {
+            return false;
+        }
+        this.markCanceled(entry);
+        return true;
+    }
+
+    @Override
+    public void advance(final long time, final Consumer<WaitingEntity<E>> completed) {
+        this.now += time;
+        while (this.size > 0 && this.heap[0].deadline <= this.now) {
+            Entry<E> entry = this.poll();
+            if (entry.canceled) {
+                this.canceled--;
+                this.release(entry);
+            } else {
+                WaitingEntity<E> entity = entry.entity;
+                this.entries.remove(entity);
+                this.synchronize(entry);
+                this.release(entry);
+                completed.accept(entity);
+            }
+        }
+    }
+
+    @Override
+    public List<WaitingEntity<E>> getScheduled() {
+        List<WaitingEntity<E>> result = new ArrayList<>(this.entries.size());
+        for (int i = 0; i < this.size; i++) {
+            Entry<E> entry = this.heap[i];
+            if (!entry.canceled) {
+                this.synchronize(entry);
+                result.add(entry.entity);
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public void synchronize(final WaitingEntity<E> entity) {
+        Entry<E> entry = this.entries.get(entity);
+        if (entry != null) {
+            this.synchronize(entry);
+        }
+    }
+
+    /**
+     * Report the time elapsed since the last synchronization to the entity representation.
+     *
+     * @param entry Entry to update.
+     */
+    private void synchronize(final Entry<E> entry) {
+        if (entry.synchronizedAt != this.now) {
+            entry.entity.representation.reduceTimeLeft(this.now - entry.synchronizedAt);
+            entry.synchronizedAt = this.now;
+        }
+    }
+
+    private void markCanceled(final Entry<E> entry) {
+        entry.canceled = true;
+        this.canceled++;
+        if (this.canceled > DEFAULT_CAPACITY && this.canceled > this.size >> 1) {
+            this.purge();
+        }
+    }
+
+    /**
+     * Remove all canceled entries from the heap and rebuild it.
+     */
+    private void purge() {
+        int kept = 0;
+        for (int i = 0; i < this.size; i++) {
+            if (this.heap[i].canceled) {
+                this.release(this.heap[i]);
+            } else {
+                this.heap[kept] = this.heap[i];
+                kept++;
+            }
+        }
+        Arrays.fill(this.heap, kept, this.size, null);
+        this.size = kept;
+        this.canceled = 0;
+        for (int i = (this.size >>> 1) - 1; i >= 0; i--) {
+            this.siftDown(i);
+        }
+    }
+
+    /**
+     * Keep an entry removed from the heap to reuse it.
+     *
+     * @param entry Entry no longer in the heap.
+     */
+    private void release(final Entry<E> entry) {
+        entry.entity = null;
+        entry.nextFree = this.free;
+        this.free = entry;
+    }
+
+    private void push(final Entry<E> entry) {
+        if (this.size == this.heap.length) {
+            this.heap = Arrays.copyOf(this.heap, this.size << 1);
+        }
+        this.heap[this.size] = entry;
+        this.size++;
+        this.siftUp(this.size - 1);
+    }
+
+    private Entry<E> poll() {
+        Entry<E> result = this.heap[0];
+        this.size--;
+        this.heap[0] = this.heap[this.size];
+        this.heap[this.size] = null;
+        if (this.size > 0) {
+            this.siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int position) {
+        Entry<E> entry = this.heap[position];
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (!entry.isBefore(this.heap[parent])) {
+                break;
+            }
+            this.heap[position] = this.heap[parent];
+            position = parent;
+        }
+        this.heap[position] = entry;
+    }
+
+    private void siftDown(int position) {
+        Entry<E> entry = this.heap[position];
+        int half = this.size >>> 1;
+        while (position < half) {
+            int child = (position << 1) + 1;
+            int right = child + 1;
+            if (right < this.size && this.heap[right].isBefore(this.heap[child])) {
+                child = right;
+            }
+            if (!this.heap[child].isBefore(entry)) {
+                break;
+            }
+            this.heap[position] = this.heap[child];
+            position = child;
+        }
+        this.heap[position] = entry;
+    }
+
+    /**
+     * A scheduled entity with its absolute completion time.
+     * @param <E> EntityInConstruction real type.
+     */
+    private static final class Entry<E extends EntityInConstruction> {
+
+        private WaitingEntity<E> entity;
+
+        /**
+         * Absolute time when the construction is complete.
+         */
+        private long deadline;
+
+        private long sequence;
+
+        /**
+         * Last time the entity representation remaining time was updated.
+         */
+        private long synchronizedAt;
+
+        private boolean canceled;
+
+        /**
+         * Next entry in the list of reusable entries.
+         */
+        private Entry<E> nextFree;
+
+        private void set(final WaitingEntity<E> entity, final long deadline, final long sequence, final long now) {
+            this.entity = entity;
+            this.deadline = deadline;
+            this.sequence = sequence;
+            this.synchronizedAt = now;
+            this.canceled = false;
+        }
+
+        private boolean isBefore(final Entry<E> other) {
+            return this.deadline < other.deadline || (this.deadline == other.deadline && this.sequence < other.sequence);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.engine.feature.entity.EntityToCreate;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Bounded queue of entities to create, any thread can add entities, only the frame thread drains them.
+ * The drain is limited by a per frame budget in number of entities and in time, the remaining entities are carried over to the next frame.
+ * The queue is a ring buffer where producers reserve a slot by incrementing the tail and publish the entity in it,
+ * the consumer reads the slots in order and stops on a slot not yet published.
+ *
+ * @author Grégory Van den Borre
+ */
+public final class EntityCreationPipeline {
+
+    /**
+     * Default maximum number of entities waiting to be created.
+     */
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * Published entities, a null slot is empty or reserved but not yet published.
+     */
+    private final AtomicReferenceArray<EntityToCreate> buffer;
+
+    /**
+     * Mask to compute the slot from a position, the capacity is a power of two.
+     */
+    private final int mask;
+
+    /**
+     * Next position to reserve by a producer.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * Number of entities refused because the pipeline was full.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Next position to read, only written by the consumer.
+     */
+    private volatile long head;
+
+    /**
+     * Maximum number of entities created in a frame.
+     */
+    private volatile int maxPerFrame = Integer.MAX_VALUE;
+
+    /**
+     * Maximum time spent creating entities in a frame, in nanoseconds.
+     */
+    private volatile long maxTimePerFrame = Long.MAX_VALUE;
+
+    /**
+     * Number of entities created during the last drain.
+     */
+    private volatile int lastDrained;
+
+    /**
+     * Number of entities left in the pipeline after the last drain.
+     */
+    private volatile long lastCarriedOver;
+
+    /**
+     * Create a new instance with the default capacity.
+     */
+    public EntityCreationPipeline() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param capacity Maximum number of entities waiting to be created, rounded up to a power of two.
+     */
+    public EntityCreationPipeline(final int capacity) {
+        super();
+        assert capacity > 0;
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Add an entity to create, can be called from any thread.
+     *
+     * @param entity Entity to create.
+     * @return <code>true</code> if the entity was added, false if the pipeline is full.
+     * @throws NullPointerException If entity is null.
+     */
+    public boolean offer(final EntityToCreate entity) {
+        if (entity == null) {
+            throw new NullPointerException("Entity to create cannot be null.");
+        }
+        long position;
+        do {
+            position = this.tail.get();
+            if (position - this.head > this.mask) {
+                this.rejected.incrementAndGet();
+                return false;
+            }
+        } while (!this.tail.compareAndSet(position, position + 1));
+        this.buffer.lazySet((int) position & this.mask, entity);
+        return true;
+    }
+
+    /**
+     * Add an entity to create, can be called from any thread.
+     *
+     * @param entity Entity to create.
+     * @throws EntityCreationPipelineFullException If the pipeline is full.
+     * @throws NullPointerException If entity is null.
+     */
+    public void add(final EntityToCreate entity) {
+        if (!this.offer(entity)) {
+            throw new EntityCreationPipelineFullException();
+        }
+    }
+
+    /**
+     * Provide the entities to create, in the order they were added, until the pipeline is empty or the frame budget is spent.
+     * Must only be called from the frame thread.
+     *
+     * @param creation Called for every entity to create.
+     * @return The number of provided entities.
+     */
+    public int drain(final Consumer<EntityToCreate> creation) {
+        return this.drain(creation, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Provide the entities to create, in the order they were added, until the pipeline is empty, the frame budget is spent or the limit is reached.
+     * Must only be called from the frame thread.
+     *
+     * @param creation Called for every entity to create.
+     * @param limit Maximum number of entities to provide, in addition to the frame budget.
+     * @return The number of provided entities.
+     */
+    int drain(final Consumer<EntityToCreate> creation, final int limit) {
+        int max = Math.min(this.maxPerFrame, limit);
+        long maxTime = this.maxTimePerFrame;
+        long start = maxTime == Long.MAX_VALUE ? 0 : System.nanoTime();
+        int drained = 0;
+        long position = this.head;
+        while (drained < max) {
+            if (drained > 0 && maxTime != Long.MAX_VALUE && System.nanoTime() - start >= maxTime) {
+                break;
+            }
+            int slot = (int) position & this.mask;
+            EntityToCreate entity = this.buffer.get(slot);
+            if (entity == null) {
+                break;
+            }
+            this.buffer.lazySet(slot, null);
+            position++;
+            this.head = position;
+            drained++;
+            creation.accept(entity);
+        }
+        this.lastDrained = drained;
+        this.lastCarriedOver = this.getBacklog();
+        return drained;
+    }
+
+    /**
+     * Provide the entities waiting to be created, in the order they were added, without removing them.
+     * Must only be called from the frame thread, the entities added meanwhile may not be provided.
+     *
+     * @param max Maximum number of entities to provide.
+     * @param action Called for every waiting entity.
+     * @return The number of provided entities.
+     */
+    int forEachPending(final int max, final Consumer<EntityToCreate> action) {
+        int provided = 0;
+        for (long position = this.head; provided < max; position++) {
+            EntityToCreate entity = this.buffer.get((int) position & this.mask);
+            if (entity == null) {
+                break;
+            }
+            provided++;
+            action.accept(entity);
+        }
+        return provided;
+    }
+
+    /**
+     * Set the per frame budget.
+     *
+     * @param maxEntities Maximum number of entities created in a frame.
+     * @param maxTime Maximum time spent creating entities in a frame, in nanoseconds, at least one entity is created per frame.
+     */
+    public void setBudget(final int maxEntities, final long maxTime) {
+        assert maxEntities > 0;
+        assert maxTime > 0;
+        this.maxPerFrame = maxEntities;
+        this.maxTimePerFrame = maxTime;
+    }
+
+    /**
+     * @return The maximum number of entities waiting to be created.
+     */
+    public int getCapacity() {
+        return this.mask + 1;
+    }
+
+    /**
+     * @return The number of entities waiting to be created.
+     */
+    public long getBacklog() {
+        return Math.max(0, this.tail.get() - this.head);
+    }
+
+    /**
+     * @return <code>true</code> if the pipeline cannot accept any more entity.
+     */
+    public boolean isFull() {
+        return this.getBacklog() > this.mask;
+    }
+
+    /**
+     * @return The number of entities created during the last frame.
+     */
+    public int getLastDrained() {
+        return this.lastDrained;
+    }
+
+    /**
+     * @return The number of entities carried over to the next frame after the last drain.
+     */
+    public long getLastCarriedOver() {
+        return this.lastCarriedOver;
+    }
+
+    /**
+     * @return The number of entities refused since the creation of the pipeline because it was full.
+     */
+    public long getRejected() {
+        return this.rejected.get();
+    }
+}
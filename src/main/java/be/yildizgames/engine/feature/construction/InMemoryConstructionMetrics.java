@@ -0,0 +1,156 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Metrics kept in memory in histograms, to be read from a monitoring thread.
+ * Apart from the first measure of a builder or a listener class, recording does not allocate.
+ *
+ * @author Grégory Van den Borre
+ */
+public class InMemoryConstructionMetrics implements ConstructionMetrics {
+
+    private final ConstructionHistogram frameDuration = new ConstructionHistogram();
+
+    private final ConstructionHistogram waiting = new ConstructionHistogram();
+
+    private final ConstructionHistogram completed = new ConstructionHistogram();
+
+    private final ConstructionHistogram canceled = new ConstructionHistogram();
+
+    private final ConstructionHistogram creationBacklog = new ConstructionHistogram();
+
+    /**
+     * Depths of all the builders queues after every change.
+     */
+    private final ConstructionHistogram queueDepth = new ConstructionHistogram();
+
+    /**
+     * Last depth of every builder queue.
+     */
+    private final Map<EntityId, AtomicInteger> queueDepthByBuilder = new ConcurrentHashMap<>();
+
+    /**
+     * Notification durations by listener class.
+     */
+    private final Map<Class<?>, ConstructionHistogram> listenerDuration = new ConcurrentHashMap<>();
+
+    public InMemoryConstructionMetrics() {
+        super();
+    }
+
+    @Override
+    public void frameEnded(final long duration, final int waiting, final int completed, final int canceled, final long creationBacklog) {
+        this.frameDuration.record(duration);
+        this.waiting.record(waiting);
+        this.completed.record(completed);
+        this.canceled.record(canceled);
+        this.creationBacklog.record(creationBacklog);
+    }
+
+    @Override
+    public void queueChanged(final EntityId builder, final int depth) {
+        this.queueDepth.record(depth);
+        AtomicInteger last = this.queueDepthByBuilder.get(builder);
+        if (last == null) {
+            last = this.queueDepthByBuilder.computeIfAbsent(builder, b -> new AtomicInteger());
+        }
+        last.lazySet(depth);
+    }
+
+    @Override
+    public void listenerNotified(final Object listener, final long duration) {
+        ConstructionHistogram histogram = this.listenerDuration.get(listener.getClass());
+        if (histogram == null) {
+            histogram = this.listenerDuration.computeIfAbsent(listener.getClass(), c -> new ConstructionHistogram());
+        }
+        histogram.record(duration);
+    }
+
+    /**
+     * @return The time spent in the construction manager frames, in nanoseconds.
+     */
+    public ConstructionHistogram getFrameDuration() {
+        return this.frameDuration;
+    }
+
+    /**
+     * @return The number of entities waiting to be built at the end of the frames.
+     */
+    public ConstructionHistogram getWaiting() {
+        return this.waiting;
+    }
+
+    /**
+     * @return The number of constructions completed per frame.
+     */
+    public ConstructionHistogram getCompleted() {
+        return this.completed;
+    }
+
+    /**
+     * @return The number of constructions canceled per frame.
+     */
+    public ConstructionHistogram getCanceled() {
+        return this.canceled;
+    }
+
+    /**
+     * @return The number of entities waiting to be created at the end of the frames.
+     */
+    public ConstructionHistogram getCreationBacklog() {
+        return this.creationBacklog;
+    }
+
+    /**
+     * @return The depths of all the builders queues, recorded after every change.
+     */
+    public ConstructionHistogram getQueueDepth() {
+        return this.queueDepth;
+    }
+
+    /**
+     * @param builder Id of the builder.
+     * @return The depth of the builder queue after its last change, 0 if it never changed.
+     */
+    public int getQueueDepth(final EntityId builder) {
+        AtomicInteger depth = this.queueDepthByBuilder.get(builder);
+        return depth == null ? 0 : depth.get();
+    }
+
+    /**
+     * @return The time spent by the listeners to handle the notifications, in nanoseconds, by listener class.
+     */
+    public Map<Class<?>, ConstructionHistogram> getListenerDuration() {
+        return Collections.unmodifiableMap(this.listenerDuration);
+    }
+}
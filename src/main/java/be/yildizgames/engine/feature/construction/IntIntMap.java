@@ -0,0 +1,226 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import java.util.Arrays;
+
+/**
+ * Hash map with primitive int keys and non negative int values, using open addressing with linear probing.
+ * Removal shifts the following entries back instead of leaving tombstones, as in LongObjectMap.
+ * Neither the keys nor the values are boxed, a negative value marks an empty slot.
+ * This class is not thread safe.
+ *
+ * @author Grégory Van den Borre
+ */
+final class IntIntMap {
+
+    /**
+     * Value returned for a missing key.
+     */
+    static final int MISSING = -1;
+
+    /**
+     * Minimum number of slots.
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Keys, a slot is empty when its value is MISSING.
+     */
+    private int[] keys;
+
+    /**
+     * Values, MISSING for an empty slot.
+     */
+    private int[] values;
+
+    /**
+     * Mask to compute a slot from a hash, the capacity is a power of two.
+     */
+    private int mask;
+
+    private int size;
+
+    /**
+     * Number of entries before the arrays are grown, 3/4 of the capacity.
+     */
+    private int threshold;
+
+    IntIntMap() {
+        super();
+        this.allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Retrieve a value.
+     *
+     * @param key Key of the value.
+     * @return The value for the key, MISSING if there is none.
+     */
+    int get(final int key) {
+        int slot = this.slot(key);
+        int value;
+        while ((value = this.values[slot]) != MISSING) {
+            if (this.keys[slot] == key) {
+                return value;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Associate a value to a key.
+     *
+     * @param key Key of the value.
+     * @param value Value to set.
+     * @return The previous value for that key, MISSING if there was none.
+     * @throws IllegalArgumentException If value is negative.
+     */
+    int put(final int key, final int value) {
+        return this.put(key, value, true);
+    }
+
+    /**
+     * Associate a value to a key, if that key has no value yet.
+     *
+     * @param key Key of the value.
+     * @param value Value to set.
+     * @return The current value for that key, MISSING if there was none and the value was set.
+     * @throws IllegalArgumentException If value is negative.
+     */
+    int putIfAbsent(final int key, final int value) {
+        return this.put(key, value, false);
+    }
+
+    /**
+     * Remove an entry, only if the key is associated to the given value.
+     *
+     * @param key Key of the value to remove.
+     * @param value Expected value.
+     * @return <code>true</code> if the entry was removed, false otherwise.
+     */
+    boolean remove(final int key, final int value) {
+        int slot = this.slot(key);
+        int current;
+        while ((current = this.values[slot]) != MISSING) {
+            if (this.keys[slot] == key) {
+                if (current != value) {
+                    return false;
+                }
+                this.shiftBack(slot);
+                this.size--;
+                return true;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    void clear() {
+        Arrays.fill(this.values, MISSING);
+        this.size = 0;
+    }
+
+    private int put(final int key, final int value, final boolean replace) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative values are not supported.");
+        }
+        int slot = this.slot(key);
+        int current;
+        while ((current = this.values[slot]) != MISSING) {
+            if (this.keys[slot] == key) {
+                if (replace) {
+                    this.values[slot] = value;
+                }
+                return current;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+        if (this.size > this.threshold) {
+            this.rehash(this.values.length << 1);
+        }
+        return MISSING;
+    }
+
+    /**
+     * Empty a slot and move back the following entries of the same probe sequence.
+     *
+     * @param emptied Slot to empty.
+     */
+    private void shiftBack(int emptied) {
+        int slot = emptied;
+        while (true) {
+            slot = (slot + 1) & this.mask;
+            if (this.values[slot] == MISSING) {
+                break;
+            }
+            int ideal = this.slot(this.keys[slot]);
+            // The entry can move to the emptied slot only if its ideal slot is not between the emptied slot and its current slot.
+            if (((slot - ideal) & this.mask) >= ((slot - emptied) & this.mask)) {
+                this.keys[emptied] = this.keys[slot];
+                this.values[emptied] = this.values[slot];
+                emptied = slot;
+            }
+        }
+        this.values[emptied] = MISSING;
+    }
+
+    private int slot(final int key) {
+        int hash = key * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & this.mask;
+    }
+
+    private void rehash(final int capacity) {
+        int[] oldKeys = this.keys;
+        int[] oldValues = this.values;
+        this.allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int slot = this.slot(oldKeys[i]);
+                while (this.values[slot] != MISSING) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        this.keys = new int[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(this.values, MISSING);
+        this.mask = capacity - 1;
+        this.threshold = capacity * 3 / 4;
+    }
+}
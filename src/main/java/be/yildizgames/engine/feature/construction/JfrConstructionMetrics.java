@@ -0,0 +1,138 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Metrics emitted as Java Flight Recorder events, to correlate the construction cost with the frame drops in a recording.
+ * The frame events are enabled by default, the queue and listener events are disabled by default as they can be numerous,
+ * they can be enabled in the recording settings.
+ * Nothing is emitted when no recording is running.
+ *
+ * @author Grégory Van den Borre
+ */
+public class JfrConstructionMetrics implements ConstructionMetrics {
+
+    public JfrConstructionMetrics() {
+        super();
+    }
+
+    @Override
+    public void frameEnded(final long duration, final int waiting, final int completed, final int canceled, final long creationBacklog) {
+        FrameEvent event = new FrameEvent();
+        if (event.shouldCommit()) {
+            event.frameDuration = duration;
+            event.waiting = waiting;
+            event.completed = completed;
+            event.canceled = canceled;
+            event.creationBacklog = creationBacklog;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void queueChanged(final EntityId builder, final int depth) {
+        QueueEvent event = new QueueEvent();
+        if (event.shouldCommit()) {
+            event.builder = builder.value;
+            event.depth = depth;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void listenerNotified(final Object listener, final long duration) {
+        ListenerEvent event = new ListenerEvent();
+        if (event.shouldCommit()) {
+            event.listener = listener.getClass();
+            event.notificationDuration = duration;
+            event.commit();
+        }
+    }
+
+    @Name("be.yildizgames.construction.Frame")
+    @Label("Construction Frame")
+    @Description("Construction manager work at the end of a frame.")
+    @Category({"Yildiz", "Construction"})
+    @StackTrace(false)
+    static final class FrameEvent extends Event {
+
+        @Label("Frame Duration")
+        @Timespan
+        long frameDuration;
+
+        @Label("Waiting Entities")
+        int waiting;
+
+        @Label("Completed")
+        int completed;
+
+        @Label("Canceled")
+        int canceled;
+
+        @Label("Creation Backlog")
+        long creationBacklog;
+    }
+
+    @Name("be.yildizgames.construction.Queue")
+    @Label("Construction Queue")
+    @Description("Builder queue depth after a change.")
+    @Category({"Yildiz", "Construction"})
+    @StackTrace(false)
+    @Enabled(false)
+    static final class QueueEvent extends Event {
+
+        @Label("Builder")
+        long builder;
+
+        @Label("Depth")
+        int depth;
+    }
+
+    @Name("be.yildizgames.construction.Listener")
+    @Label("Construction Listener")
+    @Description("Time spent by a listener to handle a construction notification.")
+    @Category({"Yildiz", "Construction"})
+    @StackTrace(false)
+    @Enabled(false)
+    static final class ListenerEvent extends Event {
+
+        @Label("Listener")
+        Class<?> listener;
+
+        @Label("Notification Duration")
+        @Timespan
+        long notificationDuration;
+    }
+}
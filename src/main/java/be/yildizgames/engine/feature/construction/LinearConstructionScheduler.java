@@ -0,0 +1,134 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler reducing the time left of every waiting entity at each frame.
+ * Cheap for a few constructions, the cost of a frame grows with the number of waiting entities.
+ * The remaining time is the one of the waiting entity representation, reduced at each frame, the provided duration is not used.
+ * The entities are identified by their instance, as their representation is mutated while scheduled,
+ * their membership is tracked in an identity set so scheduling an entity is done in constant time.
+ * As with the DeadlineConstructionScheduler, scheduling an entity already scheduled reschedules it:
+ * it is kept once and moved after the other scheduled entities.
+ * The entities completed in a frame are provided once the frame is fully processed, so the completion callback
+ * can schedule or cancel entities.
+ * @param <E> EntityInConstruction real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public class LinearConstructionScheduler<E extends EntityInConstruction> implements ConstructionScheduler<E> {
+
+    /**
+     * List of entities waiting to be build.
+     */
+    private final List<WaitingEntity<E>> entities = new ArrayList<>();
+
+    /**
+     * Entities in the list, by instance.
+     */
+    private final Set<WaitingEntity<E>> scheduled = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Entities completed during the current advance, reused between frames.
+     */
+    private final List<WaitingEntity<E>> completedBuffer = new ArrayList<>();
+
+    public LinearConstructionScheduler() {
+        super();
+    }
+
+    @Override
+    public void schedule(final WaitingEntity<E> entity, final long duration) {
+        assert entity != null;
+        if (!this.scheduled.add(entity)) {
+            this.entities.remove(this.indexOf(entity));
+        }
+        this.entities.add(entity);
+    }
+
+    @Override
+    public boolean cancel(final WaitingEntity<E> entity) {
+        if (!this.scheduled.remove(entity)) {
+            return false;
+        }
+        this.entities.remove(this.indexOf(entity));
+        return true;
+    }
+
+    @Override
+    public void advance(final long time, final Consumer<WaitingEntity<E>> completed) {
+        int kept = 0;
+        for (int i = 0; i < this.entities.size(); i++) {
+            WaitingEntity<E> waitingEntity = this.entities.get(i);
+            waitingEntity.representation.reduceTimeLeft(time);
+            if (waitingEntity.representation.isTimeElapsed()) {
+                this.scheduled.remove(waitingEntity);
+                this.completedBuffer.add(waitingEntity);
+            } else {
+                this.entities.set(kept, waitingEntity);
+                kept++;
+            }
+        }
+        for (int i = this.entities.size() - 1; i >= kept; i--) {
+            this.entities.remove(i);
+        }
+        try {
+            for (int i = 0; i < this.completedBuffer.size(); i++) {
+                completed.accept(this.completedBuffer.get(i));
+            }
+        } finally {
+            this.completedBuffer.clear();
+        }
+    }
+
+    @Override
+    public List<WaitingEntity<E>> getScheduled() {
+        return Collections.unmodifiableList(this.entities);
+    }
+
+    /**
+     * Find a scheduled entity by its instance.
+     *
+     * @param entity Entity to find.
+     * @return The entity position, -1 if it is not scheduled.
+     */
+    private int indexOf(final WaitingEntity<E> entity) {
+        for (int i = 0; i < this.entities.size(); i++) {
+            if (this.entities.get(i) == entity) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Maximum time a synchronous listener can take for a notification.
+ * Listeners going over it are flagged as slow, and can be demoted to an asynchronous dispatch.
+ *
+ * @author Grégory Van den Borre
+ */
+final class ListenerBudget {
+
+    private static final System.Logger LOGGER = System.getLogger(ListenerBudget.class.getName());
+
+    /**
+     * Maximum duration of a notification, in nanoseconds.
+     */
+    private final long maxDuration;
+
+    /**
+     * Buffer capacity of the demoted listeners, 0 to only flag them.
+     */
+    private final int demoteCapacity;
+
+    /**
+     * Listeners which went over the budget at least once.
+     */
+    private final Set<Object> slowListeners = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Create a new instance.
+     *
+     * @param maxDuration Maximum duration of a notification, in nanoseconds.
+     * @param demoteCapacity Buffer capacity of the demoted listeners, 0 to only flag them.
+     */
+    ListenerBudget(final long maxDuration, final int demoteCapacity) {
+        super();
+        assert maxDuration > 0;
+        assert demoteCapacity >= 0;
+        this.maxDuration = maxDuration;
+        this.demoteCapacity = demoteCapacity;
+    }
+
+    /**
+     * Check a notification duration, flag the listener if it is over the budget.
+     *
+     * @param listener Notified listener.
+     * @param duration Duration of the notification, in nanoseconds.
+     * @return <code>true</code> if the listener must be demoted to an asynchronous dispatch.
+     */
+    boolean isExceeded(final Object listener, final long duration) {
+        if (duration <= this.maxDuration) {
+            return false;
+        }
+        if (this.slowListeners.add(listener)) {
+            LOGGER.log(System.Logger.Level.WARNING, "Slow listener " + listener.getClass().getName() + ": " + duration + "ns, budget: " + this.maxDuration + "ns");
+        }
+        return this.demoteCapacity > 0;
+    }
+
+    /**
+     * @return The buffer capacity of the demoted listeners.
+     */
+    int getDemoteCapacity() {
+        return this.demoteCapacity;
+    }
+
+    /**
+     * @return The listeners which went over the budget at least once.
+     */
+    Set<Object> getSlowListeners() {
+        return Collections.unmodifiableSet(this.slowListeners);
+    }
+}
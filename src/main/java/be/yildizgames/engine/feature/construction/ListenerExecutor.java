@@ -0,0 +1,158 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run the notifications of an asynchronous listener on a dedicated thread, in the order they were submitted.
+ * The notifications are kept in a bounded buffer, when it is full the submitting thread waits for a free place,
+ * so no notification is lost, the waits are counted and logged once.
+ *
+ * @author Grégory Van den Borre
+ */
+final class ListenerExecutor implements AutoCloseable {
+
+    private static final System.Logger LOGGER = System.getLogger(ListenerExecutor.class.getName());
+
+    /**
+     * Time the consumer waits for a notification before checking if this executor is closed, in milliseconds.
+     */
+    private static final long POLL_TIMEOUT = 100;
+
+    /**
+     * Notifications waiting to be run.
+     */
+    private final BlockingQueue<Runnable> buffer;
+
+    /**
+     * Number of notifications which had to wait for a free place in the buffer.
+     */
+    private final AtomicLong blocked = new AtomicLong();
+
+    /**
+     * Thread running the notifications.
+     */
+    private final Thread consumer;
+
+    private volatile boolean closed;
+
+    /**
+     * Create a new instance and start its consumer thread.
+     *
+     * @param name Name of the consumer thread.
+     * @param capacity Maximum number of notifications waiting to be run.
+     */
+    ListenerExecutor(final String name, final int capacity) {
+        super();
+        assert name != null;
+        assert capacity > 0;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.consumer = new Thread(this::consume, name);
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+
+    /**
+     * Submit a notification to run, can be called from any thread.
+     *
+     * If the buffer is full, wait until the consumer thread frees a place.
+     *
+     * @param notification Notification to run.
+     * @throws IllegalStateException If this executor is closed, or if the calling thread is interrupted while waiting.
+     */
+    void submit(final Runnable notification) {
+        if (this.closed) {
+            throw new IllegalStateException("Listener executor " + this.consumer.getName() + " is closed.");
+        }
+        if (this.buffer.offer(notification)) {
+            return;
+        }
+        if (this.blocked.getAndIncrement() == 0) {
+            LOGGER.log(System.Logger.Level.WARNING, "Listener buffer " + this.consumer.getName() + " is full, waiting for the listener.");
+        }
+        try {
+            this.buffer.put(notification);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the listener buffer " + this.consumer.getName() + ".", e);
+        }
+    }
+
+    /**
+     * @return The number of notifications waiting to be run.
+     */
+    int getBacklog() {
+        return this.buffer.size();
+    }
+
+    /**
+     * @return The number of notifications which had to wait for a free place in the buffer.
+     */
+    long getBlocked() {
+        return this.blocked.get();
+    }
+
+    /**
+     * Stop accepting notifications, the notifications already accepted are still run.
+     */
+    @Override
+    public void close() {
+        this.closed = true;
+    }
+
+    /**
+     * Wait for the consumer thread to run all the notifications accepted before the close.
+     *
+     * @param timeout Maximum time to wait, in milliseconds.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    void awaitTermination(final long timeout) throws InterruptedException {
+        this.consumer.join(timeout);
+    }
+
+    private void consume() {
+        while (!this.closed || !this.buffer.isEmpty()) {
+            Runnable notification;
+            try {
+                notification = this.buffer.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (notification == null) {
+                continue;
+            }
+            try {
+                notification.run();
+            } catch (RuntimeException e) {
+                LOGGER.log(System.Logger.Level.ERROR, "Listener notification failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**
+ * Hash map with primitive long keys, using open addressing with linear probing.
+ * Removal shifts the following entries back instead of leaving tombstones, so lookups never degrade after many removals.
+ * Keys are not boxed and entries are not wrapped, a lookup reads two arrays.
+ * This class is not thread safe.
+ * @param <V> Value type.
+ *
+ * @author Grégory Van den Borre
+ */
+final class LongObjectMap<V> {
+
+    /**
+     * Minimum number of slots.
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Keys, a slot is empty when its value is null.
+     */
+    private long[] keys;
+
+    /**
+     * Values, null for an empty slot.
+     */
+    private Object[] values;
+
+    /**
+     * Mask to compute a slot from a hash, the capacity is a power of two.
+     */
+    private int mask;
+
+    private int size;
+
+    /**
+     * Number of entries before the arrays are grown, 3/4 of the capacity.
+     */
+    private int threshold;
+
+    LongObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param expected Expected number of entries.
+     */
+    LongObjectMap(final int expected) {
+        super();
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expected) {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    /**
+     * Retrieve a value.
+     *
+     * @param key Key of the value.
+     * @return The value for the key, null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    V get(final long key) {
+        int slot = this.slot(key);
+        Object value;
+        while ((value = this.values[slot]) != null) {
+            if (this.keys[slot] == key) {
+                return (V) value;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return null;
+    }
+
+    /**
+     * Associate a value to a key.
+     *
+     * @param key Key of the value.
+     * @param value Value to set.
+     * @return The previous value for that key, null if there was none.
+     * @throws NullPointerException If value is null.
+     */
+    @SuppressWarnings("unchecked")
+    V put(final long key, final V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not supported.");
+        }
+        int slot = this.slot(key);
+        Object current;
+        while ((current = this.values[slot]) != null) {
+            if (this.keys[slot] == key) {
+                this.values[slot] = value;
+                return (V) current;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value;
+        this.size++;
+        if (this.size > this.threshold) {
+            this.rehash(this.values.length << 1);
+        }
+        return null;
+    }
+
+    /**
+     * Remove a value.
+     *
+     * @param key Key of the value to remove.
+     * @return The removed value, null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    V remove(final long key) {
+        int slot = this.slot(key);
+        Object current;
+        while ((current = this.values[slot]) != null) {
+            if (this.keys[slot] == key) {
+                this.shiftBack(slot);
+                this.size--;
+                return (V) current;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return null;
+    }
+
+    int size() {
+        return this.size;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Provide every value, in no particular order, the map must not be modified meanwhile.
+     *
+     * @param action Called for every value.
+     */
+    @SuppressWarnings("unchecked")
+    void forEachValue(final Consumer<V> action) {
+        for (int i = 0; i < this.values.length; i++) {
+            Object value = this.values[i];
+            if (value != null) {
+                action.accept((V) value);
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(this.values, null);
+        this.size = 0;
+    }
+
+    /**
+     * Empty a slot and move back the following entries of the same probe sequence.
+     *
+     * @param emptied Slot to empty.
+     */
+    private void shiftBack(int emptied) {
+        int slot = emptied;
+        while (true) {
+            slot = (slot + 1) & this.mask;
+            if (this.values[slot] == null) {
+                break;
+            }
+            int ideal = this.slot(this.keys[slot]);
+            // The entry can move to the emptied slot only if its ideal slot is not between the emptied slot and its current slot.
+            if (((slot - ideal) & this.mask) >= ((slot - emptied) & this.mask)) {
+                this.keys[emptied] = this.keys[slot];
+                this.values[emptied] = this.values[slot];
+                emptied = slot;
+            }
+        }
+        this.values[emptied] = null;
+    }
+
+    private int slot(final long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & this.mask;
+    }
+
+    private void rehash(final int capacity) {
+        long[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        this.allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = this.slot(oldKeys[i]);
+                while (this.values[slot] != null) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(final int capacity) {
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+        this.mask = capacity - 1;
+        this.threshold = capacity * 3 / 4;
+    }
+}
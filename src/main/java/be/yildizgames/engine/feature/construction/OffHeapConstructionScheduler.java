@@ -0,0 +1,428 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler storing the state of the waiting entities in fixed size records out of the heap, in a direct buffer, for worlds with millions of constructions.
+ * The scheduled waiting entities are not kept, new instances are materialized with a state factory when they are completed or retrieved,
+ * so the heap used by this scheduler does not grow with the number of constructions.
+ * The slots of the completed and canceled entities are reused through a free list, the entities are found by id with an open addressing table, also out of the heap.
+ * Entities completed in the same frame are provided in slot order, an entity is identified by its id, so only one entity per id can be scheduled.
+ * @param <E> EntityInConstruction real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public class OffHeapConstructionScheduler<E extends EntityInConstruction> implements ConstructionScheduler<E> {
+
+    /**
+     * Size of a record, in bytes.
+     */
+    static final int RECORD_SIZE = 48;
+
+    /**
+     * Maximum number of records, all the records are kept in a single buffer.
+     */
+    static final int MAX_CAPACITY = Integer.MAX_VALUE / RECORD_SIZE;
+
+    /**
+     * Initial number of records.
+     */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int TIME = 0;
+
+    private static final int ENTITY = 8;
+
+    private static final int BUILDER = 16;
+
+    private static final int OWNER = 24;
+
+    private static final int ENTITY_TYPE = 28;
+
+    private static final int STATUS_TYPE = 32;
+
+    private static final int REQUEST = 36;
+
+    /**
+     * Next free slot for a free record, USED for a scheduled one.
+     */
+    private static final int NEXT = 40;
+
+    /**
+     * Size of an entry in the id table: the entity id and its slot.
+     */
+    private static final int ENTRY_SIZE = 12;
+
+    private static final int USED = -2;
+
+    private static final int NONE = -1;
+
+    /**
+     * Factory to materialize the entities and their representation.
+     */
+    private final ConstructionStateFactory<E, ?> factory;
+
+    /**
+     * Records of the scheduled entities.
+     */
+    private ByteBuffer records;
+
+    /**
+     * Number of records the buffer can hold.
+     */
+    private int capacity;
+
+    /**
+     * Number of slots used at least once.
+     */
+    private int used;
+
+    /**
+     * First free slot, NONE if there is none below the used count.
+     */
+    private int free = NONE;
+
+    /**
+     * Number of scheduled entities.
+     */
+    private int size;
+
+    /**
+     * Open addressing table from the entity id to its slot, an entry with a NONE slot is empty.
+     */
+    private ByteBuffer table;
+
+    private int tableMask;
+
+    /**
+     * Slots completed during the current frame.
+     */
+    private int[] completedSlots = new int[16];
+
+    /**
+     * Create a new instance.
+     *
+     * @param factory Factory to materialize the entities and their representation.
+     */
+    public OffHeapConstructionScheduler(final ConstructionStateFactory<E, ?> factory) {
+        this(factory, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param factory Factory to materialize the entities and their representation.
+     * @param capacity Expected number of simultaneous constructions.
+     * @throws NullPointerException If factory is null.
+     * @throws ConstructionSchedulerFullException If the capacity is over MAX_CAPACITY.
+     */
+    public OffHeapConstructionScheduler(final ConstructionStateFactory<E, ?> factory, final int capacity) {
+        super();
+        assert factory != null;
+        this.factory = factory;
+        this.capacity = Math.max(1, capacity);
+        this.records = allocate(bufferSize(this.capacity, RECORD_SIZE));
+        int tableSize = Integer.highestOneBit(this.capacity) << 2;
+        this.table = newTable(tableSize);
+        this.tableMask = tableSize - 1;
+    }
+
+    @Override
+    public void schedule(final WaitingEntity<E> entity, final long duration) {
+        assert entity != null;
+        long id = entity.entity.getId().value;
+        int slot = this.find(id);
+        if (slot == NONE) {
+            slot = this.allocateSlot();
+            this.insert(id, slot);
+            this.size++;
+        }
+        int position = slot * RECORD_SIZE;
+        this.records.putLong(position + TIME, duration);
+        this.records.putLong(position + ENTITY, id);
+        this.records.putLong(position + BUILDER, entity.builderId.value);
+        this.records.putInt(position + OWNER, entity.entity.getOwner().value);
+        this.records.putInt(position + ENTITY_TYPE, entity.entity.getType().type);
+        this.records.putInt(position + STATUS_TYPE, entity.representation.type.type);
+        this.records.putInt(position + REQUEST, entity.representation.index);
+        this.records.putInt(position + NEXT, USED);
+    }
+
+    @Override
+    public boolean cancel(final WaitingEntity<E> entity) {
+        int slot = this.remove(entity.entity.getId().value);
+        if (slot == NONE) {
+            return false;
+        }
+        this.releaseSlot(slot);
+        return true;
+    }
+
+    @Override
+    public void advance(final long time, final Consumer<WaitingEntity<E>> completed) {
+        int completedSize = 0;
+        for (int slot = 0; slot < this.used; slot++) {
+            int position = slot * RECORD_SIZE;
+            if (this.records.getInt(position + NEXT) == USED) {
+                long left = this.records.getLong(position + TIME) - time;
+                this.records.putLong(position + TIME, left);
+                if (left <= 0) {
+                    if (completedSize == this.completedSlots.length) {
+                        this.completedSlots = Arrays.copyOf(this.completedSlots, completedSize << 1);
+                    }
+                    this.completedSlots[completedSize] = slot;
+                    completedSize++;
+                }
+            }
+        }
+        for (int i = 0; i < completedSize; i++) {
+            int slot = this.completedSlots[i];
+            int position = slot * RECORD_SIZE;
+            if (this.records.getInt(position + NEXT) != USED || this.records.getLong(position + TIME) > 0) {
+                // Canceled, and possibly reused, by a previous completion callback.
+                continue;
+            }
+            WaitingEntity<E> entity = this.materialize(slot);
+            this.remove(this.records.getLong(position + ENTITY));
+            this.releaseSlot(slot);
+            completed.accept(entity);
+        }
+    }
+
+    @Override
+    public List<WaitingEntity<E>> getScheduled() {
+        List<WaitingEntity<E>> result = new ArrayList<>(this.size);
+        for (int slot = 0; slot < this.used; slot++) {
+            if (this.records.getInt(slot * RECORD_SIZE + NEXT) == USED) {
+                result.add(this.materialize(slot));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public List<WaitingEntity<E>> getScheduled(final PlayerId player) {
+        List<WaitingEntity<E>> result = new ArrayList<>();
+        for (int slot = 0; slot < this.used; slot++) {
+            int position = slot * RECORD_SIZE;
+            if (this.records.getInt(position + NEXT) == USED && this.records.getInt(position + OWNER) == player.value) {
+                result.add(this.materialize(slot));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public void synchronize(final WaitingEntity<E> entity) {
+        int slot = this.find(entity.entity.getId().value);
+        if (slot != NONE) {
+            long elapsed = entity.representation.getTimeLeft() - this.records.getLong(slot * RECORD_SIZE + TIME);
+            if (elapsed != 0) {
+                entity.representation.reduceTimeLeft(elapsed);
+            }
+        }
+    }
+
+    @Override
+    public boolean isRetainingEntities() {
+        return false;
+    }
+
+    /**
+     * @return The number of scheduled entities.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * @return The number of bytes used out of the heap.
+     */
+    public long getOffHeapSize() {
+        return (long) this.records.capacity() + this.table.capacity();
+    }
+
+    private WaitingEntity<E> materialize(final int slot) {
+        int position = slot * RECORD_SIZE;
+        E entity = this.factory.createEntity(
+                this.records.getInt(position + ENTITY_TYPE),
+                EntityId.valueOf(this.records.getLong(position + ENTITY)),
+                PlayerId.valueOf(this.records.getInt(position + OWNER)));
+        return new WaitingEntity<>(entity,
+                this.factory.create(this.records.getInt(position + STATUS_TYPE), this.records.getInt(position + REQUEST), this.records.getLong(position + TIME)),
+                EntityId.valueOf(this.records.getLong(position + BUILDER)));
+    }
+
+    private int allocateSlot() {
+        if (this.free != NONE) {
+            int slot = this.free;
+            this.free = this.records.getInt(slot * RECORD_SIZE + NEXT);
+            return slot;
+        }
+        if (this.used == this.capacity) {
+            this.grow();
+        }
+        int slot = this.used;
+        this.used++;
+        return slot;
+    }
+
+    private void releaseSlot(final int slot) {
+        this.records.putInt(slot * RECORD_SIZE + NEXT, this.free);
+        this.free = slot;
+        this.size--;
+    }
+
+    private void grow() {
+        if (this.capacity == MAX_CAPACITY) {
+            throw new ConstructionSchedulerFullException("Off-heap scheduler full, it cannot hold more than " + MAX_CAPACITY + " constructions.");
+        }
+        this.capacity = (int) Math.min((long) this.capacity << 1, MAX_CAPACITY);
+        ByteBuffer bigger = allocate(bufferSize(this.capacity, RECORD_SIZE));
+        this.records.clear();
+        bigger.put(this.records);
+        bigger.clear();
+        this.records = bigger;
+        if (this.capacity << 1 > this.tableMask + 1) {
+            this.rehash((this.tableMask + 1) << 1);
+        }
+    }
+
+    private int find(final long id) {
+        for (int bucket = hash(id) & this.tableMask; ; bucket = (bucket + 1) & this.tableMask) {
+            int position = bucket * ENTRY_SIZE;
+            int slot = this.table.getInt(position + 8);
+            if (slot == NONE) {
+                return NONE;
+            }
+            if (this.table.getLong(position) == id) {
+                return slot;
+            }
+        }
+    }
+
+    private void insert(final long id, final int slot) {
+        int bucket = hash(id) & this.tableMask;
+        while (this.table.getInt(bucket * ENTRY_SIZE + 8) != NONE) {
+            bucket = (bucket + 1) & this.tableMask;
+        }
+        this.table.putLong(bucket * ENTRY_SIZE, id);
+        this.table.putInt(bucket * ENTRY_SIZE + 8, slot);
+    }
+
+    /**
+     * Remove an id from the table, shifting back the following entries of the probe sequence.
+     *
+     * @param id Id to remove.
+     * @return The slot of the removed id, NONE if it was not present.
+     */
+    private int remove(final long id) {
+        int bucket = hash(id) & this.tableMask;
+        int slot;
+        while (true) {
+            slot = this.table.getInt(bucket * ENTRY_SIZE + 8);
+            if (slot == NONE) {
+                return NONE;
+            }
+            if (this.table.getLong(bucket * ENTRY_SIZE) == id) {
+                break;
+            }
+            bucket = (bucket + 1) & this.tableMask;
+        }
+        int hole = bucket;
+        for (int next = (hole + 1) & this.tableMask; ; next = (next + 1) & this.tableMask) {
+            int nextSlot = this.table.getInt(next * ENTRY_SIZE + 8);
+            if (nextSlot == NONE) {
+                break;
+            }
+            long nextId = this.table.getLong(next * ENTRY_SIZE);
+            int home = hash(nextId) & this.tableMask;
+            if (((next - home) & this.tableMask) >= ((next - hole) & this.tableMask)) {
+                this.table.putLong(hole * ENTRY_SIZE, nextId);
+                this.table.putInt(hole * ENTRY_SIZE + 8, nextSlot);
+                hole = next;
+            }
+        }
+        this.table.putInt(hole * ENTRY_SIZE + 8, NONE);
+        return slot;
+    }
+
+    private void rehash(final int tableSize) {
+        this.table = newTable(tableSize);
+        this.tableMask = tableSize - 1;
+        for (int slot = 0; slot < this.used; slot++) {
+            int position = slot * RECORD_SIZE;
+            if (this.records.getInt(position + NEXT) == USED) {
+                this.insert(this.records.getLong(position + ENTITY), slot);
+            }
+        }
+    }
+
+    private static ByteBuffer newTable(final int tableSize) {
+        ByteBuffer table = allocate(bufferSize(tableSize, ENTRY_SIZE));
+        for (int i = 0; i < tableSize; i++) {
+            table.putInt(i * ENTRY_SIZE + 8, NONE);
+        }
+        return table;
+    }
+
+    /**
+     * Compute the size of a buffer without overflowing.
+     *
+     * @param count Number of elements.
+     * @param size Size of an element, in bytes.
+     * @return The buffer size, in bytes.
+     * @throws ConstructionSchedulerFullException If the buffer would be larger than the maximum buffer size.
+     */
+    private static int bufferSize(final long count, final int size) {
+        long bytes = count * size;
+        if (bytes > Integer.MAX_VALUE) {
+            throw new ConstructionSchedulerFullException("Off-heap scheduler full, a buffer of " + count + " elements of " + size
+                    + " bytes is over the maximum buffer size, the scheduler cannot hold more than " + MAX_CAPACITY + " constructions.");
+        }
+        return (int) bytes;
+    }
+
+    private static ByteBuffer allocate(final int size) {
+        return ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+    }
+
+    private static int hash(final long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -41,7 +41,8 @@ public interface QueueBuilder<R extends EntityConstructionStatus> extends Builde
     ConstructionQueue<R> getQueue();
 
     /**
-     * Set the entity construction queue used by the builder.
+     * Set the entity construction queue used by the builder, all the elements get the normal priority.
+     * The implementations are expected to use ConstructionQueue.set, so the elements whose request was being built stay in progress.
      *
      * @param queue Queue to set
      */
@@ -60,4 +61,26 @@ public interface QueueBuilder<R extends EntityConstructionStatus> extends Builde
      * @param r Element to build.
      */
     void addInQueue(R r);
+
+    /**
+     * Add an element to build in the queue, with a priority.
+     * By default, the normal priority uses addInQueue(R), other priorities are added directly in the queue.
+     *
+     * @param r Element to build.
+     * @param priority Priority class of the element.
+     */
+    default void addInQueue(R r, ConstructionPriority priority) {
+        if (priority == ConstructionPriority.NORMAL) {
+            this.addInQueue(r);
+        } else {
+            this.getQueue().add(r, priority);
+        }
+    }
+
+    /**
+     * @return The number of entities this builder can build at the same time.
+     */
+    default int getProductionSlots() {
+        return 1;
+    }
 }
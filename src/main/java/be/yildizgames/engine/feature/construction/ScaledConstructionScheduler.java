@@ -0,0 +1,405 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Scheduler building at a different speed for every player and builder.
+ * The rates are set on this scheduler, kept by the caller creating the ConstructionManager with it, the other schedulers do not support rates.
+ * Every builder has a clock per owner of its waiting entities, advancing at the frame time multiplied by the builder rate and by that owner rate,
+ * so a builder changing owner builds its new entities at the new owner rate.
+ * The completion deadlines of the entities are expressed on their clock, in a min-heap per clock.
+ * Changing a rate is done in constant time, whatever the number of constructions, and applies from the next frame.
+ * A frame touches every clock with waiting entities, and the entities completed during that frame.
+ * A clock is forgotten once it has no waiting entity, a builder rate is kept until it is set back to 1 or the builder is removed.
+ * An entity scheduled during a frame, from a completion callback, only starts to advance from the next frame.
+ * A cancel is done in constant time by marking the entry, canceled entries are discarded once they reach the top of their heap.
+ * The remaining time of the waiting entities representation, in construction time at rate 1, is only updated when they are completed or retrieved.
+ * Entities completed in the same frame are provided by clock, then by completion time, then by scheduling order.
+ * @param <E> EntityInConstruction real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public class ScaledConstructionScheduler<E extends EntityInConstruction> implements ConstructionScheduler<E> {
+
+    /**
+     * Rate of the players and builders without a rate set.
+     */
+    private static final Rate DEFAULT_RATE = new Rate();
+
+    /**
+     * Entries by their waiting entity instance, only contains the active entries.
+     */
+    private final Map<WaitingEntity<E>, Entry<E>> entries = new IdentityHashMap<>();
+
+    /**
+     * Clocks with waiting entities, by builder id, the clocks of a builder are chained, one per owner.
+     */
+    private final LongObjectMap<Clock<E>> clocks = new LongObjectMap<>();
+
+    /**
+     * Clocks with waiting entities, in activation order.
+     */
+    private final List<Clock<E>> active = new ArrayList<>();
+
+    /**
+     * Clocks advanced during the current frame, reused to avoid allocations.
+     */
+    private final List<Clock<E>> advancing = new ArrayList<>();
+
+    /**
+     * Rates of the players.
+     */
+    private final Map<PlayerId, Rate> playerRates = new HashMap<>();
+
+    /**
+     * Rates of the builders, only for the builders with a rate different from 1.
+     */
+    private final LongObjectMap<Rate> builderRates = new LongObjectMap<>();
+
+    /**
+     * Incremented for every scheduled entity, used to keep the scheduling order for entries with the same deadline.
+     */
+    private long sequence;
+
+    public ScaledConstructionScheduler() {
+        super();
+    }
+
+    @Override
+    public void schedule(final WaitingEntity<E> entity, final long duration) {
+        assert entity != null;
+        Clock<E> clock = this.getClock(entity.builderId.value, entity.entity.getOwner());
+        Entry<E> entry = new Entry<>(entity, clock, clock.time + Math.max(0, duration), this.sequence++);
+        Entry<E> previous = this.entries.put(entity, entry);
+        if (previous != null) {
+            previous.canceled = true;
+        }
+        clock.heap.add(entry);
+    }
+
+    @Override
+    public boolean cancel(final WaitingEntity<E> entity) {
+        Entry<E> entry = this.entries.remove(entity);
+        if (entry == null) {
+            return false;
+        }
+        entry.canceled = true;
+        return true;
+    }
+
+    @Override
+    public void advance(final long time, final Consumer<WaitingEntity<E>> completed) {
+        for (int i = 0; i < this.active.size(); i++) {
+            Clock<E> clock = this.active.get(i);
+            clock.time += time * clock.builderRate.value * clock.playerRate.value;
+            this.advancing.add(clock);
+        }
+        try {
+            for (int i = 0; i < this.advancing.size(); i++) {
+                Clock<E> clock = this.advancing.get(i);
+                Entry<E> top = clock.heap.peek();
+                while (top != null && (top.canceled || top.deadline <= clock.time)) {
+                    clock.heap.poll();
+                    if (!top.canceled) {
+                        this.entries.remove(top.entity);
+                        top.entity.representation.reduceTimeLeft(top.entity.representation.getTimeLeft());
+                        completed.accept(top.entity);
+                    }
+                    top = clock.heap.peek();
+                }
+                if (clock.heap.isEmpty()) {
+                    this.evict(clock);
+                }
+            }
+        } finally {
+            this.advancing.clear();
+        }
+    }
+
+    @Override
+    public List<WaitingEntity<E>> getScheduled() {
+        List<WaitingEntity<E>> result = new ArrayList<>(this.entries.size());
+        for (Entry<E> entry : this.entries.values()) {
+            synchronize(entry);
+            result.add(entry.entity);
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public void synchronize(final WaitingEntity<E> entity) {
+        Entry<E> entry = this.entries.get(entity);
+        if (entry != null) {
+            synchronize(entry);
+        }
+    }
+
+    /**
+     * Set the construction speed of all the entities of a player.
+     *
+     * @param player Player to update.
+     * @param rate Multiplier of the construction speed, 1 for the normal speed, 0 to pause.
+     */
+    public void setPlayerRate(final PlayerId player, final double rate) {
+        assert player != null;
+        assert rate >= 0;
+        this.playerRates.computeIfAbsent(player, p -> new Rate()).value = rate;
+    }
+
+    /**
+     * Set the construction speed of all the entities of a builder, combined with their owner rate.
+     *
+     * @param builder Id of the builder to update.
+     * @param rate Multiplier of the construction speed, 1 for the normal speed, 0 to pause.
+     */
+    public void setBuilderRate(final EntityId builder, final double rate) {
+        assert builder != null;
+        assert rate >= 0;
+        Rate builderRate = this.builderRates.get(builder.value);
+        if (rate == 1) {
+            if (builderRate != null) {
+                this.builderRates.remove(builder.value);
+                this.linkBuilderRate(builder.value, DEFAULT_RATE);
+            }
+            return;
+        }
+        if (builderRate == null) {
+            builderRate = new Rate();
+            this.builderRates.put(builder.value, builderRate);
+            this.linkBuilderRate(builder.value, builderRate);
+        }
+        builderRate.value = rate;
+    }
+
+    /**
+     * Forget a builder clocks and rate, its waiting entities are canceled without notification.
+     * To call when a builder with a rate is destroyed.
+     *
+     * @param builder Id of the builder to forget.
+     */
+    public void removeBuilder(final EntityId builder) {
+        this.builderRates.remove(builder.value);
+        Clock<E> clock = this.clocks.remove(builder.value);
+        while (clock != null) {
+            for (Entry<E> entry : clock.heap) {
+                if (!entry.canceled) {
+                    this.entries.remove(entry.entity);
+                }
+            }
+            clock.heap.clear();
+            this.deactivate(clock);
+            Clock<E> next = clock.next;
+            clock.next = null;
+            clock = next;
+        }
+    }
+
+    /**
+     * @return The number of clocks with waiting entities.
+     */
+    int getClockCount() {
+        return this.active.size();
+    }
+
+    /**
+     * Retrieve the clock of a builder for an owner, creating and activating it if it does not exist.
+     *
+     * @param builder Id of the builder.
+     * @param owner Owner of the entity to schedule.
+     * @return The clock for that builder and owner.
+     */
+    private Clock<E> getClock(final long builder, final PlayerId owner) {
+        Clock<E> head = this.clocks.get(builder);
+        for (Clock<E> clock = head; clock != null; clock = clock.next) {
+            if (clock.owner.equals(owner)) {
+                return clock;
+            }
+        }
+        Rate builderRate = this.builderRates.get(builder);
+        Clock<E> clock = new Clock<>(builder, owner, this.playerRates.computeIfAbsent(owner, p -> new Rate()),
+                builderRate == null ? DEFAULT_RATE : builderRate);
+        clock.next = head;
+        this.clocks.put(builder, clock);
+        clock.activeIndex = this.active.size();
+        this.active.add(clock);
+        return clock;
+    }
+
+    private void linkBuilderRate(final long builder, final Rate rate) {
+        for (Clock<E> clock = this.clocks.get(builder); clock != null; clock = clock.next) {
+            clock.builderRate = rate;
+        }
+    }
+
+    /**
+     * Forget a clock without waiting entities, does nothing if it was already forgotten.
+     *
+     * @param clock Clock to forget.
+     */
+    private void evict(final Clock<E> clock) {
+        this.deactivate(clock);
+        Clock<E> head = this.clocks.get(clock.builder);
+        if (head == clock) {
+            if (clock.next == null) {
+                this.clocks.remove(clock.builder);
+            } else {
+                this.clocks.put(clock.builder, clock.next);
+            }
+        } else {
+            for (Clock<E> previous = head; previous != null; previous = previous.next) {
+                if (previous.next == clock) {
+                    previous.next = clock.next;
+                    break;
+                }
+            }
+        }
+        clock.next = null;
+    }
+
+    private void deactivate(final Clock<E> clock) {
+        if (clock.activeIndex == -1) {
+            return;
+        }
+        int last = this.active.size() - 1;
+        Clock<E> moved = this.active.get(last);
+        this.active.set(clock.activeIndex, moved);
+        moved.activeIndex = clock.activeIndex;
+        this.active.remove(last);
+        clock.activeIndex = -1;
+    }
+
+    /**
+     * Report the remaining construction time to the entity representation.
+     *
+     * @param entry Entry to update.
+     */
+    private static void synchronize(final Entry<?> entry) {
+        long left = (long) Math.ceil(entry.deadline - entry.clock.time);
+        long elapsed = entry.entity.representation.getTimeLeft() - left;
+        if (elapsed != 0) {
+            entry.entity.representation.reduceTimeLeft(elapsed);
+        }
+    }
+
+    /**
+     * Mutable rate, shared by the clocks of a player or of a builder.
+     */
+    private static final class Rate {
+
+        private double value = 1;
+    }
+
+    /**
+     * Time of a builder for one owner, with its waiting entities.
+     * @param <E> EntityInConstruction real type.
+     */
+    private static final class Clock<E extends EntityInConstruction> {
+
+        private final PriorityQueue<Entry<E>> heap = new PriorityQueue<>(Entry::compare);
+
+        /**
+         * Id of the builder.
+         */
+        private final long builder;
+
+        /**
+         * Owner of the entities of this clock.
+         */
+        private final PlayerId owner;
+
+        /**
+         * Rate of the owner.
+         */
+        private final Rate playerRate;
+
+        /**
+         * Rate of the builder, DEFAULT_RATE if the builder has no rate set.
+         */
+        private Rate builderRate;
+
+        /**
+         * Next clock of the same builder, for another owner.
+         */
+        private Clock<E> next;
+
+        /**
+         * Construction time elapsed for this clock.
+         */
+        private double time;
+
+        /**
+         * Position in the active clocks, -1 if not active.
+         */
+        private int activeIndex = -1;
+
+        private Clock(final long builder, final PlayerId owner, final Rate playerRate, final Rate builderRate) {
+            this.builder = builder;
+            this.owner = owner;
+            this.playerRate = playerRate;
+            this.builderRate = builderRate;
+        }
+    }
+    /**
+     * A scheduled entity with its completion time on its builder clock.
+     * @param <E> EntityInConstruction real type.
+     */
+    private static final class Entry<E extends EntityInConstruction> {
+
+        private final WaitingEntity<E> entity;
+
+        private final Clock<E> clock;
+
+        private final double deadline;
+
+        private final long sequence;
+
+        private boolean canceled;
+
+        private Entry(final WaitingEntity<E> entity, final Clock<E> clock, final double deadline, final long sequence) {
+            this.entity = entity;
+            this.clock = clock;
+            this.deadline = deadline;
+            this.sequence = sequence;
+        }
+
+        private static int compare(final Entry<?> a, final Entry<?> b) {
+            int result = Double.compare(a.deadline, b.deadline);
+            return result == 0 ? Long.compare(a.sequence, b.sequence) : result;
+        }
+    }
+}
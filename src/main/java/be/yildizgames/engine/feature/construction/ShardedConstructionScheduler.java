@@ -0,0 +1,217 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Scheduler partitioning the waiting entities by owner across several schedulers, advanced in parallel.
+ * The completed entities are collected by each shard and provided on the calling thread once all shards are done,
+ * shard after shard, in the completion order of each shard, so the order is deterministic for a given set of entities.
+ * If a shard fails, the entities completed by all the shards, including the ones the failing shard collected before failing, are provided first,
+ * then the failure is thrown, so no completed entity is lost.
+ * All methods must be called from the same thread, only the shards advance is done in parallel.
+ * @param <E> EntityInConstruction real type.
+ *
+ * @author Grégory Van den Borre
+ */
+public class ShardedConstructionScheduler<E extends EntityInConstruction> implements ConstructionScheduler<E> {
+
+    /**
+     * Tasks advancing each shard.
+     */
+    private final List<ShardTask<E>> shards;
+
+    /**
+     * Pool running the shards advance.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Create a new instance, using the common fork join pool.
+     *
+     * @param shardNumber Number of shards.
+     * @param shardFactory Create the scheduler used by each shard.
+     */
+    public ShardedConstructionScheduler(final int shardNumber, final Supplier<ConstructionScheduler<E>> shardFactory) {
+        this(shardNumber, shardFactory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Create a new instance.
+     *
+     * @param shardNumber Number of shards.
+     * @param shardFactory Create the scheduler used by each shard.
+     * @param pool Pool running the shards advance.
+     */
+    public ShardedConstructionScheduler(final int shardNumber, final Supplier<ConstructionScheduler<E>> shardFactory, final ForkJoinPool pool) {
+        super();
+        assert shardNumber > 0;
+        assert shardFactory != null;
+        assert pool != null;
+        this.pool = pool;
+        this.shards = new ArrayList<>(shardNumber);
+        for (int i = 0; i < shardNumber; i++) {
+            this.shards.add(new ShardTask<>(shardFactory.get()));
+        }
+    }
+
+    @Override
+    public void schedule(final WaitingEntity<E> entity, final long duration) {
+        assert entity != null;
+        this.getShard(entity).schedule(entity, duration);
+    }
+
+    @Override
+    public boolean cancel(final WaitingEntity<E> entity) {
+        return this.getShard(entity).cancel(entity);
+    }
+
+    @Override
+    public void advance(final long time, final Consumer<WaitingEntity<E>> completed) {
+        for (int i = 1; i < this.shards.size(); i++) {
+            ShardTask<E> task = this.shards.get(i);
+            task.reinitialize();
+            task.time = time;
+            this.pool.execute(task);
+        }
+        ShardTask<E> first = this.shards.get(0);
+        first.time = time;
+        RuntimeException failure = null;
+        try {
+            first.compute();
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        for (int i = 1; i < this.shards.size(); i++) {
+            try {
+                this.shards.get(i).join();
+            } catch (RuntimeException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        try {
+            for (int i = 0; i < this.shards.size(); i++) {
+                List<WaitingEntity<E>> shardCompleted = this.shards.get(i).completed;
+                for (int j = 0; j < shardCompleted.size(); j++) {
+                    completed.accept(shardCompleted.get(j));
+                }
+            }
+        } catch (RuntimeException e) {
+            if (failure != null) {
+                e.addSuppressed(failure);
+            }
+            throw e;
+        } finally {
+            for (int i = 0; i < this.shards.size(); i++) {
+                this.shards.get(i).completed.clear();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public List<WaitingEntity<E>> getScheduled() {
+        List<WaitingEntity<E>> result = new ArrayList<>();
+        for (int i = 0; i < this.shards.size(); i++) {
+            result.addAll(this.shards.get(i).scheduler.getScheduled());
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public List<WaitingEntity<E>> getScheduled(final PlayerId player) {
+        return this.getShard(player).getScheduled(player);
+    }
+
+    @Override
+    public void synchronize(final WaitingEntity<E> entity) {
+        this.getShard(entity).synchronize(entity);
+    }
+
+    @Override
+    public boolean isRetainingEntities() {
+        return this.shards.get(0).scheduler.isRetainingEntities();
+    }
+
+    /**
+     * Retrieve the scheduler responsible for an entity, the entities of a player are always in the same shard.
+     *
+     * @param entity Entity to find the shard.
+     * @return The scheduler of the shard.
+     */
+    private ConstructionScheduler<E> getShard(final WaitingEntity<E> entity) {
+        return this.getShard(entity.entity.getOwner());
+    }
+
+    private ConstructionScheduler<E> getShard(final PlayerId player) {
+        return this.shards.get(Math.floorMod(player.hashCode(), this.shards.size())).scheduler;
+    }
+
+    /**
+     * Advance a shard and collect its completed entities.
+     * @param <E> EntityInConstruction real type.
+     */
+    private static final class ShardTask<E extends EntityInConstruction> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient ConstructionScheduler<E> scheduler;
+
+        /**
+         * Entities completed during the last advance, not yet provided.
+         */
+        private final transient List<WaitingEntity<E>> completed = new ArrayList<>();
+
+        private final transient Consumer<WaitingEntity<E>> collector = this.completed::add;
+
+        private long time;
+
+        private ShardTask(final ConstructionScheduler<E> scheduler) {
+            super();
+            this.scheduler = scheduler;
+        }
+
+        @Override
+        protected void compute() {
+            this.scheduler.advance(this.time, this.collector);
+        }
+    }
+}
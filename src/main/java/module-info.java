@@ -27,6 +27,7 @@ module be.yildizgames.feature.construction.shared {
     requires be.yildizgames.feature.entity.shared;
     requires be.yildizgames.common.geometry;
     requires be.yildizgames.common.frame;
+    requires jdk.jfr;
 
     exports be.yildizgames.engine.feature.construction;
 }
@@ -24,12 +24,16 @@
 
 package be.yildizgames.engine.feature.construction;
 
+import be.yildizgames.common.model.EntityId;
 import be.yildizgames.common.model.PlayerId;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -65,4 +69,60 @@ public class BuilderManagerTest {
         }
     }
 
+    @Nested
+    public class AddBuilder {
+
+        @Test
+        public void withSameId() {
+            BuilderManager<Builder> manager = new BuilderManager<>();
+            TestBuilder first = new TestBuilder(1, 2);
+            TestBuilder second = new TestBuilder(1, 3);
+            manager.addBuilder(first);
+            manager.addBuilder(second);
+            assertSame(second, manager.getBuilderById(EntityId.valueOf(1)).get());
+            assertTrue(manager.getBuilderByPlayer(PlayerId.valueOf(2)).isEmpty());
+            assertEquals(List.of(second), manager.getBuilderByPlayer(PlayerId.valueOf(3)));
+        }
+    }
+
+    @Nested
+    public class RemoveBuilder {
+
+        @Test
+        public void happyFlow() {
+            BuilderManager<Builder> manager = new BuilderManager<>();
+            TestBuilder builder = new TestBuilder(1, 2);
+            manager.addBuilder(builder);
+            assertSame(builder, manager.removeBuilder(EntityId.valueOf(1)).get());
+            assertFalse(manager.getBuilderById(EntityId.valueOf(1)).isPresent());
+            assertTrue(manager.getBuilderByPlayer(PlayerId.valueOf(2)).isEmpty());
+        }
+
+        @Test
+        public void notRegistered() {
+            BuilderManager<Builder> manager = new BuilderManager<>();
+            assertFalse(manager.removeBuilder(EntityId.valueOf(1)).isPresent());
+        }
+    }
+
+    @Nested
+    public class UpdateOwner {
+
+        @Test
+        public void happyFlow() {
+            BuilderManager<Builder> manager = new BuilderManager<>();
+            TestBuilder builder = new TestBuilder(1, 2);
+            manager.addBuilder(builder);
+            builder.setOwner(3);
+            assertTrue(manager.updateOwner(EntityId.valueOf(1)));
+            assertTrue(manager.getBuilderByPlayer(PlayerId.valueOf(2)).isEmpty());
+            assertEquals(List.of(builder), manager.getBuilderByPlayer(PlayerId.valueOf(3)));
+        }
+
+        @Test
+        public void notRegistered() {
+            BuilderManager<Builder> manager = new BuilderManager<>();
+            assertFalse(manager.updateOwner(EntityId.valueOf(1)));
+        }
+    }
 }
@@ -0,0 +1,84 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static be.yildizgames.engine.feature.construction.TestConstructionState.givenAWaitingEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ColumnarConstructionSchedulerTest {
+
+    @Nested
+    public class Advance {
+
+        @Test
+        public void completedInSchedulingOrder() {
+            ColumnarConstructionScheduler<EntityInConstruction> scheduler = new ColumnarConstructionScheduler<>(2);
+            List<WaitingEntity<EntityInConstruction>> entities = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(i, (10 - i) * 10);
+                entities.add(w);
+                scheduler.schedule(w, w.representation.getTimeLeft());
+            }
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(55, completed::add);
+            assertEquals(List.of(entities.get(5), entities.get(6), entities.get(7), entities.get(8), entities.get(9)), completed);
+            assertTrue(entities.get(5).representation.isTimeElapsed());
+            assertEquals(5, scheduler.getScheduled().size());
+            assertEquals(5, entities.get(4).representation.getTimeLeft());
+        }
+
+        @Test
+        public void withCanceled() {
+            ColumnarConstructionScheduler<EntityInConstruction> scheduler = new ColumnarConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w1 = givenAWaitingEntity(1, 10);
+            WaitingEntity<EntityInConstruction> w2 = givenAWaitingEntity(2, 20);
+            WaitingEntity<EntityInConstruction> w3 = givenAWaitingEntity(3, 30);
+            scheduler.schedule(w1, 10);
+            scheduler.schedule(w2, 20);
+            scheduler.schedule(w3, 30);
+            assertTrue(scheduler.cancel(w2));
+            assertFalse(scheduler.cancel(w2));
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(25, completed::add);
+            assertEquals(List.of(w1), completed);
+            assertEquals(List.of(w3), scheduler.getScheduled());
+            scheduler.schedule(w2, 5);
+            scheduler.advance(5, completed::add);
+            assertEquals(List.of(w1, w3, w2), completed);
+        }
+    }
+}
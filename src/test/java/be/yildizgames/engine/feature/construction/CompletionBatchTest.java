@@ -0,0 +1,97 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class CompletionBatchTest {
+
+    private static final EntityType TYPE = new EntityType(1, "a");
+
+    @Nested
+    public class Add {
+
+        @Test
+        public void happyFlow() {
+            CompletionBatch batch = new CompletionBatch();
+            batch.add(EntityId.valueOf(1L), PlayerId.valueOf(2), TYPE, EntityId.valueOf(3L), 4);
+            assertEquals(1, batch.size());
+            assertEquals(EntityId.valueOf(1L), batch.getId(0));
+            assertEquals(PlayerId.valueOf(2), batch.getOwner(0));
+            assertEquals(TYPE, batch.getType(0));
+            assertEquals(EntityId.valueOf(3L), batch.getBuilder(0));
+            assertEquals(4, batch.getRequest(0));
+        }
+
+        @Test
+        public void grown() {
+            CompletionBatch batch = new CompletionBatch();
+            for (int i = 0; i < 100; i++) {
+                batch.add(EntityId.valueOf(i), PlayerId.valueOf(i), TYPE, EntityId.valueOf(i + 1000), i);
+            }
+            assertEquals(100, batch.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(EntityId.valueOf(i), batch.getId(i));
+                assertEquals(EntityId.valueOf(i + 1000), batch.getBuilder(i));
+                assertEquals(i, batch.getRequest(i));
+            }
+        }
+
+        @Test
+        public void outOfBounds() {
+            CompletionBatch batch = new CompletionBatch();
+            batch.add(EntityId.valueOf(1L), PlayerId.valueOf(2), TYPE, EntityId.valueOf(3L), 4);
+            assertThrows(IndexOutOfBoundsException.class, () -> batch.getId(1));
+            assertThrows(IndexOutOfBoundsException.class, () -> batch.getRequest(-1));
+        }
+    }
+
+    @Nested
+    public class Clear {
+
+        @Test
+        public void happyFlow() {
+            CompletionBatch batch = new CompletionBatch();
+            batch.add(EntityId.valueOf(1L), PlayerId.valueOf(2), TYPE, EntityId.valueOf(3L), 4);
+            batch.clear();
+            assertTrue(batch.isEmpty());
+            assertThrows(IndexOutOfBoundsException.class, () -> batch.getId(0));
+            batch.add(EntityId.valueOf(5L), PlayerId.valueOf(6), TYPE, EntityId.valueOf(7L), 8);
+            assertEquals(1, batch.size());
+            assertEquals(EntityId.valueOf(5L), batch.getId(0));
+        }
+    }
+}
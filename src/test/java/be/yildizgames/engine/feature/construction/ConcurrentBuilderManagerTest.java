@@ -0,0 +1,117 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConcurrentBuilderManagerTest {
+
+    @Nested
+    public class AddBuilder {
+
+        @Test
+        public void happyFlow() {
+            AbstractBuilderManager<Builder> manager = new ConcurrentBuilderManager<>();
+            TestBuilder builder = new TestBuilder(1, 2);
+            manager.addBuilder(builder);
+            assertSame(builder, manager.getBuilderById(EntityId.valueOf(1)).get());
+            assertEquals(List.of(builder), manager.getBuilderByPlayer(PlayerId.valueOf(2)));
+        }
+
+        @Test
+        public void fromSeveralThreads() throws Exception {
+            AbstractBuilderManager<Builder> manager = new ConcurrentBuilderManager<>();
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> tasks = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int thread = t;
+                    tasks.add(executor.submit(() -> {
+                        for (int i = 0; i < 1000; i++) {
+                            manager.addBuilder(new TestBuilder(thread * 1000L + i + 1, i % 10 + 1));
+                        }
+                    }));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            int total = 0;
+            for (int p = 1; p <= 10; p++) {
+                total += manager.getBuilderByPlayer(PlayerId.valueOf(p)).size();
+            }
+            assertEquals(4000, total);
+            assertTrue(manager.getBuilderById(EntityId.valueOf(4000)).isPresent());
+        }
+    }
+
+    @Nested
+    public class RemoveBuilder {
+
+        @Test
+        public void happyFlow() {
+            AbstractBuilderManager<Builder> manager = new ConcurrentBuilderManager<>();
+            TestBuilder builder = new TestBuilder(1, 2);
+            manager.addBuilder(builder);
+            assertSame(builder, manager.removeBuilder(EntityId.valueOf(1)).get());
+            assertFalse(manager.getBuilderById(EntityId.valueOf(1)).isPresent());
+            assertTrue(manager.getBuilderByPlayer(PlayerId.valueOf(2)).isEmpty());
+        }
+    }
+
+    @Nested
+    public class UpdateOwner {
+
+        @Test
+        public void happyFlow() {
+            AbstractBuilderManager<Builder> manager = new ConcurrentBuilderManager<>();
+            TestBuilder builder = new TestBuilder(1, 2);
+            manager.addBuilder(builder);
+            builder.setOwner(3);
+            assertTrue(manager.updateOwner(EntityId.valueOf(1)));
+            assertTrue(manager.getBuilderByPlayer(PlayerId.valueOf(2)).isEmpty());
+            assertEquals(List.of(builder), manager.getBuilderByPlayer(PlayerId.valueOf(3)));
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConstructionHistogramTest {
+
+    @Nested
+    public class GetValueAtPercentile {
+
+        @Test
+        public void smallValues() {
+            ConstructionHistogram histogram = new ConstructionHistogram();
+            for (int i = 1; i <= 20; i++) {
+                histogram.record(i);
+            }
+            assertEquals(10, histogram.getValueAtPercentile(50));
+            assertEquals(20, histogram.getValueAtPercentile(100));
+            assertEquals(1, histogram.getMin());
+            assertEquals(10.5, histogram.getMean());
+        }
+
+        @Test
+        public void bigValues() {
+            ConstructionHistogram histogram = new ConstructionHistogram();
+            for (long i = 1; i <= 100_000; i++) {
+                histogram.record(i * 1000);
+            }
+            long median = histogram.getValueAtPercentile(50);
+            assertTrue(Math.abs(median - 50_000_000L) <= 50_000_000L / 16, "Median: " + median);
+            long p99 = histogram.getValueAtPercentile(99);
+            assertTrue(Math.abs(p99 - 99_000_000L) <= 99_000_000L / 16, "P99: " + p99);
+            assertEquals(100_000_000L, histogram.getValueAtPercentile(100));
+        }
+
+        @Test
+        public void empty() {
+            ConstructionHistogram histogram = new ConstructionHistogram();
+            assertEquals(0, histogram.getValueAtPercentile(99));
+            assertEquals(0, histogram.getMin());
+        }
+    }
+}
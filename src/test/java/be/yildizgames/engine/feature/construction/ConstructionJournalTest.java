@@ -0,0 +1,171 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.geometry.Point3D;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.Entity;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.EntityToCreate;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static be.yildizgames.engine.feature.construction.TestConstructionState.FACTORY;
+import static be.yildizgames.engine.feature.construction.TestConstructionState.TYPES;
+import static be.yildizgames.engine.feature.construction.TestConstructionState.givenAWaitingEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConstructionJournalTest {
+
+    private static ConstructionManager<Entity, EntityInConstruction, Object> givenAManager(final List<EntityToCreate> created) {
+        return new ConstructionManager<>(e -> null, e -> {
+            created.add(e);
+            return null;
+        }, new DeadlineConstructionScheduler<>());
+    }
+
+    private static List<Long> idsInConstruction(final ConstructionManager<?, ?, ?> manager) {
+        List<Long> result = new ArrayList<>();
+        for (Object o : manager.getEntityToBuildList()) {
+            WaitingEntity<?> w = (WaitingEntity<?>) o;
+            result.add(w.entity.getId().value + w.representation.getTimeLeft() * 1000);
+        }
+        result.sort(Long::compare);
+        return result;
+    }
+
+    @Nested
+    public class Replay {
+
+        @Test
+        public void happyFlow(@TempDir final Path folder) throws IOException {
+            Path file = folder.resolve("construction.journal");
+            List<EntityToCreate> created = new ArrayList<>();
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = givenAManager(created);
+            try (ConstructionJournal journal = new ConstructionJournal(file, false, 2)) {
+                manager.setJournal(journal);
+                WaitingEntity<EntityInConstruction> canceled = givenAWaitingEntity(1, 500L);
+                manager.addEntityToBuild(canceled);
+                manager.addEntityToBuild(givenAWaitingEntity(2, 100L));
+                manager.addEntityToBuild(givenAWaitingEntity(3, 900L));
+                manager.frameEnded(50L);
+                manager.cancel(canceled);
+                manager.createEntity(new EntityToCreate(TYPES[0], Point3D.valueOf(1, 2, 3), Point3D.valueOf(4, 5, 6), PlayerId.valueOf(3)));
+                manager.frameEnded(60L);
+                manager.frameEnded(70L);
+            }
+
+            List<EntityToCreate> replayedCreated = new ArrayList<>();
+            ConstructionManager<Entity, EntityInConstruction, Object> replayed = givenAManager(replayedCreated);
+            ConstructionJournalReplayer<EntityInConstruction, EntityConstructionStatus> replayer = new ConstructionJournalReplayer<>(replayed, FACTORY);
+            assertEquals(3, replayer.replay(file));
+            assertEquals(idsInConstruction(manager), idsInConstruction(replayed));
+            assertEquals(1, replayedCreated.size());
+            assertEquals(Point3D.valueOf(4, 5, 6), replayedCreated.get(0).getDirection());
+        }
+
+        @Test
+        public void partialRecord(@TempDir final Path folder) throws IOException {
+            Path file = folder.resolve("construction.journal");
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = givenAManager(new ArrayList<>());
+            try (ConstructionJournal journal = new ConstructionJournal(file, true)) {
+                manager.setJournal(journal);
+                manager.addEntityToBuild(givenAWaitingEntity(1, 500L));
+                manager.frameEnded(50L);
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 10);
+            }
+            ConstructionManager<Entity, EntityInConstruction, Object> replayed = givenAManager(new ArrayList<>());
+            ConstructionJournalReplayer<EntityInConstruction, EntityConstructionStatus> replayer = new ConstructionJournalReplayer<>(replayed, FACTORY);
+            assertEquals(0, replayer.replay(file));
+            assertEquals(1, replayer.getReplayedRecords());
+            assertEquals(1, replayed.getEntityToBuildList().size());
+        }
+
+        @Test
+        public void fullQueueAddNotRecorded(@TempDir final Path folder) throws IOException {
+            Path file = folder.resolve("construction.journal");
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 3, 1);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> queueManager = givenAQueueManager(builder);
+            try (ConstructionJournal journal = new ConstructionJournal(file, true)) {
+                queueManager.setJournal(journal);
+                queueManager.addEntity(PlayerId.valueOf(3), builder.getBuilderId(), new EntityConstructionStatus(TYPES[0], 1, 10L));
+                assertThrows(ConstructionQueueFullException.class,
+                        () -> queueManager.addEntity(PlayerId.valueOf(3), builder.getBuilderId(), new EntityConstructionStatus(TYPES[0], 2, 10L)));
+            }
+            TestQueueBuilder replayedBuilder = new TestQueueBuilder(10L, 3, 1);
+            ConstructionJournalReplayer<EntityInConstruction, EntityConstructionStatus> replayer =
+                    new ConstructionJournalReplayer<>(givenAManager(new ArrayList<>()), givenAQueueManager(replayedBuilder), FACTORY);
+            replayer.replay(file);
+            assertEquals(1, replayer.getReplayedRecords());
+            assertEquals(0, replayer.getRejectedCommands());
+            assertEquals(1, replayedBuilder.getQueue().getList().size());
+        }
+
+        @Test
+        public void rejectedQueueCommandSkipped(@TempDir final Path folder) throws IOException {
+            Path file = folder.resolve("construction.journal");
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 3, 2);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> queueManager = givenAQueueManager(builder);
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = givenAManager(new ArrayList<>());
+            try (ConstructionJournal journal = new ConstructionJournal(file, true)) {
+                queueManager.setJournal(journal);
+                manager.setJournal(journal);
+                queueManager.addEntity(PlayerId.valueOf(3), builder.getBuilderId(), new EntityConstructionStatus(TYPES[0], 1, 10L));
+                queueManager.addEntity(PlayerId.valueOf(3), builder.getBuilderId(), new EntityConstructionStatus(TYPES[0], 2, 10L));
+                manager.addEntityToBuild(givenAWaitingEntity(5, 500L));
+                manager.frameEnded(50L);
+            }
+            TestQueueBuilder replayedBuilder = new TestQueueBuilder(10L, 3, 1);
+            ConstructionManager<Entity, EntityInConstruction, Object> replayed = givenAManager(new ArrayList<>());
+            ConstructionJournalReplayer<EntityInConstruction, EntityConstructionStatus> replayer =
+                    new ConstructionJournalReplayer<>(replayed, givenAQueueManager(replayedBuilder), FACTORY);
+            assertEquals(1, replayer.replay(file));
+            assertEquals(1, replayer.getRejectedCommands());
+            assertEquals(1, replayedBuilder.getQueue().getList().size());
+            assertEquals(1, replayed.getEntityToBuildList().size());
+        }
+    }
+
+    private static ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> givenAQueueManager(final TestQueueBuilder builder) {
+        BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+        builders.addBuilder(builder);
+        return new ConstructionQueueManager<>(builders);
+    }
+}
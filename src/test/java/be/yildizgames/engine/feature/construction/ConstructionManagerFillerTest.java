@@ -0,0 +1,80 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.Entity;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConstructionManagerFillerTest {
+
+    private static final EntityType TYPE = new EntityType(1, "a");
+
+    @Nested
+    public class Add {
+
+        @Test
+        public void pipelineFull() {
+            EntityCreationPipeline pipeline = new EntityCreationPipeline(1);
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(e -> null, e -> null, new LinearConstructionScheduler<>(), pipeline);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            TestQueueBuilder b1 = new TestQueueBuilder(10L, 1);
+            TestQueueBuilder b2 = new TestQueueBuilder(11L, 1);
+            builders.addBuilder(b1);
+            builders.addBuilder(b2);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> queueManager = new ConstructionQueueManager<>(builders);
+            List<Integer> notified = new ArrayList<>();
+            queueManager.willNotify(new ConstructionManagerFiller(builders, manager));
+            queueManager.willNotify(new ConstructionQueueListener() {
+                @Override
+                public void notify(ConstructionQueue queue) {
+                }
+
+                @Override
+                public void add(EntityConstructionStatus toBuild, PlayerId playerId, EntityId builderId) {
+                    notified.add(toBuild.index);
+                }
+            });
+            queueManager.addEntity(PlayerId.valueOf(1), b1.getBuilderId(), new EntityConstructionStatus(TYPE, 1, 10));
+            queueManager.addEntity(PlayerId.valueOf(1), b2.getBuilderId(), new EntityConstructionStatus(TYPE, 2, 10));
+            assertEquals(List.of(1, 2), notified);
+            assertEquals(1, pipeline.getBacklog());
+            assertEquals(1, pipeline.getRejected());
+        }
+    }
+}
@@ -0,0 +1,502 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.Entity;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static be.yildizgames.engine.feature.construction.TestConstructionState.givenAWaitingEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConstructionManagerTest {
+
+    @Nested
+    public class FrameEnded {
+
+        @Test
+        public void withoutAllocation() throws ReflectiveOperationException {
+            assertEquals(0, measureSteadyStateAllocation(new DeadlineConstructionScheduler<>(), 10000));
+        }
+
+        @Test
+        public void withoutAllocationLinear() throws ReflectiveOperationException {
+            assertEquals(0, measureSteadyStateAllocation(new LinearConstructionScheduler<>(), 1000));
+        }
+
+        /**
+         * Run frames where entities are completed and scheduled again by a listener, and measure the allocated bytes once warm.
+         */
+        private long measureSteadyStateAllocation(ConstructionScheduler<EntityInConstruction> scheduler, int size) throws ReflectiveOperationException {
+            AllocationCounter counter = new AllocationCounter();
+            EntityType type = new EntityType(1, "a");
+            List<WaitingEntity<EntityInConstruction>> entities = new ArrayList<>(size);
+            List<Entity> built = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                WaitingEntity<EntityInConstruction> w = new WaitingEntity<>(new EntityInConstruction(type, EntityId.valueOf(i), PlayerId.valueOf(i % 10)),
+                        new EntityConstructionStatus(type, i, 16L * (1 + i % 100)), EntityId.valueOf(100L + i % 50));
+                entities.add(w);
+                built.add(givenAnEntity(w.entity));
+            }
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(e -> built.get((int) e.getId().value), null, scheduler);
+            manager.willNotify(new ConstructionListener() {
+                @Override
+                public void entityComplete(EntityId id, PlayerId owner, EntityType t, EntityId builder, int request) {
+                    WaitingEntity<EntityInConstruction> w = entities.get(request);
+                    w.representation.reduceTimeLeft(w.representation.getTimeLeft() - 16L * (1 + request % 100));
+                    manager.addEntityToBuild(w);
+                }
+            });
+            manager.willNotifyBatch(b -> {});
+            for (WaitingEntity<EntityInConstruction> w : entities) {
+                manager.addEntityToBuild(w);
+            }
+            for (int i = 0; i < 1000; i++) {
+                manager.frameEnded(16);
+            }
+            long overhead = counter.measureOverhead();
+            // A one-off allocation by the runtime can happen in a run, an allocation in the frame path happens in every run.
+            long allocated = Long.MAX_VALUE;
+            for (int run = 0; run < 3 && allocated != 0; run++) {
+                long start = counter.getAllocatedBytes();
+                for (int i = 0; i < 1000; i++) {
+                    manager.frameEnded(16);
+                }
+                allocated = Math.min(allocated, counter.getAllocatedBytes() - start - overhead);
+            }
+            assertEquals(size, manager.getEntityToBuildList().size());
+            return allocated;
+        }
+    }
+
+    @Nested
+    public class SetAsync {
+
+        @Test
+        public void notifiedInCompletionOrder() {
+            List<Runnable> tasks = new ArrayList<>();
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new LinearConstructionScheduler<>());
+            manager.setAsync(tasks::add, 2);
+            List<Long> notified = new ArrayList<>();
+            manager.willNotify(new ConstructionListener() {
+                @Override
+                public void entityComplete(EntityId id, PlayerId owner, EntityType type, EntityId builder, int request) {
+                    notified.add(id.value);
+                }
+            });
+            givenEntitiesToBuild(manager, 5);
+            manager.frameEnded(10);
+            assertEquals(2, tasks.size());
+            tasks.remove(1).run();
+            manager.frameEnded(0);
+            assertTrue(notified.isEmpty());
+            tasks.remove(0).run();
+            manager.frameEnded(0);
+            assertEquals(List.of(1L, 2L), notified);
+            while (manager.getMaterializationBacklog() > 0) {
+                manager.frameEnded(0);
+                assertTrue(tasks.size() <= 2);
+                for (int i = tasks.size() - 1; i >= 0; i--) {
+                    tasks.remove(i).run();
+                }
+            }
+            manager.frameEnded(0);
+            assertEquals(List.of(1L, 2L, 3L, 4L, 5L), notified);
+        }
+
+        @Test
+        public void backToSyncAwaitsMaterializing() {
+            List<Runnable> tasks = new ArrayList<>();
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new LinearConstructionScheduler<>());
+            manager.setAsync(tasks::add, 2);
+            List<Long> notified = new ArrayList<>();
+            manager.willNotify(new ConstructionListener() {
+                @Override
+                public void entityComplete(EntityId id, PlayerId owner, EntityType type, EntityId builder, int request) {
+                    notified.add(id.value);
+                }
+            });
+            givenEntitiesToBuild(manager, 3);
+            manager.frameEnded(10);
+            tasks.remove(1).run();
+            manager.frameEnded(0);
+            tasks.remove(0).run();
+            manager.setAsync(null, 0);
+            assertEquals(List.of(1L, 2L, 3L), notified);
+            assertEquals(0, manager.getMaterializationBacklog());
+        }
+
+        @Test
+        public void factoryFailureCanceled() {
+            List<Runnable> tasks = new ArrayList<>();
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(e -> {
+                if (e.getId().value == 2) {
+                    throw new IllegalStateException("test");
+                }
+                return givenAnEntity(e);
+            }, null, new LinearConstructionScheduler<>());
+            manager.setAsync(tasks::add, 3);
+            List<Long> notified = new ArrayList<>();
+            List<Integer> canceled = new ArrayList<>();
+            manager.willNotify(new ConstructionListener() {
+                @Override
+                public void entityComplete(EntityId id, PlayerId owner, EntityType type, EntityId builder, int request) {
+                    notified.add(id.value);
+                }
+
+                @Override
+                public void entityConstructionCanceled(WaitingEntity e) {
+                    canceled.add(e.representation.index);
+                    assertEquals(EntityId.valueOf(100L), e.builderId);
+                }
+            });
+            givenEntitiesToBuild(manager, 3);
+            manager.frameEnded(10);
+            tasks.forEach(Runnable::run);
+            manager.frameEnded(0);
+            assertEquals(List.of(1L, 3L), notified);
+            assertEquals(List.of(2), canceled);
+            assertEquals(0, manager.getMaterializationBacklog());
+        }
+
+        private void givenEntitiesToBuild(final ConstructionManager<Entity, EntityInConstruction, Object> manager, final int number) {
+            EntityType type = new EntityType(1, "a");
+            for (int i = 1; i <= number; i++) {
+                manager.addEntityToBuild(new WaitingEntity<>(new EntityInConstruction(type, EntityId.valueOf(i), PlayerId.valueOf(1)),
+                        new EntityConstructionStatus(type, i, 10), EntityId.valueOf(100L)));
+            }
+        }
+    }
+
+    @Nested
+    public class SetMetrics {
+
+        @Test
+        public void happyFlow() {
+            InMemoryConstructionMetrics metrics = new InMemoryConstructionMetrics();
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new DeadlineConstructionScheduler<>());
+            manager.setMetrics(metrics);
+            manager.willNotify(new ConstructionListener() {});
+            EntityType type = new EntityType(1, "a");
+            List<WaitingEntity<EntityInConstruction>> entities = new ArrayList<>();
+            for (int i = 1; i <= 4; i++) {
+                WaitingEntity<EntityInConstruction> w = new WaitingEntity<>(new EntityInConstruction(type, EntityId.valueOf(i), PlayerId.valueOf(1)),
+                        new EntityConstructionStatus(type, i, i * 10), EntityId.valueOf(100L));
+                entities.add(w);
+                manager.addEntityToBuild(w);
+            }
+            manager.cancel(entities.get(3));
+            manager.frameEnded(25);
+            assertEquals(1, metrics.getFrameDuration().getCount());
+            assertEquals(2, metrics.getCompleted().getMax());
+            assertEquals(1, metrics.getCanceled().getMax());
+            assertEquals(1, metrics.getWaiting().getMax());
+            assertEquals(2, metrics.getListenerDuration().values().iterator().next().getCount());
+        }
+    }
+
+    @Nested
+    public class SetListenerBudget {
+
+        @Test
+        public void slowListenerDemoted() throws InterruptedException {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new DeadlineConstructionScheduler<>());
+            manager.setListenerBudget(1_000_000, 16);
+            List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+            SlowListener slow = new SlowListener(threads);
+            manager.willNotify(slow);
+            EntityType type = new EntityType(1, "a");
+            for (int i = 1; i <= 3; i++) {
+                manager.addEntityToBuild(new WaitingEntity<>(new EntityInConstruction(type, EntityId.valueOf(i), PlayerId.valueOf(1)),
+                        new EntityConstructionStatus(type, i, i * 10), EntityId.valueOf(100L)));
+            }
+            manager.frameEnded(10);
+            assertTrue(manager.getSlowListeners().contains(slow));
+            manager.frameEnded(20);
+            manager.removeListener(slow);
+            for (int i = 0; i < 100 && threads.size() < 3; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(3, threads.size());
+            assertSame(Thread.currentThread(), threads.get(0));
+            assertNotSame(Thread.currentThread(), threads.get(1));
+            assertNotSame(Thread.currentThread(), threads.get(2));
+        }
+
+        @Test
+        public void demotedClosed() throws InterruptedException {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new DeadlineConstructionScheduler<>());
+            manager.setListenerBudget(1_000_000, 16);
+            List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+            manager.willNotify(new SlowListener(threads));
+            EntityType type = new EntityType(1, "a");
+            for (int i = 1; i <= 3; i++) {
+                manager.addEntityToBuild(new WaitingEntity<>(new EntityInConstruction(type, EntityId.valueOf(i), PlayerId.valueOf(1)),
+                        new EntityConstructionStatus(type, i, i * 10), EntityId.valueOf(100L)));
+            }
+            manager.frameEnded(10);
+            manager.frameEnded(20);
+            manager.closeDemotedListeners(1000);
+            assertEquals(3, threads.size());
+            assertNotSame(Thread.currentThread(), threads.get(2));
+            manager.setListenerBudget(0, 0);
+            manager.addEntityToBuild(new WaitingEntity<>(new EntityInConstruction(type, EntityId.valueOf(4), PlayerId.valueOf(1)),
+                    new EntityConstructionStatus(type, 4, 10), EntityId.valueOf(100L)));
+            manager.frameEnded(10);
+            assertEquals(4, threads.size());
+            assertSame(Thread.currentThread(), threads.get(3));
+        }
+
+        @Test
+        public void notDemotableKeptOnFrameThread() {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new DeadlineConstructionScheduler<>());
+            manager.setListenerBudget(1, 16);
+            List<Thread> threads = new ArrayList<>();
+            ConstructionListener<EntityInConstruction> slow = new ConstructionListener<>() {
+                @Override
+                public void entityComplete(EntityId id, PlayerId owner, EntityType type, EntityId builder, int request) {
+                    threads.add(Thread.currentThread());
+                }
+            };
+            manager.willNotify(slow);
+            EntityType type = new EntityType(1, "a");
+            for (int i = 1; i <= 3; i++) {
+                manager.addEntityToBuild(new WaitingEntity<>(new EntityInConstruction(type, EntityId.valueOf(i), PlayerId.valueOf(1)),
+                        new EntityConstructionStatus(type, i, 10), EntityId.valueOf(100L)));
+                manager.frameEnded(10);
+            }
+            assertTrue(manager.getSlowListeners().contains(slow));
+            assertEquals(List.of(Thread.currentThread(), Thread.currentThread(), Thread.currentThread()), threads);
+        }
+
+        @Test
+        public void queueManagerKeptOnFrameThread() {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new DeadlineConstructionScheduler<>());
+            manager.setListenerBudget(1, 16);
+            TestQueueBuilder builder = new TestQueueBuilder(100L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> queueManager = new ConstructionQueueManager<>(builders);
+            manager.willNotify(queueManager);
+            EntityType type = new EntityType(1, "a");
+            for (int i = 1; i <= 3; i++) {
+                EntityConstructionStatus status = new EntityConstructionStatus(type, i, 10);
+                builder.addInQueue(status);
+                manager.addEntityToBuild(new WaitingEntity<>(new EntityInConstruction(type, EntityId.valueOf(i), PlayerId.valueOf(1)), status, builder.getBuilderId()));
+                manager.frameEnded(10);
+                assertTrue(builder.getQueue().getList().isEmpty());
+            }
+            assertTrue(manager.getSlowListeners().contains(queueManager));
+        }
+    }
+
+    /**
+     * Slow listener which can be demoted, recording the threads it is notified on.
+     */
+    private static final class SlowListener implements ConstructionListener<EntityInConstruction>, DemotableListener {
+
+        private final List<Thread> threads;
+
+        private SlowListener(final List<Thread> threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public void entityComplete(EntityId id, PlayerId owner, EntityType type, EntityId builder, int request) {
+            this.threads.add(Thread.currentThread());
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Nested
+    public class WillNotifyBatch {
+
+        @Test
+        public void oneBatchPerFrame() {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new DeadlineConstructionScheduler<>());
+            List<List<Long>> batches = new ArrayList<>();
+            manager.willNotifyBatch(b -> {
+                List<Long> ids = new ArrayList<>();
+                for (int i = 0; i < b.size(); i++) {
+                    ids.add(b.getId(i).value);
+                    assertEquals(100L, b.getBuilder(i).value);
+                    assertEquals(b.getId(i).value, b.getRequest(i));
+                }
+                batches.add(ids);
+            });
+            for (int i = 1; i <= 5; i++) {
+                manager.addEntityToBuild(givenAWaitingEntity(i, 1, i <= 3 ? i : 20));
+            }
+            manager.frameEnded(10);
+            manager.frameEnded(5);
+            manager.frameEnded(5);
+            assertEquals(List.of(List.of(1L, 2L, 3L), List.of(4L, 5L)), batches);
+        }
+
+        @Test
+        public void fanOut() {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new DeadlineConstructionScheduler<>());
+            List<Long> notified = new ArrayList<>();
+            manager.willNotifyBatch(ConstructionBatchListener.fanOut(new ConstructionListener() {
+                @Override
+                public void entityComplete(EntityId id, PlayerId owner, EntityType type, EntityId builder, int request) {
+                    assertEquals(PlayerId.valueOf(1), owner);
+                    notified.add(id.value);
+                }
+            }));
+            for (int i = 1; i <= 3; i++) {
+                manager.addEntityToBuild(givenAWaitingEntity(i, 1, 4 - i));
+            }
+            manager.frameEnded(10);
+            assertEquals(List.of(3L, 2L, 1L), notified);
+        }
+    }
+
+    @Nested
+    public class GetEntityToBuildList {
+
+        @Test
+        public void byPlayer() {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new LinearConstructionScheduler<>());
+            List<WaitingEntity<EntityInConstruction>> entities = new ArrayList<>();
+            for (int i = 1; i <= 6; i++) {
+                WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(i, 1 + i % 2, i * 10);
+                entities.add(w);
+                manager.addEntityToBuild(w);
+            }
+            assertEquals(Set.of(entities.get(1), entities.get(3), entities.get(5)), new HashSet<>(manager.getEntityToBuildList(PlayerId.valueOf(1))));
+            assertEquals(Set.of(entities.get(0), entities.get(2), entities.get(4)), new HashSet<>(manager.getEntityToBuildList(PlayerId.valueOf(2))));
+            manager.cancel(entities.get(1));
+            manager.frameEnded(30);
+            assertEquals(Set.of(entities.get(3), entities.get(5)), new HashSet<>(manager.getEntityToBuildList(PlayerId.valueOf(1))));
+            assertEquals(Set.of(entities.get(4)), new HashSet<>(manager.getEntityToBuildList(PlayerId.valueOf(2))));
+            assertEquals(30, entities.get(5).representation.getTimeLeft());
+            manager.cancel(entities.get(3));
+            assertEquals(List.of(entities.get(5)), manager.getEntityToBuildList(PlayerId.valueOf(1)));
+            manager.cancel(entities.get(5));
+            assertTrue(manager.getEntityToBuildList(PlayerId.valueOf(1)).isEmpty());
+            assertTrue(manager.getEntityToBuildList(PlayerId.valueOf(3)).isEmpty());
+        }
+
+        @Test
+        public void rescheduledNotDuplicated() {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new DeadlineConstructionScheduler<>());
+            WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(1, 1, 10);
+            manager.addEntityToBuild(w);
+            manager.addEntityToBuild(w);
+            assertEquals(List.of(w), manager.getEntityToBuildList(PlayerId.valueOf(1)));
+            manager.cancel(w);
+            assertTrue(manager.getEntityToBuildList(PlayerId.valueOf(1)).isEmpty());
+        }
+
+        @Test
+        public void byInstance() {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(ConstructionManagerTest::givenAnEntity, null, new DeadlineConstructionScheduler<>());
+            WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(1, 1, 10);
+            WaitingEntity<EntityInConstruction> other = new WaitingEntity<>(w.entity, w.representation, w.builderId);
+            manager.addEntityToBuild(w);
+            manager.addEntityToBuild(other);
+            manager.cancel(w);
+            assertEquals(List.of(other), manager.getEntityToBuildList(PlayerId.valueOf(1)));
+        }
+    }
+
+    /**
+     * Build an entity only answering its id, owner and type.
+     */
+    private static Entity givenAnEntity(final EntityInConstruction e) {
+        return (Entity) Proxy.newProxyInstance(Entity.class.getClassLoader(), new Class<?>[]{Entity.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getId":
+                    return e.getId();
+                case "getOwner":
+                    return e.getOwner();
+                case "getType":
+                    return e.getType();
+                default:
+                    throw new UnsupportedOperationException(method.getName());
+            }
+        });
+    }
+
+    /**
+     * Read the bytes allocated by the current thread, the com.sun.management API is called by reflection to not require the jdk.management module.
+     */
+    private static final class AllocationCounter {
+
+        private final Object bean;
+
+        private final Method allocatedBytes;
+
+        private AllocationCounter() throws ReflectiveOperationException {
+            super();
+            this.bean = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean").invoke(null);
+            Class<?> beanClass = Class.forName("com.sun.management.ThreadMXBean");
+            Assumptions.assumeTrue(beanClass.isInstance(this.bean));
+            Assumptions.assumeTrue((boolean) beanClass.getMethod("isThreadAllocatedMemoryEnabled").invoke(this.bean));
+            this.allocatedBytes = beanClass.getMethod("getThreadAllocatedBytes", long.class);
+        }
+
+        private long getAllocatedBytes() throws ReflectiveOperationException {
+            return (long) this.allocatedBytes.invoke(this.bean, Thread.currentThread().getId());
+        }
+
+        /**
+         * @return The bytes allocated by a call to getAllocatedBytes.
+         */
+        private long measureOverhead() throws ReflectiveOperationException {
+            long overhead = Long.MAX_VALUE;
+            for (int i = 0; i < 10; i++) {
+                long start = this.getAllocatedBytes();
+                overhead = Math.min(overhead, this.getAllocatedBytes() - start);
+            }
+            return overhead;
+        }
+    }
+}
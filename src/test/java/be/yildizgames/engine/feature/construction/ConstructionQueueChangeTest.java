@@ -0,0 +1,93 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConstructionQueueChangeTest {
+
+    @Nested
+    public class Add {
+
+        @Test
+        public void happyFlow() {
+            ConstructionQueueChange change = new ConstructionQueueChange();
+            change.add(3);
+            change.add(3);
+            change.add(4);
+            assertEquals(2, change.getAddedSize());
+            assertEquals(3, change.getAdded(0));
+            assertEquals(4, change.getAdded(1));
+            assertEquals(0, change.getRemovedSize());
+            assertFalse(change.isReset());
+        }
+    }
+
+    @Nested
+    public class Remove {
+
+        @Test
+        public void happyFlow() {
+            ConstructionQueueChange change = new ConstructionQueueChange();
+            change.remove(3);
+            assertEquals(1, change.getRemovedSize());
+            assertEquals(3, change.getRemoved(0));
+        }
+
+        @Test
+        public void addedInSameFrame() {
+            ConstructionQueueChange change = new ConstructionQueueChange();
+            change.add(3);
+            change.remove(3);
+            assertEquals(0, change.getAddedSize());
+            assertEquals(0, change.getRemovedSize());
+        }
+    }
+
+    @Nested
+    public class Clear {
+
+        @Test
+        public void happyFlow() {
+            ConstructionQueueChange change = new ConstructionQueueChange();
+            change.add(3);
+            change.remove(4);
+            change.reset();
+            assertTrue(change.isReset());
+            change.clear();
+            assertEquals(0, change.getAddedSize());
+            assertEquals(0, change.getRemovedSize());
+            assertFalse(change.isReset());
+        }
+    }
+}
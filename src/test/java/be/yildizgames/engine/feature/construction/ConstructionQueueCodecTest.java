@@ -0,0 +1,208 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConstructionQueueCodecTest {
+
+    private static final EntityType[] TYPES = {new EntityType(0, "a"), new EntityType(1, "b")};
+
+    private static ConstructionQueueCodec<EntityConstructionStatus> givenACodec() {
+        return new ConstructionQueueCodec<>((type, index, time) -> new EntityConstructionStatus(TYPES[type], index, time));
+    }
+
+    private static ConstructionQueue<EntityConstructionStatus> givenAQueue() {
+        return new ConstructionQueue<>(EntityId.valueOf(300L), 10);
+    }
+
+    private static void assertSameContent(ConstructionQueue<EntityConstructionStatus> expected, ConstructionQueue<EntityConstructionStatus> actual) {
+        assertEquals(expected.getVersion(), actual.getVersion());
+        assertEquals(expected.getList().size(), actual.getList().size());
+        for (int i = 0; i < expected.getList().size(); i++) {
+            assertEquals(expected.getList().get(i).index, actual.getList().get(i).index);
+            assertEquals(expected.getList().get(i).type, actual.getList().get(i).type);
+            assertEquals(expected.getList().get(i).getTimeLeft(), actual.getList().get(i).getTimeLeft());
+        }
+    }
+
+    @Nested
+    public class Snapshot {
+
+        @Test
+        public void happyFlow() {
+            ConstructionQueueCodec<EntityConstructionStatus> codec = givenACodec();
+            ConstructionQueue<EntityConstructionStatus> server = givenAQueue();
+            server.add(new EntityConstructionStatus(TYPES[0], 5, 1000));
+            server.add(new EntityConstructionStatus(TYPES[1], -2, 123456789L));
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            codec.writeSnapshot(server, buffer);
+            buffer.flip();
+            assertEquals(300L, ConstructionQueueCodec.peekBuilderId(buffer));
+            ConstructionQueue<EntityConstructionStatus> client = givenAQueue();
+            assertTrue(codec.read(buffer, client));
+            assertFalse(buffer.hasRemaining());
+            assertSameContent(server, client);
+        }
+    }
+
+    @Nested
+    public class Delta {
+
+        @Test
+        public void happyFlow() {
+            ConstructionQueueCodec<EntityConstructionStatus> codec = givenACodec();
+            ConstructionQueue<EntityConstructionStatus> server = givenAQueue();
+            server.add(new EntityConstructionStatus(TYPES[0], 1, 10));
+            server.add(new EntityConstructionStatus(TYPES[0], 2, 20));
+            ConstructionQueue<EntityConstructionStatus> client = givenAQueue();
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            codec.writeSnapshot(server, buffer);
+            buffer.flip();
+            codec.read(buffer, client);
+
+            ConstructionQueueChange change = new ConstructionQueueChange();
+            change.setBaseVersion(server.getVersion());
+            server.remove(1);
+            change.remove(1);
+            server.add(new EntityConstructionStatus(TYPES[1], 3, 30));
+            change.add(3);
+            buffer.clear();
+            codec.writeDelta(server, change, buffer);
+            buffer.flip();
+            assertTrue(codec.read(buffer, client));
+            assertSameContent(server, client);
+        }
+
+        @Test
+        public void otherBaseVersion() {
+            ConstructionQueueCodec<EntityConstructionStatus> codec = givenACodec();
+            ConstructionQueue<EntityConstructionStatus> server = givenAQueue();
+            ConstructionQueueChange change = new ConstructionQueueChange();
+            change.setBaseVersion(server.getVersion());
+            server.add(new EntityConstructionStatus(TYPES[1], 3, 30));
+            change.add(3);
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            codec.writeDelta(server, change, buffer);
+            buffer.flip();
+            ConstructionQueue<EntityConstructionStatus> client = givenAQueue();
+            client.add(new EntityConstructionStatus(TYPES[1], 8, 30));
+            assertFalse(codec.read(buffer, client));
+            assertFalse(buffer.hasRemaining());
+            assertEquals(1, client.getList().size());
+        }
+    }
+
+    @Nested
+    public class Overflow {
+
+        @Test
+        public void snapshotNotApplied() {
+            ConstructionQueueCodec<EntityConstructionStatus> codec = givenACodec();
+            ConstructionQueue<EntityConstructionStatus> server = givenAQueue();
+            for (int i = 0; i < 3; i++) {
+                server.add(new EntityConstructionStatus(TYPES[0], i, 10));
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(64);
+            codec.writeSnapshot(server, buffer);
+            buffer.flip();
+            ConstructionQueue<EntityConstructionStatus> client = new ConstructionQueue<>(EntityId.valueOf(300L), 2);
+            client.add(new EntityConstructionStatus(TYPES[1], 9, 10));
+            assertThrows(ConstructionQueueFullException.class, () -> codec.read(buffer, client));
+            assertFalse(buffer.hasRemaining());
+            assertEquals(1, client.getList().size());
+            assertEquals(9, client.getList().get(0).index);
+        }
+
+        @Test
+        public void deltaNotApplied() {
+            ConstructionQueueCodec<EntityConstructionStatus> codec = givenACodec();
+            ConstructionQueue<EntityConstructionStatus> server = givenAQueue();
+            server.add(new EntityConstructionStatus(TYPES[0], 1, 10));
+            ConstructionQueue<EntityConstructionStatus> client = new ConstructionQueue<>(EntityId.valueOf(300L), 2);
+            ByteBuffer buffer = ByteBuffer.allocate(128);
+            codec.writeSnapshot(server, buffer);
+            buffer.flip();
+            codec.read(buffer, client);
+            long version = client.getVersion();
+
+            ConstructionQueueChange change = new ConstructionQueueChange();
+            change.setBaseVersion(server.getVersion());
+            server.add(new EntityConstructionStatus(TYPES[0], 2, 20));
+            change.add(2);
+            server.add(new EntityConstructionStatus(TYPES[0], 3, 30));
+            change.add(3);
+            buffer.clear();
+            codec.writeDelta(server, change, buffer);
+            int end = buffer.position();
+            codec.writeSnapshot(server, buffer);
+            buffer.flip();
+            assertThrows(ConstructionQueueFullException.class, () -> codec.read(buffer, client));
+            assertEquals(end, buffer.position());
+            assertEquals(1, client.getList().size());
+            assertEquals(version, client.getVersion());
+            assertEquals(300L, ConstructionQueueCodec.peekBuilderId(buffer));
+        }
+
+        @Test
+        public void deltaWithRemovalApplied() {
+            ConstructionQueueCodec<EntityConstructionStatus> codec = givenACodec();
+            ConstructionQueue<EntityConstructionStatus> server = givenAQueue();
+            server.add(new EntityConstructionStatus(TYPES[0], 1, 10));
+            server.add(new EntityConstructionStatus(TYPES[0], 2, 20));
+            ConstructionQueue<EntityConstructionStatus> client = new ConstructionQueue<>(EntityId.valueOf(300L), 2);
+            ByteBuffer buffer = ByteBuffer.allocate(128);
+            codec.writeSnapshot(server, buffer);
+            buffer.flip();
+            codec.read(buffer, client);
+
+            ConstructionQueueChange change = new ConstructionQueueChange();
+            change.setBaseVersion(server.getVersion());
+            server.remove(1);
+            change.remove(1);
+            server.add(new EntityConstructionStatus(TYPES[0], 3, 30));
+            change.add(3);
+            buffer.clear();
+            codec.writeDelta(server, change, buffer);
+            buffer.flip();
+            assertTrue(codec.read(buffer, client));
+            assertSameContent(server, client);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConstructionQueueCommandsTest {
+
+    private static final EntityType TYPE = new EntityType(1, "a");
+
+    private static final PlayerId PLAYER = PlayerId.valueOf(1);
+
+    private static final EntityId BUILDER = EntityId.valueOf(10L);
+
+    @Nested
+    public class Apply {
+
+        @Test
+        public void happyFlow() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueCommands<EntityConstructionStatus, EntityInConstruction> commands =
+                    new ConstructionQueueCommands<>(new ConstructionQueueManager<>(builders), 4);
+            assertTrue(commands.addEntity(PLAYER, BUILDER, new EntityConstructionStatus(TYPE, 1, 10)));
+            assertTrue(commands.addEntity(PLAYER, BUILDER, new EntityConstructionStatus(TYPE, 2, 10)));
+            ConstructionQueue<EntityConstructionStatus> update = new ConstructionQueue<>(BUILDER, 5);
+            update.add(new EntityConstructionStatus(TYPE, 7, 10));
+            assertTrue(commands.update(update));
+            assertTrue(commands.addEntity(PLAYER, BUILDER, new EntityConstructionStatus(TYPE, 3, 10)));
+            assertFalse(commands.addEntity(PLAYER, BUILDER, new EntityConstructionStatus(TYPE, 4, 10)));
+            assertEquals(1, commands.getRejected());
+            assertEquals(0, builder.getQueue().getList().size());
+            assertEquals(4, commands.apply());
+            assertEquals(0, commands.getBacklog());
+            assertEquals(2, builder.getQueue().getList().size());
+            assertEquals(7, builder.getQueue().getList().get(0).index);
+            assertEquals(3, builder.getQueue().getList().get(1).index);
+        }
+
+        @Test
+        public void fullQueueSkipped() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueCommands<EntityConstructionStatus, EntityInConstruction> commands =
+                    new ConstructionQueueCommands<>(new ConstructionQueueManager<>(builders), 4);
+            commands.addEntity(PLAYER, BUILDER, new EntityConstructionStatus(TYPE, 1, 10));
+            commands.addEntity(PLAYER, BUILDER, new EntityConstructionStatus(TYPE, 2, 10));
+            ConstructionQueue<EntityConstructionStatus> update = new ConstructionQueue<>(BUILDER, 5);
+            update.add(new EntityConstructionStatus(TYPE, 7, 10));
+            commands.update(update);
+            assertEquals(3, commands.apply());
+            assertEquals(1, commands.getFailed());
+            assertEquals(0, commands.getBacklog());
+            assertEquals(1, builder.getQueue().getList().size());
+            assertEquals(7, builder.getQueue().getList().get(0).index);
+        }
+
+        @Test
+        public void fromSeveralThreads() throws InterruptedException {
+            int producers = 4;
+            int commandsPerProducer = 5_000;
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1, producers * commandsPerProducer);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueCommands<EntityConstructionStatus, EntityInConstruction> commands =
+                    new ConstructionQueueCommands<>(new ConstructionQueueManager<>(builders), 64);
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int producer = p;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < commandsPerProducer; i++) {
+                        EntityConstructionStatus status = new EntityConstructionStatus(TYPE, producer * commandsPerProducer + i, 10);
+                        while (!commands.addEntity(PLAYER, BUILDER, status)) {
+                            Thread.yield();
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            int applied = 0;
+            while (applied < producers * commandsPerProducer) {
+                applied += commands.apply();
+                Thread.yield();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            int[] last = new int[producers];
+            for (EntityConstructionStatus status : builder.getQueue().getList()) {
+                int producer = status.index / commandsPerProducer;
+                assertTrue(status.index % commandsPerProducer >= last[producer]);
+                last[producer] = status.index % commandsPerProducer;
+            }
+            assertEquals(producers * commandsPerProducer, builder.getQueue().getList().size());
+        }
+    }
+}
@@ -0,0 +1,549 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.frame.FrameManager;
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static be.yildizgames.engine.feature.construction.TestConstructionState.FACTORY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConstructionQueueManagerTest {
+
+    private static final EntityType TYPE = TestConstructionState.TYPES[1];
+
+    @Nested
+    public class AddEntity {
+
+        @Test
+        public void withSeveralProductionSlots() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            builder.setProductionSlots(2);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            List<Integer> started = new ArrayList<>();
+            manager.willNotify(new ConstructionQueueListener() {
+                @Override
+                public void notify(ConstructionQueue queue) {
+                }
+
+                @Override
+                public void add(EntityConstructionStatus toBuild, PlayerId playerId, EntityId builderId) {
+                    started.add(toBuild.index);
+                }
+            });
+            for (int i = 1; i <= 4; i++) {
+                manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, i, 10));
+            }
+            assertEquals(List.of(1, 2), started);
+            assertEquals(2, builder.getQueue().getInProgressSize());
+            assertEquals(2, builder.getQueue().getPending().size());
+            manager.entityComplete(EntityId.valueOf(1L), PlayerId.valueOf(1), TYPE, builder.getBuilderId(), 2);
+            assertEquals(List.of(1, 2, 3), started);
+            assertEquals(1, builder.getQueue().getInProgress().get(0).index);
+            assertEquals(3, builder.getQueue().getInProgress().get(1).index);
+            assertEquals(4, builder.getQueue().getPending().get(0).index);
+        }
+    }
+
+    @Nested
+    public class AddEntities {
+
+        @Test
+        public void happyFlow() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            List<Integer> started = new ArrayList<>();
+            List<ConstructionQueueChange> changes = new ArrayList<>();
+            manager.willNotify(new ConstructionQueueListener() {
+                @Override
+                public void notify(ConstructionQueue queue) {
+                }
+
+                @Override
+                public void notifyChanges(ConstructionQueue queue, ConstructionQueueChange change) {
+                    changes.add(change.copy());
+                }
+
+                @Override
+                public void add(EntityConstructionStatus toBuild, PlayerId playerId, EntityId builderId) {
+                    started.add(toBuild.index);
+                }
+            });
+            manager.addEntities(PlayerId.valueOf(1), builder.getBuilderId(), List.of(
+                    new EntityConstructionStatus(TYPE, 1, 10),
+                    new EntityConstructionStatus(TYPE, 2, 10),
+                    new EntityConstructionStatus(TYPE, 3, 10)));
+            assertEquals(List.of(1), started);
+            assertEquals(1, changes.size());
+            assertEquals(3, changes.get(0).getAddedSize());
+            assertEquals(3, builder.getQueue().getList().size());
+        }
+
+        @Test
+        public void full() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1, 2);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            assertThrows(ConstructionQueueFullException.class, () -> manager.addEntities(PlayerId.valueOf(1), builder.getBuilderId(), List.of(
+                    new EntityConstructionStatus(TYPE, 1, 10),
+                    new EntityConstructionStatus(TYPE, 2, 10),
+                    new EntityConstructionStatus(TYPE, 3, 10))));
+            assertTrue(builder.getQueue().isEmpty());
+        }
+    }
+
+    @Nested
+    public class CancelAll {
+
+        @Test
+        public void pendingFirst() {
+            List<Integer> canceled = new ArrayList<>();
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1) {
+                @Override
+                public void cancel(int index) {
+                    canceled.add(index);
+                    this.removeFromQueue(index);
+                }
+            };
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            for (int i = 1; i <= 3; i++) {
+                manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, i, 10));
+            }
+            List<ConstructionQueueChange> changes = givenAChangeRecorder(manager);
+            manager.cancelAll(builder.getBuilderId());
+            assertEquals(List.of(3, 2, 1), canceled);
+            assertTrue(builder.getQueue().isEmpty());
+            assertEquals(1, changes.size());
+            assertEquals(3, changes.get(0).getRemovedSize());
+        }
+    }
+
+    @Nested
+    public class CancelMany {
+
+        @Test
+        public void notifiedOnce() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1) {
+                @Override
+                public void cancel(int index) {
+                    this.removeFromQueue(index);
+                }
+            };
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            for (int i = 1; i <= 4; i++) {
+                manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, i, 10));
+            }
+            List<Integer> started = givenAStartRecorder(manager);
+            List<ConstructionQueueChange> changes = givenAChangeRecorder(manager);
+            manager.cancelMany(PlayerId.valueOf(1), new int[]{1, 3});
+            assertEquals(1, changes.size());
+            assertEquals(2, changes.get(0).getRemovedSize());
+            assertEquals(List.of(2), started);
+            assertEquals(List.of(2, 4), List.of(builder.getQueue().getList().get(0).index, builder.getQueue().getList().get(1).index));
+        }
+    }
+
+    @Nested
+    public class Cancel {
+
+        @Test
+        public void routedToHolder() {
+            List<Long> canceled = new ArrayList<>();
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            List<TestQueueBuilder> owned = new ArrayList<>();
+            for (long id = 10; id < 15; id++) {
+                TestQueueBuilder builder = new TestQueueBuilder(id, 1) {
+                    @Override
+                    public void cancel(int index) {
+                        canceled.add(this.getBuilderId().value);
+                        this.removeFromQueue(index);
+                    }
+                };
+                owned.add(builder);
+                builders.addBuilder(builder);
+            }
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            manager.addEntity(PlayerId.valueOf(1), owned.get(3).getBuilderId(), new EntityConstructionStatus(TYPE, 7, 10));
+            manager.cancel(PlayerId.valueOf(1), 7);
+            assertEquals(List.of(13L), canceled);
+            assertTrue(owned.get(3).getQueue().isEmpty());
+        }
+
+        @Test
+        public void notRoutedFallback() {
+            List<Long> canceled = new ArrayList<>();
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            List<TestQueueBuilder> owned = new ArrayList<>();
+            for (long id = 10; id < 13; id++) {
+                TestQueueBuilder builder = new TestQueueBuilder(id, 1) {
+                    @Override
+                    public void cancel(int index) {
+                        canceled.add(this.getBuilderId().value);
+                        this.removeFromQueue(index);
+                    }
+                };
+                owned.add(builder);
+                builders.addBuilder(builder);
+            }
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            owned.get(1).addInQueue(new EntityConstructionStatus(TYPE, 7, 10));
+            manager.cancel(PlayerId.valueOf(1), 7);
+            assertEquals(List.of(11L), canceled);
+            manager.cancel(PlayerId.valueOf(1), 8);
+            assertEquals(List.of(11L, 10L, 11L, 12L), canceled);
+        }
+    }
+
+    @Nested
+    public class SetListenerBudget {
+
+        @Test
+        public void onlyDemotableDemoted() throws InterruptedException {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            manager.setListenerBudget(1, 16);
+            List<Thread> kept = new ArrayList<>();
+            ConstructionQueueListener notDemotable = q -> kept.add(Thread.currentThread());
+            List<Thread> demoted = Collections.synchronizedList(new ArrayList<>());
+            ConstructionQueueListener demotable = new DemotableQueueListener(demoted);
+            manager.willNotify(notDemotable);
+            manager.willNotify(demotable);
+            for (int i = 1; i <= 3; i++) {
+                manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, i, 10));
+            }
+            for (int i = 0; i < 100 && demoted.size() < 3; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(List.of(Thread.currentThread(), Thread.currentThread(), Thread.currentThread()), kept);
+            assertEquals(3, demoted.size());
+            for (Thread t : demoted) {
+                assertNotSame(Thread.currentThread(), t);
+            }
+            assertTrue(manager.getSlowListeners().contains(notDemotable));
+            assertTrue(manager.getSlowListeners().contains(demotable));
+        }
+
+        @Test
+        public void demotedClosed() throws InterruptedException {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            manager.setListenerBudget(1, 16);
+            List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+            manager.willNotify(new DemotableQueueListener(threads));
+            for (int i = 1; i <= 3; i++) {
+                manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, i, 10));
+            }
+            manager.closeDemotedListeners(1000);
+            assertEquals(3, threads.size());
+            manager.setListenerBudget(0, 0);
+            manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, 4, 10));
+            assertEquals(4, threads.size());
+            assertSame(Thread.currentThread(), threads.get(3));
+        }
+    }
+
+    @Nested
+    public class RemoveBuilder {
+
+        @Test
+        public void routesRemoved() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            for (int i = 1; i <= 3; i++) {
+                manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, i, 10));
+            }
+            assertEquals(3, manager.getRouteCount());
+            assertTrue(manager.removeBuilder(builder.getBuilderId()).isPresent());
+            assertEquals(0, manager.getRouteCount());
+            assertTrue(builders.getBuilderById(builder.getBuilderId()).isEmpty());
+            assertFalse(manager.removeBuilder(builder.getBuilderId()).isPresent());
+        }
+    }
+
+    @Nested
+    public class UpdateOwner {
+
+        @Test
+        public void routedForNewOwner() {
+            List<Integer> canceled = new ArrayList<>();
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1) {
+                @Override
+                public void cancel(int index) {
+                    canceled.add(index);
+                    this.removeFromQueue(index);
+                }
+            };
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            for (int i = 1; i <= 3; i++) {
+                manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, i, 10));
+            }
+            builder.setOwner(2);
+            assertTrue(manager.updateOwner(builder.getBuilderId()));
+            assertEquals(3, manager.getRouteCount());
+            assertEquals(List.of(builder), builders.getBuilderByPlayer(PlayerId.valueOf(2)));
+            manager.cancel(PlayerId.valueOf(2), 3);
+            assertEquals(List.of(3), canceled);
+            assertEquals(2, manager.getRouteCount());
+            assertFalse(manager.updateOwner(EntityId.valueOf(99L)));
+        }
+    }
+
+    @Nested
+    public class Update {
+
+        @Test
+        public void reorderKeepsBuiltElement() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            List<Integer> started = givenAStartRecorder(manager);
+            EntityConstructionStatus a = new EntityConstructionStatus(TYPE, 1, 10);
+            EntityConstructionStatus b = new EntityConstructionStatus(TYPE, 2, 10);
+            manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), a);
+            manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), b);
+            ConstructionQueue<EntityConstructionStatus> reordered = new ConstructionQueue<>(builder.getBuilderId(), 10);
+            reordered.add(b);
+            reordered.add(a);
+            manager.update(reordered);
+            assertEquals(List.of(1), started);
+            assertEquals(1, builder.getQueue().getInProgress().get(0).index);
+            assertEquals(2, builder.getQueue().getPending().get(0).index);
+            manager.entityComplete(EntityId.valueOf(100L), PlayerId.valueOf(1), TYPE, builder.getBuilderId(), 1);
+            assertEquals(List.of(1, 2), started);
+        }
+
+        @Test
+        public void dropBuiltElementStartsNext() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            List<Integer> started = givenAStartRecorder(manager);
+            EntityConstructionStatus b = new EntityConstructionStatus(TYPE, 2, 10);
+            manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, 1, 10));
+            manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), b);
+            ConstructionQueue<EntityConstructionStatus> dropped = new ConstructionQueue<>(builder.getBuilderId(), 10);
+            dropped.add(b);
+            manager.update(dropped);
+            assertEquals(List.of(1, 2), started);
+            assertEquals(2, builder.getQueue().getInProgress().get(0).index);
+            manager.entityComplete(EntityId.valueOf(100L), PlayerId.valueOf(1), TYPE, builder.getBuilderId(), 1);
+            assertEquals(1, builder.getQueue().getInProgressSize());
+            assertEquals(List.of(1, 2), started);
+        }
+    }
+
+    @Nested
+    public class Priority {
+
+        @Test
+        public void reorderNotifiedAsReset() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders, givenAFrameManager());
+            List<Boolean> resets = new ArrayList<>();
+            manager.willNotify(new ConstructionQueueListener() {
+                @Override
+                public void notify(ConstructionQueue queue) {
+                }
+
+                @Override
+                public void notifyChanges(ConstructionQueue queue, ConstructionQueueChange change) {
+                    resets.add(change.isReset());
+                }
+            });
+            for (int i = 1; i <= 3; i++) {
+                manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, i, 10));
+            }
+            manager.flush();
+            assertTrue(manager.moveToFront(builder.getBuilderId(), 3));
+            manager.flush();
+            manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, 4, 10), ConstructionPriority.BACKGROUND);
+            manager.flush();
+            assertEquals(List.of(false, true, false), resets);
+            assertEquals(List.of(1, 3, 2, 4), indexes(builder.getQueue()));
+        }
+
+        @Test
+        public void journalKeepsPriorities(@TempDir final Path folder) throws IOException {
+            Path file = folder.resolve("construction.journal");
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            try (ConstructionJournal journal = new ConstructionJournal(file, true)) {
+                manager.setJournal(journal);
+                for (int i = 1; i <= 3; i++) {
+                    manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, i, 10));
+                }
+                manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, 4, 10), ConstructionPriority.RUSH);
+                manager.moveToFront(builder.getBuilderId(), 3);
+            }
+            TestQueueBuilder replayedBuilder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> replayedBuilders = new BuilderManager<>();
+            replayedBuilders.addBuilder(replayedBuilder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> replayed = new ConstructionQueueManager<>(replayedBuilders);
+            new ConstructionJournalReplayer<>(new ConstructionManager<>(e -> null, null, new DeadlineConstructionScheduler<>()), replayed, FACTORY).replay(file);
+            assertEquals(List.of(1, 3, 4, 2), indexes(replayedBuilder.getQueue()));
+            assertEquals(ConstructionPriority.RUSH, replayedBuilder.getQueue().getPriority(3));
+            assertEquals(ConstructionPriority.RUSH, replayedBuilder.getQueue().getPriority(4));
+            replayed.addEntity(PlayerId.valueOf(1), replayedBuilder.getBuilderId(), new EntityConstructionStatus(TYPE, 5, 10), ConstructionPriority.RUSH);
+            assertEquals(List.of(1, 3, 4, 5, 2), indexes(replayedBuilder.getQueue()));
+        }
+
+        @Test
+        public void rushPromotedFirst() {
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 1);
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager = new ConstructionQueueManager<>(builders);
+            List<Integer> started = new ArrayList<>();
+            manager.willNotify(new ConstructionQueueListener() {
+                @Override
+                public void notify(ConstructionQueue queue) {
+                }
+
+                @Override
+                public void add(EntityConstructionStatus toBuild, PlayerId playerId, EntityId builderId) {
+                    started.add(toBuild.index);
+                }
+            });
+            manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, 1, 10));
+            manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, 2, 10));
+            manager.addEntity(PlayerId.valueOf(1), builder.getBuilderId(), new EntityConstructionStatus(TYPE, 3, 10), ConstructionPriority.RUSH);
+            assertEquals(List.of(1), started);
+            manager.entityComplete(EntityId.valueOf(100L), PlayerId.valueOf(1), TYPE, builder.getBuilderId(), 1);
+            assertEquals(List.of(1, 3), started);
+            manager.entityComplete(EntityId.valueOf(101L), PlayerId.valueOf(1), TYPE, builder.getBuilderId(), 3);
+            assertEquals(List.of(1, 3, 2), started);
+        }
+
+        private List<Integer> indexes(final ConstructionQueue<EntityConstructionStatus> queue) {
+            List<Integer> result = new ArrayList<>();
+            for (EntityConstructionStatus status : queue.getList()) {
+                result.add(status.index);
+            }
+            return result;
+        }
+    }
+
+    private static List<Integer> givenAStartRecorder(final ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager) {
+        List<Integer> started = new ArrayList<>();
+        manager.willNotify(new ConstructionQueueListener() {
+            @Override
+            public void notify(ConstructionQueue queue) {
+            }
+
+            @Override
+            public void add(EntityConstructionStatus toBuild, PlayerId playerId, EntityId builderId) {
+                started.add(toBuild.index);
+            }
+        });
+        return started;
+    }
+
+    private static List<ConstructionQueueChange> givenAChangeRecorder(final ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> manager) {
+        List<ConstructionQueueChange> changes = new ArrayList<>();
+        manager.willNotify(new ConstructionQueueListener() {
+            @Override
+            public void notify(ConstructionQueue queue) {
+                changes.add(null);
+            }
+
+            @Override
+            public void notifyChanges(ConstructionQueue queue, ConstructionQueueChange change) {
+                changes.add(change.copy());
+            }
+        });
+        return changes;
+    }
+
+    private static FrameManager givenAFrameManager() {
+        return (FrameManager) Proxy.newProxyInstance(FrameManager.class.getClassLoader(), new Class<?>[]{FrameManager.class}, (proxy, method, args) -> {
+            if ("addFrameListener".equals(method.getName())) {
+                return null;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    /**
+     * Queue listener which can be demoted, recording the threads it is notified on.
+     */
+    private static final class DemotableQueueListener implements ConstructionQueueListener, DemotableListener {
+
+        private final List<Thread> threads;
+
+        private DemotableQueueListener(final List<Thread> threads) {
+            this.threads = threads;
+        }
+
+        @Override
+        public void notify(ConstructionQueue queue) {
+            this.threads.add(Thread.currentThread());
+        }
+    }
+}
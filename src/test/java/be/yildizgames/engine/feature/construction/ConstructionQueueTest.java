@@ -0,0 +1,256 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConstructionQueueTest {
+
+    private static final EntityType TYPE = new EntityType(1, "a");
+
+    private static EntityConstructionStatus givenAStatus(int index) {
+        return new EntityConstructionStatus(TYPE, index, 10);
+    }
+
+    private static List<Integer> indexes(ConstructionQueue<EntityConstructionStatus> queue) {
+        List<Integer> result = new ArrayList<>();
+        for (EntityConstructionStatus status : queue.getList()) {
+            result.add(status.index);
+        }
+        return result;
+    }
+
+    @Nested
+    public class Add {
+
+        @Test
+        public void withPriority() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            queue.add(givenAStatus(1));
+            queue.promote(1, s -> {});
+            queue.add(givenAStatus(2), ConstructionPriority.BACKGROUND);
+            queue.add(givenAStatus(3));
+            queue.add(givenAStatus(4), ConstructionPriority.RUSH);
+            queue.add(givenAStatus(5));
+            queue.add(givenAStatus(6), ConstructionPriority.RUSH);
+            assertEquals(List.of(1, 4, 6, 3, 5, 2), indexes(queue));
+            assertEquals(ConstructionPriority.BACKGROUND, queue.getPriority(2));
+        }
+
+        @Test
+        public void withoutPriorityKeepsOrder() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            for (int i = 1; i <= 5; i++) {
+                queue.add(givenAStatus(i));
+            }
+            queue.promote(2, s -> {});
+            queue.remove(3);
+            queue.add(givenAStatus(6));
+            assertEquals(List.of(1, 2, 4, 5, 6), indexes(queue));
+        }
+    }
+
+    @Nested
+    public class MoveToFront {
+
+        @Test
+        public void happyFlow() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            for (int i = 1; i <= 5; i++) {
+                queue.add(givenAStatus(i));
+            }
+            queue.promote(1, s -> {});
+            assertTrue(queue.moveToFront(4));
+            assertFalse(queue.moveToFront(1));
+            assertFalse(queue.moveToFront(9));
+            assertEquals(List.of(1, 4, 2, 3, 5), indexes(queue));
+            queue.add(givenAStatus(6), ConstructionPriority.RUSH);
+            assertEquals(List.of(1, 4, 6, 2, 3, 5), indexes(queue));
+            queue.remove(1);
+            List<Integer> started = new ArrayList<>();
+            queue.promote(1, s -> started.add(s.index));
+            assertEquals(List.of(4), started);
+            queue.add(givenAStatus(7), ConstructionPriority.RUSH);
+            assertEquals(List.of(4, 6, 7, 2, 3, 5), indexes(queue));
+        }
+    }
+
+    @Nested
+    public class SetPriority {
+
+        @Test
+        public void happyFlow() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            for (int i = 1; i <= 4; i++) {
+                queue.add(givenAStatus(i));
+            }
+            long version = queue.getVersion();
+            assertTrue(queue.setPriority(2, ConstructionPriority.BACKGROUND));
+            assertEquals(List.of(1, 3, 4, 2), indexes(queue));
+            assertTrue(queue.setPriority(4, ConstructionPriority.RUSH));
+            assertEquals(List.of(4, 1, 3, 2), indexes(queue));
+            assertTrue(queue.setPriority(2, ConstructionPriority.NORMAL));
+            assertEquals(List.of(4, 1, 3, 2), indexes(queue));
+            assertEquals(version + 3, queue.getVersion());
+            queue.add(givenAStatus(5));
+            assertEquals(List.of(4, 1, 3, 2, 5), indexes(queue));
+        }
+    }
+
+    @Nested
+    public class Remove {
+
+        @Test
+        public void happyFlow() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            queue.add(givenAStatus(1));
+            queue.add(givenAStatus(2));
+            queue.add(givenAStatus(3));
+            assertTrue(queue.remove(2));
+            assertFalse(queue.remove(2));
+            assertEquals(List.of(1, 3), indexes(queue));
+            assertNull(queue.getByRequest(2));
+        }
+
+        @Test
+        public void withDuplicatedRequest() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            EntityConstructionStatus first = givenAStatus(1);
+            EntityConstructionStatus second = givenAStatus(1);
+            queue.add(first);
+            queue.add(givenAStatus(2));
+            queue.add(second);
+            assertSame(first, queue.getByRequest(1));
+            assertTrue(queue.remove(1));
+            assertSame(second, queue.getByRequest(1));
+            assertTrue(queue.remove(1));
+            assertFalse(queue.remove(1));
+            assertEquals(List.of(2), indexes(queue));
+        }
+
+        @Test
+        public void reusedSlotKeepsOrder() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            for (int i = 1; i <= 5; i++) {
+                queue.add(givenAStatus(i));
+            }
+            queue.remove(2);
+            queue.remove(4);
+            queue.add(givenAStatus(6));
+            queue.add(givenAStatus(7));
+            assertEquals(List.of(1, 3, 5, 6, 7), indexes(queue));
+            assertEquals(7, queue.getList().get(4).index);
+            assertEquals(3, queue.getList().get(1).index);
+        }
+    }
+
+    @Nested
+    public class GetNumberOfEntities {
+
+        @Test
+        public void happyFlow() {
+            EntityType other = new EntityType(2, "b");
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            queue.add(givenAStatus(1));
+            queue.add(new EntityConstructionStatus(other, 2, 10));
+            queue.add(givenAStatus(3));
+            assertEquals(2, queue.getNumberOfEntities(TYPE));
+            assertEquals(1, queue.getNumberOfEntities(other));
+            queue.remove(1);
+            queue.remove(2);
+            assertEquals(1, queue.getNumberOfEntities(TYPE));
+            assertEquals(0, queue.getNumberOfEntities(other));
+            queue.set(List.of(new EntityConstructionStatus(other, 4, 10), new EntityConstructionStatus(other, 5, 10)));
+            assertEquals(0, queue.getNumberOfEntities(TYPE));
+            assertEquals(2, queue.getNumberOfEntities(other));
+        }
+    }
+
+    @Nested
+    public class Set {
+
+        @Test
+        public void happyFlow() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            queue.add(givenAStatus(1));
+            queue.set(List.of(givenAStatus(2), givenAStatus(3)));
+            assertEquals(List.of(2, 3), indexes(queue));
+            assertNull(queue.getByRequest(1));
+            assertEquals(3, queue.getByRequest(3).index);
+        }
+
+        @Test
+        public void withOwnView() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            queue.add(givenAStatus(1));
+            queue.add(givenAStatus(2));
+            queue.add(givenAStatus(3));
+            queue.set(queue.getList());
+            assertEquals(List.of(1, 2, 3), indexes(queue));
+            assertEquals(3, queue.getList().size());
+            assertEquals(2, queue.getByRequest(2).index);
+        }
+
+        @Test
+        public void startedKeptByRequest() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 10);
+            EntityConstructionStatus a = givenAStatus(1);
+            EntityConstructionStatus b = givenAStatus(2);
+            queue.add(a);
+            queue.add(b);
+            queue.promote(1, s -> {});
+            queue.set(List.of(b, a));
+            assertEquals(List.of(1, 2), indexes(queue));
+            assertTrue(queue.isInProgress(1));
+            assertFalse(queue.isInProgress(2));
+            queue.set(List.of(b));
+            assertEquals(0, queue.getInProgressSize());
+            assertFalse(queue.isInProgress(2));
+        }
+
+        @Test
+        public void tooBig() {
+            ConstructionQueue<EntityConstructionStatus> queue = new ConstructionQueue<>(EntityId.valueOf(10L), 1);
+            assertThrows(ConstructionQueueFullException.class, () -> queue.set(List.of(givenAStatus(1), givenAStatus(2))));
+        }
+    }
+}
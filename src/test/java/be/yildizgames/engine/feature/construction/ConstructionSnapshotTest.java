@@ -0,0 +1,231 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.geometry.Point3D;
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.Entity;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.EntityToCreate;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static be.yildizgames.engine.feature.construction.TestConstructionState.FACTORY;
+import static be.yildizgames.engine.feature.construction.TestConstructionState.TYPES;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ConstructionSnapshotTest {
+
+    private static ConstructionManager<Entity, EntityInConstruction, Object> givenAManager() {
+        return new ConstructionManager<>(e -> null, null, new DeadlineConstructionScheduler<>());
+    }
+
+    @Nested
+    public class Restore {
+
+        @Test
+        public void happyFlow(@TempDir final Path folder) throws IOException {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = givenAManager();
+            BuilderManager<TestQueueBuilder> builders = new BuilderManager<>();
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 2);
+            builders.addBuilder(builder);
+            builders.addBuilder(new TestQueueBuilder(11L, 2));
+            manager.addEntityToBuild(new WaitingEntity<>(new EntityInConstruction(TYPES[1], EntityId.valueOf(5L), PlayerId.valueOf(2)),
+                    new EntityConstructionStatus(TYPES[1], 3, 1500L), EntityId.valueOf(10L)));
+            manager.frameEnded(500L);
+            builder.addInQueue(new EntityConstructionStatus(TYPES[0], 4, 100L));
+            builder.addInQueue(new EntityConstructionStatus(TYPES[1], 7, 200L));
+            manager.createEntity(new EntityToCreate(TYPES[0], Point3D.valueOf(1, 2, 3), Point3D.BASE_DIRECTION, PlayerId.valueOf(2)));
+            Path file = folder.resolve("construction.snapshot");
+            new ConstructionSnapshot<>(manager, builders, FACTORY).save(file);
+
+            ConstructionManager<Entity, EntityInConstruction, Object> restoredManager = givenAManager();
+            BuilderManager<TestQueueBuilder> restoredBuilders = new BuilderManager<>();
+            TestQueueBuilder restoredBuilder = new TestQueueBuilder(10L, 2);
+            restoredBuilders.addBuilder(restoredBuilder);
+            new ConstructionSnapshot<>(restoredManager, restoredBuilders, FACTORY).restore(file);
+
+            List<WaitingEntity> builds = restoredManager.getEntityToBuildList();
+            assertEquals(1, builds.size());
+            assertEquals(EntityId.valueOf(5L), builds.get(0).entity.getId());
+            assertEquals(PlayerId.valueOf(2), builds.get(0).entity.getOwner());
+            assertEquals(EntityId.valueOf(10L), builds.get(0).builderId);
+            assertEquals(3, builds.get(0).representation.index);
+            assertEquals(1000L, builds.get(0).representation.getTimeLeft());
+            assertEquals(2, restoredBuilder.getQueue().getList().size());
+            assertEquals(7, restoredBuilder.getQueue().getList().get(1).index);
+            assertEquals(builder.getQueue().getVersion(), restoredBuilder.getQueue().getVersion());
+            List<EntityToCreate> created = new ArrayList<>();
+            restoredManager.getEntityToCreatePipeline().drain(created::add);
+            assertEquals(1, created.size());
+            assertEquals(Point3D.valueOf(1, 2, 3), created.get(0).getPosition());
+            assertFalse(Files.exists(folder.resolve("construction.snapshot.tmp")));
+        }
+
+        @Test
+        public void notASnapshot(@TempDir final Path folder) throws IOException {
+            Path file = folder.resolve("other");
+            Files.write(file, new byte[32]);
+            ConstructionSnapshot<EntityInConstruction, EntityConstructionStatus> snapshot =
+                    new ConstructionSnapshot<>(givenAManager(), new BuilderManager<TestQueueBuilder>(), FACTORY);
+            assertThrows(IOException.class, () -> snapshot.restore(file));
+        }
+
+        @Test
+        public void silent(@TempDir final Path folder) throws IOException {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = givenAManager();
+            manager.addEntityToBuild(new WaitingEntity<>(new EntityInConstruction(TYPES[1], EntityId.valueOf(5L), PlayerId.valueOf(2)),
+                    new EntityConstructionStatus(TYPES[1], 3, 1500L), EntityId.valueOf(10L)));
+            Path file = folder.resolve("construction.snapshot");
+            new ConstructionSnapshot<>(manager, new BuilderManager<TestQueueBuilder>(), FACTORY).save(file);
+
+            ConstructionManager<Entity, EntityInConstruction, Object> restoredManager = givenAManager();
+            List<WaitingEntity> notified = new ArrayList<>();
+            restoredManager.willNotify(new ConstructionListener() {
+                @Override
+                public void addEntityToCreate(WaitingEntity e) {
+                    notified.add(e);
+                }
+            });
+            Path journalFile = folder.resolve("construction.journal");
+            try (ConstructionJournal journal = new ConstructionJournal(journalFile, true)) {
+                restoredManager.setJournal(journal);
+                new ConstructionSnapshot<>(restoredManager, new BuilderManager<TestQueueBuilder>(), FACTORY).restore(file);
+            }
+            assertEquals(1, restoredManager.getEntityToBuildList().size());
+            assertEquals(1, restoredManager.getEntityToBuildList(PlayerId.valueOf(2)).size());
+            assertTrue(notified.isEmpty());
+            ConstructionJournalReplayer<EntityInConstruction, EntityConstructionStatus> replayer = new ConstructionJournalReplayer<>(givenAManager(), FACTORY);
+            replayer.replay(journalFile);
+            assertEquals(0, replayer.getReplayedRecords());
+        }
+
+        @Test
+        public void routed(@TempDir final Path folder) throws IOException {
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 2);
+            builders.addBuilder(builder);
+            builder.addInQueue(new EntityConstructionStatus(TYPES[0], 4, 100L));
+            builder.addInQueue(new EntityConstructionStatus(TYPES[1], 7, 200L));
+            Path file = folder.resolve("construction.snapshot");
+            new ConstructionSnapshot<>(givenAManager(), builders, FACTORY).save(file);
+
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> restoredBuilders = new BuilderManager<>();
+            List<Integer> canceled = new ArrayList<>();
+            TestQueueBuilder restoredBuilder = new TestQueueBuilder(10L, 2) {
+                @Override
+                public void cancel(int index) {
+                    canceled.add(index);
+                }
+            };
+            List<Integer> canceledByOther = new ArrayList<>();
+            restoredBuilders.addBuilder(new TestQueueBuilder(11L, 2) {
+                @Override
+                public void cancel(int index) {
+                    canceledByOther.add(index);
+                }
+            });
+            restoredBuilders.addBuilder(restoredBuilder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> queueManager = new ConstructionQueueManager<>(restoredBuilders);
+            new ConstructionSnapshot<>(givenAManager(), queueManager, FACTORY).restore(file);
+            assertEquals(2, restoredBuilder.getQueue().getList().size());
+            queueManager.cancel(PlayerId.valueOf(2), 7);
+            assertEquals(List.of(7), canceled);
+            assertTrue(canceledByOther.isEmpty());
+        }
+
+        @Test
+        public void inProgressNotStartedAgain(@TempDir final Path folder) throws IOException {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = givenAManager();
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> builders = new BuilderManager<>();
+            TestQueueBuilder builder = new TestQueueBuilder(10L, 2);
+            builders.addBuilder(builder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> queueManager = new ConstructionQueueManager<>(builders);
+            EntityConstructionStatus building = new EntityConstructionStatus(TYPES[0], 4, 100L);
+            queueManager.addEntity(PlayerId.valueOf(2), builder.getBuilderId(), building);
+            queueManager.addEntity(PlayerId.valueOf(2), builder.getBuilderId(), new EntityConstructionStatus(TYPES[1], 7, 200L));
+            manager.addEntityToBuild(new WaitingEntity<>(new EntityInConstruction(TYPES[0], EntityId.valueOf(5L), PlayerId.valueOf(2)),
+                    building, builder.getBuilderId()));
+            Path file = folder.resolve("construction.snapshot");
+            new ConstructionSnapshot<>(manager, queueManager, FACTORY).save(file);
+
+            BuilderManager<QueueBuilder<EntityConstructionStatus>> restoredBuilders = new BuilderManager<>();
+            TestQueueBuilder restoredBuilder = new TestQueueBuilder(10L, 2);
+            restoredBuilders.addBuilder(restoredBuilder);
+            ConstructionQueueManager<EntityConstructionStatus, EntityInConstruction> restoredQueueManager = new ConstructionQueueManager<>(restoredBuilders);
+            List<Integer> started = new ArrayList<>();
+            restoredQueueManager.willNotify(new ConstructionQueueListener() {
+                @Override
+                public void notify(ConstructionQueue queue) {
+                }
+
+                @Override
+                public void add(EntityConstructionStatus toBuild, PlayerId playerId, EntityId builderId) {
+                    started.add(toBuild.index);
+                }
+            });
+            new ConstructionSnapshot<>(givenAManager(), restoredQueueManager, FACTORY).restore(file);
+            assertEquals(1, restoredBuilder.getQueue().getInProgressSize());
+            assertEquals(4, restoredBuilder.getQueue().getInProgress().get(0).index);
+            restoredQueueManager.addEntity(PlayerId.valueOf(2), restoredBuilder.getBuilderId(), new EntityConstructionStatus(TYPES[0], 8, 100L));
+            assertTrue(started.isEmpty());
+            restoredQueueManager.entityComplete(EntityId.valueOf(5L), PlayerId.valueOf(2), TYPES[0], restoredBuilder.getBuilderId(), 4);
+            assertEquals(List.of(7), started);
+        }
+    }
+
+    @Nested
+    public class Save {
+
+        @Test
+        public void truncated(@TempDir final Path folder) throws IOException {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = givenAManager();
+            for (int i = 0; i < 10; i++) {
+                manager.addEntityToBuild(new WaitingEntity<>(new EntityInConstruction(TYPES[1], EntityId.valueOf(i), PlayerId.valueOf(2)),
+                        new EntityConstructionStatus(TYPES[1], i, 100L), EntityId.valueOf(10L)));
+            }
+            Path file = folder.resolve("construction.snapshot");
+            new ConstructionSnapshot<>(manager, new BuilderManager<TestQueueBuilder>(), FACTORY).save(file);
+            ByteBuffer header = ByteBuffer.wrap(Files.readAllBytes(file));
+            assertEquals(16 + header.getLong(8), Files.size(file));
+        }
+    }
+}
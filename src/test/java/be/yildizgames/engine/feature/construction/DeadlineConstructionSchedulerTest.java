@@ -0,0 +1,209 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static be.yildizgames.engine.feature.construction.TestConstructionState.givenAWaitingEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class DeadlineConstructionSchedulerTest {
+
+    @Nested
+    public class Advance {
+
+        @Test
+        public void completedByDeadline() {
+            DeadlineConstructionScheduler<EntityInConstruction> scheduler = new DeadlineConstructionScheduler<>(2);
+            Random random = new Random(42);
+            List<WaitingEntity<EntityInConstruction>> entities = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(i, 1 + random.nextInt(1000));
+                entities.add(w);
+                scheduler.schedule(w, w.representation.getTimeLeft());
+            }
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(1000, completed::add);
+            assertEquals(200, completed.size());
+            for (int i = 1; i < completed.size(); i++) {
+                assertTrue(completed.get(i - 1).representation.getTimeLeft() <= completed.get(i).representation.getTimeLeft());
+            }
+            assertTrue(scheduler.getScheduled().isEmpty());
+        }
+
+        @Test
+        public void tiesInSchedulingOrder() {
+            DeadlineConstructionScheduler<EntityInConstruction> scheduler = new DeadlineConstructionScheduler<>();
+            List<WaitingEntity<EntityInConstruction>> entities = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(i, 10);
+                entities.add(w);
+                scheduler.schedule(w, 10);
+            }
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(10, completed::add);
+            assertEquals(entities, completed);
+        }
+
+        @Test
+        public void notElapsed() {
+            DeadlineConstructionScheduler<EntityInConstruction> scheduler = new DeadlineConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(1, 10);
+            scheduler.schedule(w, 10);
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(9, completed::add);
+            assertTrue(completed.isEmpty());
+            scheduler.advance(1, completed::add);
+            assertEquals(List.of(w), completed);
+            assertTrue(w.representation.isTimeElapsed());
+        }
+
+        @Test
+        public void cancelFromCallback() {
+            DeadlineConstructionScheduler<EntityInConstruction> scheduler = new DeadlineConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w1 = givenAWaitingEntity(1, 10);
+            WaitingEntity<EntityInConstruction> w2 = givenAWaitingEntity(2, 10);
+            scheduler.schedule(w1, 10);
+            scheduler.schedule(w2, 10);
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(10, w -> {
+                completed.add(w);
+                scheduler.cancel(w2);
+            });
+            assertEquals(List.of(w1), completed);
+            assertTrue(scheduler.getScheduled().isEmpty());
+        }
+    }
+
+    @Nested
+    public class Cancel {
+
+        @Test
+        public void happyFlow() {
+            DeadlineConstructionScheduler<EntityInConstruction> scheduler = new DeadlineConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w1 = givenAWaitingEntity(1, 10);
+            WaitingEntity<EntityInConstruction> w2 = givenAWaitingEntity(2, 20);
+            scheduler.schedule(w1, 10);
+            scheduler.schedule(w2, 20);
+            assertTrue(scheduler.cancel(w1));
+            assertFalse(scheduler.cancel(w1));
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(20, completed::add);
+            assertEquals(List.of(w2), completed);
+        }
+
+        @Test
+        public void byInstance() {
+            DeadlineConstructionScheduler<EntityInConstruction> scheduler = new DeadlineConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(1, 10);
+            WaitingEntity<EntityInConstruction> other = new WaitingEntity<>(w.entity, w.representation, w.builderId);
+            scheduler.schedule(w, 10);
+            assertFalse(scheduler.cancel(other));
+            assertEquals(List.of(w), scheduler.getScheduled());
+        }
+
+        @Test
+        public void rescheduled() {
+            DeadlineConstructionScheduler<EntityInConstruction> scheduler = new DeadlineConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(1, 10);
+            scheduler.schedule(w, 10);
+            scheduler.schedule(w, 30);
+            assertEquals(1, scheduler.getScheduled().size());
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(10, completed::add);
+            assertTrue(completed.isEmpty());
+            scheduler.advance(20, completed::add);
+            assertEquals(List.of(w), completed);
+        }
+
+        @Test
+        public void purged() {
+            DeadlineConstructionScheduler<EntityInConstruction> scheduler = new DeadlineConstructionScheduler<>();
+            List<WaitingEntity<EntityInConstruction>> entities = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(i, 300 - i);
+                entities.add(w);
+                scheduler.schedule(w, 300 - i);
+            }
+            for (int i = 0; i < 300; i += 3) {
+                scheduler.cancel(entities.get(i));
+                scheduler.cancel(entities.get(i + 1));
+            }
+            assertEquals(100, scheduler.getScheduled().size());
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(300, completed::add);
+            assertEquals(100, completed.size());
+            for (int i = 0; i < completed.size(); i++) {
+                assertEquals(entities.get(299 - i * 3), completed.get(i));
+            }
+        }
+    }
+
+    @Nested
+    public class GetScheduled {
+
+        @Test
+        public void timeLeftUpdated() {
+            DeadlineConstructionScheduler<EntityInConstruction> scheduler = new DeadlineConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w1 = givenAWaitingEntity(1, 10);
+            WaitingEntity<EntityInConstruction> w2 = givenAWaitingEntity(2, 20);
+            scheduler.schedule(w1, 10);
+            scheduler.schedule(w2, 20);
+            scheduler.advance(4, w -> {});
+            assertEquals(10, w1.representation.getTimeLeft());
+            assertEquals(2, scheduler.getScheduled().size());
+            assertEquals(6, w1.representation.getTimeLeft());
+            assertEquals(16, w2.representation.getTimeLeft());
+            scheduler.advance(3, w -> {});
+            scheduler.getScheduled();
+            assertEquals(3, w1.representation.getTimeLeft());
+        }
+
+        @Test
+        public void synchronizeOne() {
+            DeadlineConstructionScheduler<EntityInConstruction> scheduler = new DeadlineConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w1 = givenAWaitingEntity(1, 10);
+            WaitingEntity<EntityInConstruction> w2 = givenAWaitingEntity(2, 20);
+            scheduler.schedule(w1, 10);
+            scheduler.schedule(w2, 20);
+            scheduler.advance(5, w -> {});
+            scheduler.synchronize(w1);
+            scheduler.synchronize(w1);
+            assertEquals(5, w1.representation.getTimeLeft());
+            assertEquals(20, w2.representation.getTimeLeft());
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.geometry.Point3D;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityToCreate;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class EntityCreationPipelineTest {
+
+    private static final EntityType TYPE = new EntityType(1, "a");
+
+    private static EntityToCreate givenAnEntity(int owner) {
+        return new EntityToCreate(TYPE, Point3D.BASE_DIRECTION, Point3D.BASE_DIRECTION, PlayerId.valueOf(owner));
+    }
+
+    @Nested
+    public class Offer {
+
+        @Test
+        public void happyFlow() {
+            EntityCreationPipeline pipeline = new EntityCreationPipeline(4);
+            EntityToCreate e1 = givenAnEntity(1);
+            EntityToCreate e2 = givenAnEntity(2);
+            assertTrue(pipeline.offer(e1));
+            assertTrue(pipeline.offer(e2));
+            assertEquals(2, pipeline.getBacklog());
+            List<EntityToCreate> created = new ArrayList<>();
+            assertEquals(2, pipeline.drain(created::add));
+            assertEquals(List.of(e1, e2), created);
+            assertEquals(0, pipeline.getBacklog());
+        }
+
+        @Test
+        public void full() {
+            EntityCreationPipeline pipeline = new EntityCreationPipeline(3);
+            assertEquals(4, pipeline.getCapacity());
+            for (int i = 0; i < 4; i++) {
+                assertTrue(pipeline.offer(givenAnEntity(i)));
+            }
+            assertTrue(pipeline.isFull());
+            assertFalse(pipeline.offer(givenAnEntity(5)));
+            assertThrows(EntityCreationPipelineFullException.class, () -> pipeline.add(givenAnEntity(6)));
+            assertEquals(2, pipeline.getRejected());
+            pipeline.drain(e -> {}, 1);
+            assertFalse(pipeline.isFull());
+            assertTrue(pipeline.offer(givenAnEntity(7)));
+        }
+
+        @Test
+        public void withNull() {
+            EntityCreationPipeline pipeline = new EntityCreationPipeline(4);
+            assertThrows(NullPointerException.class, () -> pipeline.offer(null));
+        }
+
+        @Test
+        public void concurrentProducers() throws InterruptedException {
+            int producers = 4;
+            int perProducer = 5000;
+            EntityCreationPipeline pipeline = new EntityCreationPipeline(producers * perProducer);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                int owner = p;
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        pipeline.add(new EntityToCreate(new EntityType(i, "a"), Point3D.BASE_DIRECTION, Point3D.BASE_DIRECTION, PlayerId.valueOf(owner)));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            start.countDown();
+            int[] next = new int[producers];
+            int drained = 0;
+            while (drained < producers * perProducer) {
+                drained += pipeline.drain(e -> {
+                    int owner = e.getOwner().value;
+                    assertEquals(next[owner], e.getType().type);
+                    next[owner]++;
+                });
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            for (int p = 0; p < producers; p++) {
+                assertEquals(perProducer, next[p]);
+            }
+            assertEquals(0, pipeline.getRejected());
+            assertEquals(0, pipeline.getBacklog());
+        }
+    }
+
+    @Nested
+    public class Drain {
+
+        @Test
+        public void countBudgetCarriedOver() {
+            EntityCreationPipeline pipeline = new EntityCreationPipeline(16);
+            pipeline.setBudget(3, Long.MAX_VALUE - 1);
+            List<EntityToCreate> entities = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                EntityToCreate e = givenAnEntity(i);
+                entities.add(e);
+                pipeline.add(e);
+            }
+            List<EntityToCreate> created = new ArrayList<>();
+            assertEquals(3, pipeline.drain(created::add));
+            assertEquals(3, pipeline.getLastDrained());
+            assertEquals(4, pipeline.getLastCarriedOver());
+            assertEquals(3, pipeline.drain(created::add));
+            assertEquals(1, pipeline.drain(created::add));
+            assertEquals(0, pipeline.getLastCarriedOver());
+            assertEquals(entities, created);
+        }
+
+        @Test
+        public void timeBudgetAtLeastOne() {
+            EntityCreationPipeline pipeline = new EntityCreationPipeline(16);
+            pipeline.setBudget(100, 1);
+            for (int i = 0; i < 3; i++) {
+                pipeline.add(givenAnEntity(i));
+            }
+            List<EntityToCreate> created = new ArrayList<>();
+            assertEquals(1, pipeline.drain(e -> {
+                created.add(e);
+                long start = System.nanoTime();
+                while (System.nanoTime() == start) {
+                    Thread.onSpinWait();
+                }
+            }));
+            assertEquals(2, pipeline.getLastCarriedOver());
+            assertEquals(1, created.size());
+        }
+
+        @Test
+        public void withLimit() {
+            EntityCreationPipeline pipeline = new EntityCreationPipeline(16);
+            for (int i = 0; i < 3; i++) {
+                pipeline.add(givenAnEntity(i));
+            }
+            assertEquals(2, pipeline.drain(e -> {}, 2));
+            assertEquals(1, pipeline.getBacklog());
+        }
+    }
+
+    @Nested
+    public class ForEachPending {
+
+        @Test
+        public void notRemoved() {
+            EntityCreationPipeline pipeline = new EntityCreationPipeline(16);
+            EntityToCreate e1 = givenAnEntity(1);
+            pipeline.add(e1);
+            pipeline.add(givenAnEntity(2));
+            List<EntityToCreate> pending = new ArrayList<>();
+            assertEquals(1, pipeline.forEachPending(1, pending::add));
+            assertSame(e1, pending.get(0));
+            assertEquals(2, pipeline.getBacklog());
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class IntIntMapTest {
+
+    @Nested
+    public class Put {
+
+        @Test
+        public void happyFlow() {
+            IntIntMap map = new IntIntMap();
+            assertEquals(IntIntMap.MISSING, map.put(5, 1));
+            assertEquals(1, map.put(5, 2));
+            assertEquals(2, map.get(5));
+            assertEquals(1, map.size());
+        }
+
+        @Test
+        public void ifAbsent() {
+            IntIntMap map = new IntIntMap();
+            assertEquals(IntIntMap.MISSING, map.putIfAbsent(5, 1));
+            assertEquals(1, map.putIfAbsent(5, 2));
+            assertEquals(1, map.get(5));
+        }
+
+        @Test
+        public void withNegative() {
+            IntIntMap map = new IntIntMap();
+            assertThrows(IllegalArgumentException.class, () -> map.put(5, -1));
+        }
+    }
+
+    @Nested
+    public class Remove {
+
+        @Test
+        public void happyFlow() {
+            IntIntMap map = new IntIntMap();
+            map.put(5, 1);
+            assertFalse(map.remove(5, 2));
+            assertTrue(map.remove(5, 1));
+            assertEquals(IntIntMap.MISSING, map.get(5));
+            assertEquals(0, map.size());
+        }
+
+        @Test
+        public void sameAsHashMap() {
+            IntIntMap map = new IntIntMap();
+            Map<Integer, Integer> expected = new HashMap<>();
+            Random random = new Random(12);
+            for (int i = 0; i < 200_000; i++) {
+                int key = random.nextInt(5000) - 2500;
+                if (random.nextBoolean()) {
+                    Integer previous = expected.put(key, i);
+                    assertEquals(previous == null ? IntIntMap.MISSING : previous, map.put(key, i));
+                } else {
+                    Integer current = expected.get(key);
+                    int value = current == null ? 0 : current;
+                    assertEquals(expected.remove(key, value), map.remove(key, value));
+                }
+            }
+            assertEquals(expected.size(), map.size());
+            for (int key = -2500; key < 2500; key++) {
+                assertEquals(expected.getOrDefault(key, IntIntMap.MISSING), map.get(key));
+            }
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static be.yildizgames.engine.feature.construction.TestConstructionState.givenAWaitingEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class LinearConstructionSchedulerTest {
+
+    @Nested
+    public class Advance {
+
+        @Test
+        public void happyFlow() {
+            LinearConstructionScheduler<EntityInConstruction> scheduler = new LinearConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w1 = givenAWaitingEntity(1, 20);
+            WaitingEntity<EntityInConstruction> w2 = givenAWaitingEntity(2, 10);
+            WaitingEntity<EntityInConstruction> w3 = givenAWaitingEntity(3, 30);
+            scheduler.schedule(w1, 20);
+            scheduler.schedule(w2, 10);
+            scheduler.schedule(w3, 30);
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(20, completed::add);
+            assertEquals(List.of(w1, w2), completed);
+            assertEquals(List.of(w3), scheduler.getScheduled());
+            assertEquals(10, w3.representation.getTimeLeft());
+        }
+
+        @Test
+        public void cancelFromCallback() {
+            LinearConstructionScheduler<EntityInConstruction> scheduler = new LinearConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w1 = givenAWaitingEntity(1, 10);
+            WaitingEntity<EntityInConstruction> w2 = givenAWaitingEntity(2, 10);
+            WaitingEntity<EntityInConstruction> w3 = givenAWaitingEntity(3, 30);
+            WaitingEntity<EntityInConstruction> w4 = givenAWaitingEntity(4, 30);
+            scheduler.schedule(w1, 10);
+            scheduler.schedule(w2, 10);
+            scheduler.schedule(w3, 30);
+            scheduler.schedule(w4, 30);
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(10, w -> {
+                completed.add(w);
+                scheduler.cancel(w3);
+            });
+            assertEquals(List.of(w1, w2), completed);
+            assertEquals(List.of(w4), scheduler.getScheduled());
+            assertEquals(20, w4.representation.getTimeLeft());
+        }
+
+        @Test
+        public void scheduleFromCallback() {
+            LinearConstructionScheduler<EntityInConstruction> scheduler = new LinearConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w1 = givenAWaitingEntity(1, 10);
+            WaitingEntity<EntityInConstruction> w2 = givenAWaitingEntity(2, 10);
+            scheduler.schedule(w1, 10);
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(10, w -> {
+                completed.add(w);
+                scheduler.schedule(w2, 10);
+            });
+            assertEquals(List.of(w1), completed);
+            assertEquals(List.of(w2), scheduler.getScheduled());
+            assertEquals(10, w2.representation.getTimeLeft());
+        }
+    }
+
+    @Nested
+    public class Cancel {
+
+        @Test
+        public void happyFlow() {
+            LinearConstructionScheduler<EntityInConstruction> scheduler = new LinearConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(1, 10);
+            scheduler.schedule(w, 10);
+            assertTrue(scheduler.cancel(w));
+            assertFalse(scheduler.cancel(w));
+            assertTrue(scheduler.getScheduled().isEmpty());
+        }
+
+        @Test
+        public void byInstance() {
+            LinearConstructionScheduler<EntityInConstruction> scheduler = new LinearConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(1, 10);
+            WaitingEntity<EntityInConstruction> other = new WaitingEntity<>(w.entity, w.representation, w.builderId);
+            scheduler.schedule(w, 10);
+            assertFalse(scheduler.cancel(other));
+            assertEquals(List.of(w), scheduler.getScheduled());
+        }
+    }
+
+    @Nested
+    public class Schedule {
+
+        @Test
+        public void alreadyScheduled() {
+            LinearConstructionScheduler<EntityInConstruction> scheduler = new LinearConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(1, 10);
+            scheduler.schedule(w, 10);
+            scheduler.schedule(w, 10);
+            assertEquals(1, scheduler.getScheduled().size());
+        }
+
+        @Test
+        public void rescheduledMovedLast() {
+            LinearConstructionScheduler<EntityInConstruction> scheduler = new LinearConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> w1 = givenAWaitingEntity(1, 10);
+            WaitingEntity<EntityInConstruction> w2 = givenAWaitingEntity(2, 10);
+            scheduler.schedule(w1, 10);
+            scheduler.schedule(w2, 10);
+            scheduler.schedule(w1, 10);
+            assertEquals(List.of(w2, w1), scheduler.getScheduled());
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(10, completed::add);
+            assertEquals(List.of(w2, w1), completed);
+            scheduler.schedule(w1, 10);
+            assertEquals(List.of(w1), scheduler.getScheduled());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class LongObjectMapTest {
+
+    @Nested
+    public class Put {
+
+        @Test
+        public void happyFlow() {
+            LongObjectMap<String> map = new LongObjectMap<>();
+            assertNull(map.put(5L, "a"));
+            assertEquals("a", map.put(5L, "b"));
+            assertEquals("b", map.get(5L));
+            assertEquals(1, map.size());
+        }
+
+        @Test
+        public void withNull() {
+            LongObjectMap<String> map = new LongObjectMap<>();
+            assertThrows(NullPointerException.class, () -> map.put(5L, null));
+        }
+    }
+
+    @Nested
+    public class Remove {
+
+        @Test
+        public void happyFlow() {
+            LongObjectMap<String> map = new LongObjectMap<>();
+            map.put(5L, "a");
+            assertEquals("a", map.remove(5L));
+            assertNull(map.get(5L));
+            assertNull(map.remove(5L));
+            assertEquals(0, map.size());
+        }
+
+        @Test
+        public void sameAsHashMap() {
+            LongObjectMap<Long> map = new LongObjectMap<>();
+            Map<Long, Long> expected = new HashMap<>();
+            Random random = new Random(12);
+            for (int i = 0; i < 200_000; i++) {
+                long key = random.nextInt(5000);
+                if (random.nextBoolean()) {
+                    assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+                } else {
+                    assertEquals(expected.remove(key), map.remove(key));
+                }
+            }
+            assertEquals(expected.size(), map.size());
+            for (long key = 0; key < 5000; key++) {
+                assertEquals(expected.get(key), map.get(key));
+            }
+        }
+    }
+}
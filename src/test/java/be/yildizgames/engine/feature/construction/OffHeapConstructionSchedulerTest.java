@@ -0,0 +1,109 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.Entity;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static be.yildizgames.engine.feature.construction.TestConstructionState.FACTORY;
+import static be.yildizgames.engine.feature.construction.TestConstructionState.givenAWaitingEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class OffHeapConstructionSchedulerTest {
+
+    @Nested
+    public class Constructor {
+
+        @Test
+        public void overMaxCapacity() {
+            assertThrows(ConstructionSchedulerFullException.class,
+                    () -> new OffHeapConstructionScheduler<>(FACTORY, OffHeapConstructionScheduler.MAX_CAPACITY + 1));
+        }
+    }
+
+    @Nested
+    public class Advance {
+
+        @Test
+        public void happyFlow() {
+            OffHeapConstructionScheduler<EntityInConstruction> scheduler = new OffHeapConstructionScheduler<>(FACTORY, 4);
+            for (int i = 0; i < 1000; i++) {
+                scheduler.schedule(givenAWaitingEntity(i, i % 3, 100L + i % 3, 1 + i % 10), 1 + i % 10);
+            }
+            for (int i = 0; i < 1000; i += 2) {
+                assertTrue(scheduler.cancel(givenAWaitingEntity(i, i % 3, 100L + i % 3, 0)));
+            }
+            assertFalse(scheduler.cancel(givenAWaitingEntity(0, 0, 0)));
+            assertEquals(500, scheduler.size());
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(5, completed::add);
+            assertEquals(200, completed.size());
+            for (WaitingEntity<EntityInConstruction> w : completed) {
+                assertEquals(1, w.entity.getId().value % 2);
+                assertTrue(w.representation.isTimeElapsed());
+                assertEquals(100L + w.entity.getOwner().value, w.builderId.value);
+                assertEquals(w.entity.getId().value, w.representation.index);
+            }
+            assertEquals(300, scheduler.getScheduled().size());
+            for (int i = 1000; i < 1300; i++) {
+                scheduler.schedule(givenAWaitingEntity(i, 1, 101L, 1), 1);
+            }
+            scheduler.advance(5, completed::add);
+            assertEquals(800, completed.size());
+            assertEquals(0, scheduler.size());
+        }
+    }
+
+    @Nested
+    public class WithManager {
+
+        @Test
+        public void entityToBuildListByPlayer() {
+            ConstructionManager<Entity, EntityInConstruction, Object> manager = new ConstructionManager<>(e -> null, null,
+                    new OffHeapConstructionScheduler<>(FACTORY));
+            for (int i = 0; i < 10; i++) {
+                manager.addEntityToBuild(givenAWaitingEntity(i, i % 2, 100L + i % 2, 10 + i));
+            }
+            manager.cancel(givenAWaitingEntity(1, 1, 101L, 0));
+            manager.frameEnded(5);
+            List<WaitingEntity> waiting = manager.getEntityToBuildList(PlayerId.valueOf(1));
+            assertEquals(4, waiting.size());
+            assertEquals(8, waiting.get(0).representation.getTimeLeft());
+            assertEquals(9, manager.getEntityToBuildList().size());
+        }
+    }
+}
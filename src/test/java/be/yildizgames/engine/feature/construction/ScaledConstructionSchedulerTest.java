@@ -0,0 +1,155 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static be.yildizgames.engine.feature.construction.TestConstructionState.givenAWaitingEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ScaledConstructionSchedulerTest {
+
+    private static void schedule(ScaledConstructionScheduler<EntityInConstruction> scheduler, WaitingEntity<EntityInConstruction> w) {
+        scheduler.schedule(w, w.representation.getTimeLeft());
+    }
+
+    @Nested
+    public class Advance {
+
+        @Test
+        public void withRates() {
+            ScaledConstructionScheduler<EntityInConstruction> scheduler = new ScaledConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> normal = givenAWaitingEntity(1, 1, 10L, 100);
+            WaitingEntity<EntityInConstruction> fast = givenAWaitingEntity(2, 2, 20L, 100);
+            WaitingEntity<EntityInConstruction> paused = givenAWaitingEntity(3, 2, 30L, 100);
+            schedule(scheduler, normal);
+            schedule(scheduler, fast);
+            schedule(scheduler, paused);
+            scheduler.setPlayerRate(PlayerId.valueOf(2), 2);
+            scheduler.setBuilderRate(EntityId.valueOf(30L), 0);
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(50, completed::add);
+            assertEquals(List.of(fast), completed);
+            assertTrue(fast.representation.isTimeElapsed());
+            scheduler.synchronize(normal);
+            assertEquals(50, normal.representation.getTimeLeft());
+            scheduler.synchronize(paused);
+            assertEquals(100, paused.representation.getTimeLeft());
+            scheduler.setBuilderRate(EntityId.valueOf(30L), 1);
+            scheduler.advance(50, completed::add);
+            assertEquals(List.of(fast, normal, paused), completed);
+        }
+
+        @Test
+        public void rateBeforeFirstEntity() {
+            ScaledConstructionScheduler<EntityInConstruction> scheduler = new ScaledConstructionScheduler<>();
+            scheduler.setBuilderRate(EntityId.valueOf(10L), 4);
+            WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(1, 1, 10L, 100);
+            schedule(scheduler, w);
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(24, completed::add);
+            assertEquals(List.of(), completed);
+            assertEquals(4, scheduler.getScheduled().get(0).representation.getTimeLeft());
+            scheduler.advance(1, completed::add);
+            assertEquals(List.of(w), completed);
+        }
+
+        @Test
+        public void ownerRateFollowsEntityOwner() {
+            ScaledConstructionScheduler<EntityInConstruction> scheduler = new ScaledConstructionScheduler<>();
+            scheduler.setPlayerRate(PlayerId.valueOf(2), 2);
+            WaitingEntity<EntityInConstruction> before = givenAWaitingEntity(1, 1, 10L, 100);
+            WaitingEntity<EntityInConstruction> after = givenAWaitingEntity(2, 2, 10L, 100);
+            schedule(scheduler, before);
+            schedule(scheduler, after);
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(50, completed::add);
+            assertEquals(List.of(after), completed);
+            scheduler.synchronize(before);
+            assertEquals(50, before.representation.getTimeLeft());
+        }
+
+        @Test
+        public void scheduledFromCallbackStartsNextFrame() {
+            ScaledConstructionScheduler<EntityInConstruction> scheduler = new ScaledConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> next = givenAWaitingEntity(2, 1, 20L, 10);
+            schedule(scheduler, givenAWaitingEntity(1, 1, 10L, 10));
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(50, w -> {
+                completed.add(w);
+                if (w != next) {
+                    schedule(scheduler, next);
+                }
+            });
+            assertEquals(1, completed.size());
+            scheduler.synchronize(next);
+            assertEquals(10, next.representation.getTimeLeft());
+            scheduler.advance(10, completed::add);
+            assertEquals(next, completed.get(1));
+        }
+
+        @Test
+        public void builderRemovedFromCallback() {
+            ScaledConstructionScheduler<EntityInConstruction> scheduler = new ScaledConstructionScheduler<>();
+            WaitingEntity<EntityInConstruction> first = givenAWaitingEntity(1, 1, 10L, 10);
+            schedule(scheduler, first);
+            schedule(scheduler, givenAWaitingEntity(2, 1, 10L, 100));
+            schedule(scheduler, givenAWaitingEntity(3, 1, 20L, 100));
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(10, w -> {
+                completed.add(w);
+                scheduler.removeBuilder(EntityId.valueOf(10L));
+            });
+            assertEquals(List.of(first), completed);
+            assertEquals(1, scheduler.getScheduled().size());
+            assertEquals(1, scheduler.getClockCount());
+        }
+
+        @Test
+        public void emptyClocksForgotten() {
+            ScaledConstructionScheduler<EntityInConstruction> scheduler = new ScaledConstructionScheduler<>();
+            for (int i = 0; i < 100; i++) {
+                schedule(scheduler, givenAWaitingEntity(i, i % 3, i, 10));
+            }
+            WaitingEntity<EntityInConstruction> canceled = givenAWaitingEntity(100, 1, 100L, 10);
+            schedule(scheduler, canceled);
+            scheduler.cancel(canceled);
+            assertEquals(101, scheduler.getClockCount());
+            scheduler.advance(10, w -> {});
+            assertEquals(0, scheduler.getClockCount());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import static be.yildizgames.engine.feature.construction.TestConstructionState.givenAWaitingEntity;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * @author Grégory Van den Borre
+ */
+public class ShardedConstructionSchedulerTest {
+
+    private static final int SHARDS = 4;
+
+    private final ForkJoinPool pool = new ForkJoinPool(SHARDS);
+
+    @AfterEach
+    public void shutdown() {
+        this.pool.shutdownNow();
+    }
+
+    private static int shardOf(WaitingEntity<EntityInConstruction> w) {
+        return Math.floorMod(w.entity.getOwner().hashCode(), SHARDS);
+    }
+
+    @Nested
+    public class Advance {
+
+        @Test
+        public void mergedShardAfterShard() {
+            ShardedConstructionScheduler<EntityInConstruction> scheduler = new ShardedConstructionScheduler<>(SHARDS, DeadlineConstructionScheduler::new, pool);
+            List<WaitingEntity<EntityInConstruction>> entities = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(i, i % 10, 1 + (i * 7) % 50);
+                entities.add(w);
+                scheduler.schedule(w, w.representation.getTimeLeft());
+            }
+            List<WaitingEntity<EntityInConstruction>> expected = new ArrayList<>();
+            for (int shard = 0; shard < SHARDS; shard++) {
+                for (long time = 1; time <= 30; time++) {
+                    for (WaitingEntity<EntityInConstruction> w : entities) {
+                        if (shardOf(w) == shard && w.representation.getTimeLeft() == time) {
+                            expected.add(w);
+                        }
+                    }
+                }
+            }
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(30, completed::add);
+            assertEquals(expected, completed);
+            assertEquals(200 - expected.size(), scheduler.getScheduled().size());
+            completed.clear();
+            scheduler.advance(20, completed::add);
+            assertEquals(200 - expected.size(), completed.size());
+            assertTrue(scheduler.getScheduled().isEmpty());
+        }
+
+        @Test
+        public void withFailingShard() {
+            List<FailingScheduler> created = new ArrayList<>();
+            ShardedConstructionScheduler<EntityInConstruction> scheduler = new ShardedConstructionScheduler<>(SHARDS, () -> {
+                FailingScheduler s = new FailingScheduler();
+                created.add(s);
+                return s;
+            }, pool);
+            for (int i = 0; i < 40; i++) {
+                scheduler.schedule(givenAWaitingEntity(i, i % 8, 10 + i % 2 * 10), 10 + i % 2 * 10);
+            }
+            created.get(1).failing = true;
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            assertThrows(IllegalStateException.class, () -> scheduler.advance(10, completed::add));
+            assertEquals(20, completed.size());
+            for (WaitingEntity<EntityInConstruction> w : completed) {
+                assertEquals(0, w.entity.getId().value % 2);
+            }
+            completed.clear();
+            created.get(1).failing = false;
+            scheduler.advance(10, completed::add);
+            assertEquals(20, completed.size());
+            for (WaitingEntity<EntityInConstruction> w : completed) {
+                assertEquals(1, w.entity.getId().value % 2);
+            }
+        }
+    }
+
+    @Nested
+    public class Cancel {
+
+        @Test
+        public void happyFlow() {
+            ShardedConstructionScheduler<EntityInConstruction> scheduler = new ShardedConstructionScheduler<>(SHARDS, DeadlineConstructionScheduler::new, pool);
+            List<WaitingEntity<EntityInConstruction>> entities = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(i, i, 10);
+                entities.add(w);
+                scheduler.schedule(w, 10);
+            }
+            for (int i = 0; i < 8; i += 2) {
+                assertTrue(scheduler.cancel(entities.get(i)));
+                assertFalse(scheduler.cancel(entities.get(i)));
+            }
+            List<WaitingEntity<EntityInConstruction>> completed = new ArrayList<>();
+            scheduler.advance(10, completed::add);
+            assertEquals(4, completed.size());
+            for (WaitingEntity<EntityInConstruction> w : completed) {
+                assertEquals(1, w.entity.getId().value % 2);
+            }
+        }
+    }
+
+    @Nested
+    public class Synchronize {
+
+        @Test
+        public void happyFlow() {
+            ShardedConstructionScheduler<EntityInConstruction> scheduler = new ShardedConstructionScheduler<>(SHARDS, DeadlineConstructionScheduler::new, pool);
+            List<WaitingEntity<EntityInConstruction>> entities = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                WaitingEntity<EntityInConstruction> w = givenAWaitingEntity(i, i, 10);
+                entities.add(w);
+                scheduler.schedule(w, 10);
+            }
+            scheduler.advance(4, w -> {});
+            for (WaitingEntity<EntityInConstruction> w : entities) {
+                assertEquals(10, w.representation.getTimeLeft());
+                scheduler.synchronize(w);
+                assertEquals(6, w.representation.getTimeLeft());
+            }
+            assertEquals(List.of(entities.get(3)), scheduler.getScheduled(PlayerId.valueOf(3)));
+        }
+    }
+
+    /**
+     * Linear scheduler throwing when advanced while failing.
+     */
+    private static final class FailingScheduler extends LinearConstructionScheduler<EntityInConstruction> {
+
+        private volatile boolean failing;
+
+        @Override
+        public void advance(long time, Consumer<WaitingEntity<EntityInConstruction>> completed) {
+            if (this.failing) {
+                super.advance(time, completed);
+                throw new IllegalStateException("failing shard");
+            }
+            super.advance(time, completed);
+        }
+    }
+}
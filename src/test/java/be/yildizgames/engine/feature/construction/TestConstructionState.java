@@ -0,0 +1,106 @@
+/*
+ * This file is part of the Yildiz-Engine project, licenced under the MIT License  (MIT)
+ *
+ *  Copyright (c) 2019 Grégory Van den Borre
+ *
+ *  More infos available: https://engine.yildiz-games.be
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy of this software and associated
+ *  documentation files (the "Software"), to deal in the Software without restriction, including without
+ *  limitation the rights to use, copy, modify, merge, publish, distribute, sublicense, and/or sell copies
+ *  of the Software, and to permit persons to whom the Software is furnished to do so,
+ *  subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all copies or substantial
+ *  portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE
+ *  WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS
+ *  OR COPYRIGHT  HOLDERS BE LIABLE FOR ANY CLAIM,
+ *  DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE  SOFTWARE.
+ *
+ */
+
+package be.yildizgames.engine.feature.construction;
+
+import be.yildizgames.common.model.EntityId;
+import be.yildizgames.common.model.PlayerId;
+import be.yildizgames.engine.feature.entity.EntityInConstruction;
+import be.yildizgames.engine.feature.entity.construction.EntityConstructionStatus;
+import be.yildizgames.engine.feature.entity.data.EntityType;
+
+/**
+ * Entity types, state factory and waiting entities shared by the tests.
+ *
+ * @author Grégory Van den Borre
+ */
+final class TestConstructionState {
+
+    /**
+     * Entity types, by their type value.
+     */
+    static final EntityType[] TYPES = {new EntityType(0, "a"), new EntityType(1, "b")};
+
+    /**
+     * Factory building the entities and statuses with the types above.
+     */
+    static final ConstructionStateFactory<EntityInConstruction, EntityConstructionStatus> FACTORY = new ConstructionStateFactory<>() {
+
+        @Override
+        public EntityType getType(final int type) {
+            return TYPES[type];
+        }
+
+        @Override
+        public EntityInConstruction createEntity(final int type, final EntityId id, final PlayerId owner) {
+            return new EntityInConstruction(TYPES[type], id, owner);
+        }
+
+        @Override
+        public EntityConstructionStatus create(final int type, final int index, final long timeLeft) {
+            return new EntityConstructionStatus(TYPES[type], index, timeLeft);
+        }
+    };
+
+    private TestConstructionState() {
+        super();
+    }
+
+    /**
+     * Create an entity of the player 1 waiting to be built by the builder 100.
+     *
+     * @param index Entity id and request index.
+     * @param time Construction time.
+     * @return The waiting entity.
+     */
+    static WaitingEntity<EntityInConstruction> givenAWaitingEntity(final int index, final long time) {
+        return givenAWaitingEntity(index, 1, time);
+    }
+
+    /**
+     * Create an entity waiting to be built by the builder 100.
+     *
+     * @param index Entity id and request index.
+     * @param owner Owner of the entity.
+     * @param time Construction time.
+     * @return The waiting entity.
+     */
+    static WaitingEntity<EntityInConstruction> givenAWaitingEntity(final int index, final int owner, final long time) {
+        return givenAWaitingEntity(index, owner, 100L, time);
+    }
+
+    /**
+     * Create an entity waiting to be built.
+     *
+     * @param index Entity id and request index.
+     * @param owner Owner of the entity.
+     * @param builder Id of the builder.
+     * @param time Construction time.
+     * @return The waiting entity.
+     */
+    static WaitingEntity<EntityInConstruction> givenAWaitingEntity(final int index, final int owner, final long builder, final long time) {
+        return new WaitingEntity<>(new EntityInConstruction(TYPES[1], EntityId.valueOf(index), PlayerId.valueOf(owner)),
+                new EntityConstructionStatus(TYPES[1], index, time), EntityId.valueOf(builder));
+    }
+}